@@ -4,5 +4,7 @@ module weather {
     requires com.fasterxml.jackson.annotation;
     requires com.fasterxml.jackson.dataformat.xml;
     requires java.sql;
+    requires java.net.http;
+    requires java.xml;
     exports weather;
 }
\ No newline at end of file
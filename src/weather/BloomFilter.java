@@ -0,0 +1,113 @@
+package weather;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Represents a compact set of strings that may report false positives but
+ * never false negatives. It is used to reject, in memory, keys that
+ * certainly do not exist.
+ */
+public final class BloomFilter {
+
+    /**
+     * Represents the bits of the filter.
+     */
+    private final long[] bits;
+
+    /**
+     * Represents the number of bits of the filter.
+     */
+    private final int bitCount;
+
+    /**
+     * Represents the number of bits set for every string.
+     */
+    private final int hashCount;
+
+    /**
+     * Constructs an empty BloomFilter sized for the given number of
+     * strings and false positive probability.
+     *
+     * @param expectedSize the expected number of strings.
+     *
+     * @param falsePositiveRate the wanted false positive probability,
+     * between 0 and 1 exclusive.
+     *
+     * @throws IllegalArgumentException if a value is out of range.
+     */
+    public BloomFilter(int expectedSize, double falsePositiveRate) {
+        if(expectedSize < 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid bloom filter size.");
+        } // else the values are valid doNothing();
+        var n = Math.max(1, expectedSize);
+        var m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitCount = (int) Math.max(64L, Math.min(m, Integer.MAX_VALUE - 63L));
+        this.bits = new long[(this.bitCount + 63) >>> 6];
+        this.hashCount = Math.max(1, (int) Math.round((double) this.bitCount / n * Math.log(2)));
+    }
+
+    /**
+     * Adds the given string to the filter.
+     *
+     * @param value the given string.
+     */
+    public void add(String value) {
+        var hash = hash(Objects.requireNonNull(value));
+        var h1 = (int) hash;
+        var h2 = (int) (hash >>> 32);
+        for(var i = 0; i < this.hashCount; i++) {
+            var bit = Math.floorMod(h1 + i * h2, this.bitCount);
+            this.bits[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    /**
+     * Tells whether the given string may have been added to the filter.
+     *
+     * @param value the given string.
+     *
+     * @return false if the string was certainly not added.
+     */
+    public boolean mightContain(String value) {
+        var hash = hash(Objects.requireNonNull(value));
+        var h1 = (int) hash;
+        var h2 = (int) (hash >>> 32);
+        for(var i = 0; i < this.hashCount; i++) {
+            var bit = Math.floorMod(h1 + i * h2, this.bitCount);
+            if((this.bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            } // else the bit is set doNothing();
+        }
+        return true;
+    }
+
+    /**
+     * Gets a 64 bit FNV-1a hash of the given string, mixed so both halves
+     * can be used as independent hashes.
+     *
+     * @param value the given string.
+     *
+     * @return the hash.
+     */
+    private static long hash(String value) {
+        var hash = 0xcbf29ce484222325L;
+        for(var b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * Gets the number of bytes used by the bits of the filter.
+     *
+     * @return the size of the filter in bytes.
+     */
+    public int getByteSize() {
+        return this.bits.length * Long.BYTES;
+    }
+}
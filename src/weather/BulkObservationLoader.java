@@ -0,0 +1,198 @@
+package weather;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fetches the current observations of many stations concurrently. At most
+ * a given number of stations are fetched at the same time and the results
+ * are handed out in the order in which the fetches finish. The fetches
+ * run on the shared LoadExecutor.
+ */
+public class BulkObservationLoader
+implements Iterator<ObservationResult> {
+
+    /**
+     * Represents the name of the system property with the default parallelism.
+     */
+    public static final String PARALLELISM_PROPERTY = "weather.bulk.parallelism";
+
+    /**
+     * Represents the default number of stations fetched at the same time.
+     */
+    public static final int DEFAULT_PARALLELISM = Integer.getInteger(PARALLELISM_PROPERTY, 8);
+
+    /**
+     * Represents the IDs of the stations that are not fetched yet.
+     */
+    private final Queue<String> pending;
+
+    /**
+     * Represents the results of the finished fetches.
+     */
+    private final BlockingQueue<ObservationResult> results = new LinkedBlockingQueue<>();
+
+    /**
+     * Represents the workers fetching stations on the shared executor.
+     */
+    private final List<Future<?>> workers = new ArrayList<>();
+
+    /**
+     * Represents the number of results not handed out yet.
+     */
+    private int remaining;
+
+    /**
+     * Represents a Logger retrieved by the Manager class.
+     */
+    private static final Logger LOG = Manager.getLogger("BulkObservationLoader");
+
+    /**
+     * Constructs a BulkObservationLoader and starts fetching the given
+     * stations with the given DAO. Duplicate station IDs are fetched once.
+     *
+     * @param dao the DAO used to fetch each station.
+     *
+     * @param stationIds the IDs of the stations to fetch.
+     *
+     * @param parallelism the maximum number of concurrent fetches.
+     *
+     * @throws IllegalArgumentException if the parallelism is not positive.
+     *
+     * @throws DataAccessException if the shared executor is full.
+     */
+    public BulkObservationLoader(CurrentObservationDAO dao, Collection<String> stationIds, int parallelism) {
+        Objects.requireNonNull(dao);
+        Objects.requireNonNull(stationIds);
+        if(parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive.");
+        } // else the parallelism is valid doNothing();
+
+        var ids = new LinkedHashSet<>(stationIds);
+        ids.forEach(Objects::requireNonNull);
+        this.pending = new ConcurrentLinkedQueue<>(ids);
+        this.remaining = ids.size();
+        var workerCount = Math.min(parallelism, ids.size());
+        try {
+            for(var i = 0; i < workerCount; i++) {
+                this.workers.add(LoadExecutor.submit(() -> this.work(dao)));
+            }
+        } catch (RejectedExecutionException ex) {
+            if(this.workers.isEmpty()) {
+                LOG.log(Level.SEVERE, ex.getMessage(), ex);
+                throw new DataAccessException("Cannot connect to weather conditions. Contact support.");
+            } // else fewer workers fetch all stations doNothing();
+        }
+    }
+
+    /**
+     * Fetches pending stations one after another until none is left.
+     *
+     * @param dao the DAO used to fetch each station.
+     */
+    private void work(CurrentObservationDAO dao) {
+        String stationId;
+        while(!Thread.currentThread().isInterrupted() && (stationId = this.pending.poll()) != null) {
+            this.results.add(fetch(dao, stationId));
+        }
+    }
+
+    /**
+     * Fetches a single station and wraps the outcome in a result. A
+     * failure to reach the data is a failed result, not an empty one.
+     *
+     * @param dao the DAO used to fetch the station.
+     *
+     * @param stationId the ID of the station.
+     *
+     * @return the result of the fetch.
+     */
+    private static ObservationResult fetch(CurrentObservationDAO dao, String stationId) {
+        CompletableFuture<Optional<CurrentObservation>> fetch = null;
+        try {
+            fetch = dao.fetchAsync(stationId);
+            return ObservationResult.success(stationId, fetch.get());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            fetch.cancel(true);
+            return ObservationResult.failure(stationId, ex);
+        } catch (ExecutionException | RuntimeException ex) {
+            var cause = Futures.unwrap(ex);
+            LOG.log(Level.WARNING, String.format("Cannot fetch station %s: %s", stationId, cause.getMessage()));
+            return ObservationResult.failure(stationId, cause instanceof Exception ? (Exception) cause : ex);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasNext() {
+        return this.remaining > 0;
+    }
+
+    /**
+     * Waits for the next fetch to finish and returns its result.
+     *
+     * @return the result of the next finished fetch.
+     *
+     * @throws NoSuchElementException if all results have been returned.
+     *
+     * @throws DataAccessException if the waiting thread is interrupted.
+     */
+    @Override
+    public ObservationResult next() {
+        if(!this.hasNext()) {
+            throw new NoSuchElementException();
+        } // else there are results left doNothing();
+        try {
+            var result = this.results.take();
+            this.remaining--;
+            return result;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            this.cancel();
+            throw new DataAccessException("Bulk fetch was interrupted.");
+        }
+    }
+
+    /**
+     * Waits for all remaining fetches and returns their results in the
+     * order in which they finish.
+     *
+     * @return the remaining results.
+     */
+    public List<ObservationResult> drain() {
+        var results = new ArrayList<ObservationResult>(this.remaining);
+        while(this.hasNext()) {
+            results.add(this.next());
+        }
+        return results;
+    }
+
+    /**
+     * Stops all fetches that have not finished yet. No further results are
+     * returned after cancelling.
+     */
+    public void cancel() {
+        this.pending.clear();
+        this.workers.forEach(worker -> worker.cancel(true));
+        this.remaining = 0;
+    }
+}
@@ -0,0 +1,376 @@
+package weather;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Represents a CurrentObservationDAO that serves repeated lookups of a
+ * station from an ObservationCache and only asks the wrapped DAO when the
+ * cached observation has expired. In stale-while-revalidate mode an
+ * expired observation is returned at once, marked as stale, while a newer
+ * one is fetched in the background; the most viewed stations are also
+ * refreshed before they expire. An optional local store serves as a
+ * second-level cache that survives restarts: stations not yet in memory
+ * are looked up there first, on the load executor when asked
+ * asynchronously, and every fetched observation is saved to it.
+ */
+public class CachedCurrentObservationDAO
+implements CurrentObservationDAO {
+
+    /**
+     * Represents the name of the system property that enables the
+     * stale-while-revalidate mode. It is off by default, so an expired
+     * observation is fetched again before it is shown.
+     */
+    public static final String STALE_WHILE_REVALIDATE_PROPERTY = "weather.cache.staleWhileRevalidate";
+
+    /**
+     * Represents the DAO shared by the application, backed by the web.
+     */
+    private static final CachedCurrentObservationDAO INSTANCE = new CachedCurrentObservationDAO(
+            new CurrentObservationDAOWebImpl(), new ObservationCache(), WriteBehindBuffer.getInstance(),
+            Boolean.parseBoolean(System.getProperty(STALE_WHILE_REVALIDATE_PROPERTY, "false")));
+
+    /**
+     * Represents a Logger retrieved by the Manager class.
+     */
+    private static final Logger LOG = Manager.getLogger("CachedCurrentObservationDAO");
+
+    /**
+     * Represents the DAO asked on a cache miss.
+     */
+    private final CurrentObservationDAO dao;
+
+    /**
+     * Represents the cache of observations.
+     */
+    private final ObservationCache cache;
+
+    /**
+     * Represents the local store used as second-level cache, or null.
+     */
+    private final LocalWeatherModelDAO store;
+
+    /**
+     * Represents the stations known to be missing from the local store,
+     * so they are not looked up there again. A station leaves the set
+     * once it is fetched and saved.
+     */
+    private final Set<String> storeMisses = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Tells whether expired observations are served while refreshed.
+     */
+    private final boolean staleWhileRevalidate;
+
+    /**
+     * Refreshes the most viewed stations before they expire, or null if
+     * the stale-while-revalidate mode is off.
+     */
+    private final ObservationRefresher refresher;
+
+    /**
+     * Constructs a CachedCurrentObservationDAO without a local store.
+     *
+     * @param dao the DAO asked on a cache miss.
+     *
+     * @param cache the cache of observations.
+     *
+     * @param staleWhileRevalidate whether expired observations are served
+     * while refreshed.
+     */
+    public CachedCurrentObservationDAO(CurrentObservationDAO dao, ObservationCache cache, boolean staleWhileRevalidate) {
+        this(dao, cache, null, staleWhileRevalidate);
+    }
+
+    /**
+     * Constructs a CachedCurrentObservationDAO.
+     *
+     * @param dao the DAO asked on a cache miss.
+     *
+     * @param cache the cache of observations.
+     *
+     * @param store the local store used as second-level cache, or null.
+     *
+     * @param staleWhileRevalidate whether expired observations are served
+     * while refreshed.
+     */
+    public CachedCurrentObservationDAO(CurrentObservationDAO dao, ObservationCache cache,
+                                       LocalWeatherModelDAO store, boolean staleWhileRevalidate) {
+        this.dao = Objects.requireNonNull(dao);
+        this.cache = Objects.requireNonNull(cache);
+        this.store = store;
+        this.staleWhileRevalidate = staleWhileRevalidate;
+        this.refresher = staleWhileRevalidate
+                ? ObservationRefresher.fromSystemProperties(cache, this::fetchOrEmpty)
+                : null;
+    }
+
+    /**
+     * Gets the DAO shared by the application.
+     *
+     * @return the shared DAO.
+     */
+    public static CachedCurrentObservationDAO getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Gets the cache of this DAO, which also holds its statistics.
+     *
+     * @return the cache.
+     */
+    public ObservationCache getCache() {
+        return this.cache;
+    }
+
+    /**
+     * Fetches the observation of the given station from the wrapped DAO,
+     * which coalesces concurrent fetches of a station, and caches it.
+     *
+     * @param stationId the given station ID.
+     *
+     * @return a future holding the fetched observation; it fails if the
+     * wrapped DAO cannot reach the data.
+     */
+    private CompletableFuture<Optional<CurrentObservation>> fetch(String stationId) {
+        var fetch = this.dao.fetchAsync(stationId);
+        return Futures.propagateCancel(fetch, fetch.thenApply(result -> {
+            result.ifPresent(this::accept);
+            return result;
+        }));
+    }
+
+    /**
+     * Fetches the observation of the given station like fetch, but gives
+     * an empty Optional if the wrapped DAO cannot reach the data.
+     *
+     * @param stationId the given station ID.
+     *
+     * @return a future holding the fetched observation.
+     */
+    private CompletableFuture<Optional<CurrentObservation>> fetchOrEmpty(String stationId) {
+        var fetch = this.fetch(stationId);
+        return Futures.propagateCancel(fetch, fetch.exceptionally(ex -> {
+            if(Futures.unwrap(ex) instanceof DAOException) {
+                return Optional.empty();
+            } // else the request is invalid doNothing();
+            throw ex instanceof CompletionException ? (CompletionException) ex : new CompletionException(ex);
+        }));
+    }
+
+    /**
+     * Caches a freshly fetched observation and saves it to the local store.
+     *
+     * @param observation the fetched observation.
+     */
+    private void accept(CurrentObservation observation) {
+        this.cache.put(observation);
+        this.storeMisses.remove(observation.getStationId());
+        if(this.store != null) {
+            try {
+                this.store.saveCurrentObservation(observation);
+            } catch (DAOException | RuntimeException ex) {
+                LOG.log(Level.WARNING, "Cannot save observation: " + ex.getMessage(), ex);
+            }
+        } // else there is no local store doNothing();
+    }
+
+    /**
+     * Tells whether the given station has to be looked up in the local
+     * store: it is not in memory and not known to be missing there.
+     *
+     * @param stationId the given station ID.
+     *
+     * @return true if the local store has to be read.
+     */
+    private boolean mayBeInStore(String stationId) {
+        return this.store != null
+                && this.cache.getExpiry(stationId).isEmpty()
+                && !this.storeMisses.contains(stationId);
+    }
+
+    /**
+     * Loads the observation of the given station from the local store
+     * into memory if the station is not in memory yet. This reads the
+     * local files and may wait for a flush, so it must not run on the
+     * user interface thread.
+     *
+     * @param stationId the given station ID.
+     */
+    private void loadFromStore(String stationId) {
+        if(!this.mayBeInStore(stationId)) {
+            return;
+        } // else the station may be in the local store doNothing();
+        try {
+            var saved = this.store.getCurrentObservation(stationId);
+            if(saved.isPresent()) {
+                this.cache.put(saved.get());
+            } else {
+                this.storeMisses.add(stationId);
+            }
+        } catch (DAOException | RuntimeException ex) {
+            LOG.log(Level.WARNING, "Cannot load saved observation: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Loads the observation of the given station from the local store on
+     * the load executor, unless the store does not have to be read.
+     *
+     * @param stationId the given station ID.
+     *
+     * @return a future completing once the store has been read; it never
+     * fails.
+     */
+    private CompletableFuture<Void> loadFromStoreAsync(String stationId) {
+        if(!this.mayBeInStore(stationId)) {
+            return CompletableFuture.completedFuture(null);
+        } // else the local store is read in the background doNothing();
+        return LoadExecutor.supply(() -> {
+            this.loadFromStore(stationId);
+            return (Void) null;
+        }).exceptionally(ex -> {
+            LOG.log(Level.WARNING, "Cannot load saved observation: " + ex.getMessage(), ex);
+            return null;
+        });
+    }
+
+    /**
+     * Looks the given station up in the cache. In stale-while-revalidate
+     * mode the last known observation is returned if the cached one has
+     * expired, and a refresh is started in the background.
+     *
+     * @param stationId the given station ID.
+     *
+     * @return the cached observation, or an empty Optional if the
+     * station has to be fetched.
+     */
+    private Optional<CurrentObservation> lookup(String stationId) {
+        Objects.requireNonNull(stationId);
+        var cached = this.cache.get(stationId);
+        if(cached.isPresent() || !this.staleWhileRevalidate) {
+            return cached;
+        } // else the last known observation may be served doNothing();
+        var stale = this.cache.getStale(stationId);
+        if(stale.isPresent()) {
+            this.fetchOrEmpty(stationId);
+        } // else the station is unknown and has to be fetched doNothing();
+        return stale;
+    }
+
+    /**
+     * Serves the given station from the cache, or fetches it.
+     *
+     * @param stationId the given station ID.
+     *
+     * @param strict whether a failure to reach the data fails the future
+     * rather than giving an empty Optional.
+     *
+     * @return a future holding the observation.
+     */
+    private CompletableFuture<Optional<CurrentObservation>> serve(String stationId, boolean strict) {
+        var cached = this.lookup(stationId);
+        if(cached.isPresent()) {
+            return CompletableFuture.completedFuture(cached);
+        } // else the observation has to be fetched doNothing();
+        return strict ? this.fetch(stationId) : this.fetchOrEmpty(stationId);
+    }
+
+    /**
+     * Warms the cache with the observation of the given station: it is
+     * fetched unless a fresh one is cached. Unlike a lookup, this neither
+     * counts as a view nor as a cache hit or miss. Cancelling the
+     * returned future cancels the fetch.
+     *
+     * @param stationId the given station ID.
+     *
+     * @return a future holding the fetched observation, or an empty
+     * Optional if a fresh one was already cached.
+     */
+    public CompletableFuture<Optional<CurrentObservation>> prefetch(String stationId) {
+        Objects.requireNonNull(stationId);
+        return Futures.compose(this.loadFromStoreAsync(stationId), loaded -> {
+            if(this.cache.isFresh(stationId)) {
+                return CompletableFuture.completedFuture(Optional.<CurrentObservation>empty());
+            } // else the observation is missing or expired doNothing();
+            return this.fetchOrEmpty(stationId);
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<CurrentObservation> get(String stationId) throws DAOException {
+        Objects.requireNonNull(stationId);
+        this.loadFromStore(stationId);
+        var cached = this.lookup(stationId);
+        if(this.refresher != null) {
+            this.refresher.recordView(stationId);
+        } // else no station is refreshed ahead doNothing();
+        if(cached.isPresent()) {
+            return cached;
+        } // else the observation has to be fetched doNothing();
+        var result = this.dao.get(stationId);
+        result.ifPresent(this::accept);
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Optional<CurrentObservation>> getAsync(String stationId) {
+        return this.serveAsync(stationId, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * A cached observation is served as by getAsync.
+     */
+    @Override
+    public CompletableFuture<Optional<CurrentObservation>> fetchAsync(String stationId) {
+        return this.serveAsync(stationId, true);
+    }
+
+    /**
+     * Records a view of the given station, then serves it from the local
+     * store or the cache, or fetches it.
+     *
+     * @param stationId the given station ID.
+     *
+     * @param strict whether a failure to reach the data fails the future
+     * rather than giving an empty Optional.
+     *
+     * @return a future holding the observation.
+     */
+    private CompletableFuture<Optional<CurrentObservation>> serveAsync(String stationId, boolean strict) {
+        Objects.requireNonNull(stationId);
+        if(this.refresher != null) {
+            this.refresher.recordView(stationId);
+        } // else no station is refreshed ahead doNothing();
+        var loaded = this.loadFromStoreAsync(stationId);
+        if(loaded.isDone()) {
+            return this.serve(stationId, strict);
+        } // else the local store is being read doNothing();
+        return Futures.compose(loaded, ignored -> this.serve(stationId, strict));
+    }
+
+    /**
+     * Gets the refresher of the most viewed stations.
+     *
+     * @return the refresher, or an empty Optional if the
+     * stale-while-revalidate mode is off.
+     */
+    public Optional<ObservationRefresher> getRefresher() {
+        return Optional.ofNullable(this.refresher);
+    }
+}
@@ -0,0 +1,362 @@
+package weather;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fetches web documents with conditional requests. Only the validators
+ * (ETag and Last-Modified) and the pickup deadline of every URL are kept
+ * here, in a bounded cache; the parsed values are held by the callers'
+ * own caches. A caller passing the value it holds gets it back without a
+ * request until the suggested pickup period of the document has passed,
+ * and after a 304 Not Modified response. Raw bodies are kept in a
+ * ResponseStore, so a caller holding no value, or a restarted
+ * application, revalidates with the stored validators and, if unchanged,
+ * parses the body from disk instead of downloading it.
+ */
+public final class ConditionalFetcher {
+
+    /**
+     * Parses a document body into a value.
+     *
+     * @param <T> the type of the parsed value.
+     */
+    @FunctionalInterface
+    public interface Parser<T> {
+        /**
+         * Parses the given document body.
+         *
+         * @param in the given document body.
+         *
+         * @return the parsed value.
+         *
+         * @throws IOException if the body cannot be read or parsed.
+         */
+        T parse(InputStream in) throws IOException;
+    }
+
+    /**
+     * Represents the name of the system property with the memory budget
+     * of the validators kept in memory, in bytes.
+     */
+    public static final String MAX_BYTES_PROPERTY = "weather.fetcher.maxBytes";
+
+    /**
+     * Represents the validators of the last response of a URL.
+     */
+    private static final class Entry {
+        /**
+         * Represents the URL of the response.
+         */
+        private final String url;
+
+        /**
+         * Represents the ETag of the response, or null.
+         */
+        private final String etag;
+
+        /**
+         * Represents the Last-Modified header of the response, or null.
+         */
+        private final String lastModified;
+
+        /**
+         * Represents the System.nanoTime() until which the value of the
+         * response is used without asking the server.
+         */
+        private final long freshUntil;
+
+        /**
+         * Constructs an Entry.
+         *
+         * @param url the URL of the response.
+         *
+         * @param etag the ETag, or null.
+         *
+         * @param lastModified the Last-Modified header, or null.
+         *
+         * @param pickupPeriod the suggested pickup period of the response.
+         */
+        private Entry(String url, String etag, String lastModified, Duration pickupPeriod) {
+            this.url = url;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.freshUntil = System.nanoTime() + pickupPeriod.toNanos();
+        }
+
+        /**
+         * Tells whether the value may be used without asking the server.
+         *
+         * @return true if the pickup period has not passed.
+         */
+        private boolean isFresh() {
+            return System.nanoTime() - this.freshUntil < 0;
+        }
+
+        /**
+         * Estimates the number of bytes retained by this entry.
+         *
+         * @return the estimated number of bytes.
+         */
+        private long estimateSize() {
+            return WeightedCache.sizeOfObject(3) + 8L
+                    + WeightedCache.sizeOf(this.url)
+                    + WeightedCache.sizeOf(this.etag)
+                    + WeightedCache.sizeOf(this.lastModified);
+        }
+    }
+
+    /**
+     * Represents the validators of the fetched URLs, within a memory budget.
+     */
+    private static final WeightedCache<String, Entry> ENTRIES = new WeightedCache<>(
+            Long.getLong(MAX_BYTES_PROPERTY, 1024L * 1024), 256L, Entry::estimateSize);
+
+    /**
+     * Represents the raw bodies of the fetched documents on disk.
+     */
+    private static final ResponseStore STORE = ResponseStore.fromSystemProperties();
+
+    /**
+     * Represents a Logger retrieved by the Manager class.
+     */
+    private static final Logger LOG = Manager.getLogger("ConditionalFetcher");
+
+    /**
+     * ConditionalFetcher only has static members.
+     */
+    private ConditionalFetcher() {
+    }
+
+    /**
+     * Gets the value of the document at the given URL. The given current
+     * value is returned without a request while the pickup period of the
+     * document lasts, and after a 304 Not Modified response; otherwise
+     * the body is parsed with the given parser, from the response or, if
+     * unchanged, from the store.
+     *
+     * @param url the URL of the document.
+     *
+     * @param current the value the caller holds for the URL, or null.
+     *
+     * @param parser the parser of the document body.
+     *
+     * @param pickupPeriod gives the suggested pickup period of a parsed value.
+     *
+     * @param <T> the type of the parsed value.
+     *
+     * @return the value of the document.
+     *
+     * @throws IOException if the document cannot be fetched or parsed.
+     */
+    public static <T> T fetch(String url, T current, Parser<T> parser,
+                              Function<T, Duration> pickupPeriod) throws IOException {
+        Objects.requireNonNull(url);
+        Objects.requireNonNull(parser);
+        Objects.requireNonNull(pickupPeriod);
+        var entry = current == null ? null : ENTRIES.get(url).orElse(null);
+        if(entry != null && entry.isFresh()) {
+            return current;
+        } // else the document has to be checked with the server doNothing();
+
+        var stored = entry == null ? STORE.get(url).orElse(null) : null;
+        try(var response = WebClient.get(url, validators(entry, stored))) {
+            return accept(url, current, entry, stored, response, parser, pickupPeriod);
+        }
+    }
+
+    /**
+     * Gets the value of the document at the given URL without blocking.
+     * It behaves like fetch, but the request is sent asynchronously and
+     * cancelling the returned future aborts it.
+     *
+     * @param url the URL of the document.
+     *
+     * @param current the value the caller holds for the URL, or null.
+     *
+     * @param parser the parser of the document body.
+     *
+     * @param pickupPeriod gives the suggested pickup period of a parsed value.
+     *
+     * @param <T> the type of the parsed value.
+     *
+     * @return a future holding the value of the document; it fails with an
+     * IOException if the document cannot be fetched or parsed.
+     */
+    public static <T> CompletableFuture<T> fetchAsync(String url, T current, Parser<T> parser,
+                                                      Function<T, Duration> pickupPeriod) {
+        Objects.requireNonNull(url);
+        Objects.requireNonNull(parser);
+        Objects.requireNonNull(pickupPeriod);
+        var entry = current == null ? null : ENTRIES.get(url).orElse(null);
+        if(entry != null && entry.isFresh()) {
+            return CompletableFuture.completedFuture(current);
+        } // else the document has to be checked with the server doNothing();
+
+        var stored = entry == null ? STORE.get(url).orElse(null) : null;
+        var exchange = WebClient.getAsync(url, validators(entry, stored));
+        return Futures.propagateCancel(exchange, exchange.thenApply(response -> {
+            try(response) {
+                return accept(url, current, entry, stored, response, parser, pickupPeriod);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }));
+    }
+
+    /**
+     * Builds the validating headers of a request from the given entry, or
+     * from the given stored response if there is no entry. Without either,
+     * no value could be served on a 304 response, so nothing is validated.
+     *
+     * @param entry the validators of the value held by the caller, or null.
+     *
+     * @param stored the stored response of the URL, or null.
+     *
+     * @return the headers of the request.
+     */
+    private static Map<String, String> validators(Entry entry, ResponseStore.StoredResponse stored) {
+        String etag = null;
+        String lastModified = null;
+        if(entry != null) {
+            etag = entry.etag;
+            lastModified = entry.lastModified;
+        } else if(stored != null) {
+            etag = stored.getEtag().orElse(null);
+            lastModified = stored.getLastModified().orElse(null);
+        } // else there is nothing to validate doNothing();
+
+        var headers = new HashMap<String, String>();
+        if(etag != null) {
+            headers.put("If-None-Match", etag);
+        } // else there is no ETag to validate doNothing();
+        if(lastModified != null) {
+            headers.put("If-Modified-Since", lastModified);
+        } // else there is no date to validate doNothing();
+        return headers;
+    }
+
+    /**
+     * Turns the given response into a value, reusing the given current
+     * value, or parsing the stored body, on a 304 Not Modified response,
+     * and records the validators of the result.
+     *
+     * @param url the URL of the document.
+     *
+     * @param current the value the caller holds for the URL, or null.
+     *
+     * @param entry the validators of the current value, or null.
+     *
+     * @param stored the stored response of the URL, or null.
+     *
+     * @param response the response of the server.
+     *
+     * @param parser the parser of the document body.
+     *
+     * @param pickupPeriod gives the suggested pickup period of a parsed value.
+     *
+     * @param <T> the type of the parsed value.
+     *
+     * @return the value of the document.
+     *
+     * @throws HttpStatusException if the status is unexpected.
+     *
+     * @throws IOException if the body cannot be parsed.
+     */
+    private static <T> T accept(String url, T current, Entry entry, ResponseStore.StoredResponse stored,
+                                WebClient.Response response, Parser<T> parser,
+                                Function<T, Duration> pickupPeriod) throws IOException {
+        var status = response.getStatus();
+        if(status == HttpURLConnection.HTTP_NOT_MODIFIED && entry != null) {
+            ENTRIES.put(url, new Entry(url, entry.etag, entry.lastModified, pickupPeriod.apply(current)));
+            LOG.log(Level.FINE, String.format("Not modified: %s", url));
+            return current;
+        } else if(status == HttpURLConnection.HTTP_NOT_MODIFIED && stored != null) {
+            T value;
+            if(current != null) {
+                value = current;
+            } else {
+                try(var body = stored.openBody()) {
+                    value = parser.parse(body);
+                }
+            }
+            ENTRIES.put(url, new Entry(url, stored.getEtag().orElse(null),
+                    stored.getLastModified().orElse(null), pickupPeriod.apply(value)));
+            LOG.log(Level.FINE, String.format("Not modified, using stored body: %s", url));
+            return value;
+        } else if(status != HttpURLConnection.HTTP_OK) {
+            throw new HttpStatusException(status, url);
+        } // else the body holds a new document doNothing();
+
+        var etag = response.getHeader("ETag").orElse(null);
+        var lastModified = response.getHeader("Last-Modified").orElse(null);
+        try(var capture = STORE.capture(url, etag, lastModified)) {
+            var value = parser.parse(capture.wrap(response.getBody()));
+            capture.commit();
+            ENTRIES.put(url, new Entry(url, etag, lastModified, pickupPeriod.apply(value)));
+            return value;
+        }
+    }
+
+    /**
+     * Parses the stored body of the given URL, without any request.
+     *
+     * @param url the URL of the document.
+     *
+     * @param parser the parser of the document body.
+     *
+     * @param <T> the type of the parsed value.
+     *
+     * @return the parsed value, or an empty Optional if no body is stored.
+     *
+     * @throws IOException if the stored body cannot be read or parsed.
+     */
+    public static <T> Optional<T> parseStored(String url, Parser<T> parser) throws IOException {
+        Objects.requireNonNull(url);
+        Objects.requireNonNull(parser);
+        var stored = STORE.get(url);
+        if(stored.isEmpty()) {
+            return Optional.empty();
+        } // else there is a body to parse doNothing();
+        try(var body = stored.get().openBody()) {
+            return Optional.of(parser.parse(body));
+        }
+    }
+
+    /**
+     * Parses a suggested pickup period given in minutes, as found in the
+     * suggested_pickup_period element of NOAA documents.
+     *
+     * @param minutes the given number of minutes, may be null.
+     *
+     * @return the pickup period, or zero if it is missing or invalid.
+     */
+    public static Duration pickupPeriod(String minutes) {
+        if(minutes == null) {
+            return Duration.ZERO;
+        } // else there is a value to parse doNothing();
+        try {
+            return Duration.ofMinutes(Math.max(0L, Long.parseLong(minutes.trim())));
+        } catch (NumberFormatException ex) {
+            return Duration.ZERO;
+        }
+    }
+
+    /**
+     * Forgets the validators kept in memory for every URL.
+     */
+    public static void clear() {
+        ENTRIES.clear();
+    }
+}
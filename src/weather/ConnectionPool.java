@@ -0,0 +1,336 @@
+package weather;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Represents a small pool of long-lived SQLite connections. Every
+ * connection is opened once in WAL journal mode with the configured
+ * synchronous level, cache size and busy timeout, and keeps its prepared
+ * statements, so an operation pays neither for opening the file nor for
+ * preparing its statement again.
+ */
+public final class ConnectionPool {
+
+    /**
+     * Represents the name of the system property with the number of
+     * connections of the pool.
+     */
+    public static final String SIZE_PROPERTY = "weather.sql.poolSize";
+
+    /**
+     * Represents the name of the system property with the synchronous
+     * level of the connections: OFF, NORMAL, FULL or EXTRA.
+     */
+    public static final String SYNCHRONOUS_PROPERTY = "weather.sql.synchronous";
+
+    /**
+     * Represents the name of the system property with the page cache size
+     * of every connection, in KiB.
+     */
+    public static final String CACHE_SIZE_PROPERTY = "weather.sql.cacheSizeKiB";
+
+    /**
+     * Represents the name of the system property with the time, in
+     * milliseconds, to wait for a connection or a database lock.
+     */
+    public static final String TIMEOUT_PROPERTY = "weather.sql.timeoutMillis";
+
+    /**
+     * Represents the pool of the local files.
+     */
+    private static ConnectionPool instance;
+
+    /**
+     * Represents a Logger retrieved by the Manager class.
+     */
+    private static final Logger LOG = Manager.getLogger("ConnectionPool");
+
+    /**
+     * Represents a connection borrowed from the pool. Closing it gives it
+     * back to the pool; its prepared statements stay open.
+     */
+    public final class PooledConnection implements AutoCloseable {
+        /**
+         * Represents the underlying connection.
+         */
+        private final Connection connection;
+
+        /**
+         * Represents the prepared statements of the connection by SQL.
+         */
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+        /**
+         * Tells whether the connection could not be reset and has to be
+         * discarded.
+         */
+        private boolean broken;
+
+        /**
+         * Constructs a PooledConnection.
+         *
+         * @param connection the underlying connection.
+         */
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        /**
+         * Gets the underlying connection, for transactions and statements
+         * that are not reused.
+         *
+         * @return the underlying connection.
+         */
+        public Connection getConnection() {
+            return this.connection;
+        }
+
+        /**
+         * Gets the prepared statement of the given SQL, preparing it on the
+         * first use of this connection. Its parameters are cleared.
+         *
+         * @param sql the given SQL.
+         *
+         * @return a prepared statement that must not be closed.
+         *
+         * @throws SQLException if the statement cannot be prepared.
+         */
+        public PreparedStatement prepare(String sql) throws SQLException {
+            Objects.requireNonNull(sql);
+            var statement = this.statements.get(sql);
+            if(statement == null || statement.isClosed()) {
+                statement = this.connection.prepareStatement(sql);
+                this.statements.put(sql, statement);
+            } else {
+                statement.clearParameters();
+                statement.clearBatch();
+            }
+            return statement;
+        }
+
+        /**
+         * Gives this connection back to the pool, rolling back any
+         * transaction left open.
+         */
+        @Override
+        public void close() {
+            ConnectionPool.this.release(this);
+        }
+
+        /**
+         * Closes the statements and the underlying connection.
+         */
+        private void closeQuietly() {
+            for(var statement : this.statements.values()) {
+                try {
+                    statement.close();
+                } catch (SQLException ex) {
+                    LOG.log(Level.FINE, ex.getMessage(), ex);
+                }
+            }
+            this.statements.clear();
+            try {
+                this.connection.close();
+            } catch (SQLException ex) {
+                LOG.log(Level.FINE, ex.getMessage(), ex);
+            }
+        }
+    }
+
+    /**
+     * Represents the connection string of the database.
+     */
+    private final String url;
+
+    /**
+     * Represents the number of connections of the pool.
+     */
+    private final int size;
+
+    /**
+     * Represents the synchronous level of the connections.
+     */
+    private final String synchronous;
+
+    /**
+     * Represents the page cache size of every connection, in KiB.
+     */
+    private final int cacheSizeKiB;
+
+    /**
+     * Represents the time, in milliseconds, to wait for a connection or a
+     * database lock.
+     */
+    private final long timeoutMillis;
+
+    /**
+     * Represents the idle connections.
+     */
+    private final BlockingQueue<PooledConnection> idle;
+
+    /**
+     * Represents every connection opened and not closed yet.
+     */
+    private final List<PooledConnection> opened = new ArrayList<>();
+
+    /**
+     * Tells whether the pool has been closed.
+     */
+    private boolean closed;
+
+    /**
+     * Constructs a ConnectionPool.
+     *
+     * @param url the connection string of the database.
+     *
+     * @param size the number of connections.
+     *
+     * @param synchronous the synchronous level: OFF, NORMAL, FULL or EXTRA.
+     *
+     * @param cacheSizeKiB the page cache size of every connection, in KiB.
+     *
+     * @param timeoutMillis the time to wait for a connection or a lock.
+     *
+     * @throws IllegalArgumentException if a value is invalid.
+     */
+    public ConnectionPool(String url, int size, String synchronous, int cacheSizeKiB, long timeoutMillis) {
+        Objects.requireNonNull(url);
+        Objects.requireNonNull(synchronous);
+        if(size <= 0 || cacheSizeKiB <= 0 || timeoutMillis < 0
+                || !List.of("OFF", "NORMAL", "FULL", "EXTRA").contains(synchronous.toUpperCase())) {
+            throw new IllegalArgumentException("Invalid connection pool.");
+        } // else the values are valid doNothing();
+        this.url = url;
+        this.size = size;
+        this.synchronous = synchronous.toUpperCase();
+        this.cacheSizeKiB = cacheSizeKiB;
+        this.timeoutMillis = timeoutMillis;
+        this.idle = new ArrayBlockingQueue<>(size);
+    }
+
+    /**
+     * Gets the pool of the local files, creating it from the system
+     * properties if necessary.
+     *
+     * @return the pool of the local files.
+     */
+    public static synchronized ConnectionPool getInstance() {
+        if(instance == null) {
+            instance = new ConnectionPool(WeatherModelDAOSqlImpl.CONNECTION_STRING,
+                    Integer.getInteger(SIZE_PROPERTY, 4),
+                    System.getProperty(SYNCHRONOUS_PROPERTY, "NORMAL"),
+                    Integer.getInteger(CACHE_SIZE_PROPERTY, 8192),
+                    Long.getLong(TIMEOUT_PROPERTY, 5000L));
+        } // else the pool has been created doNothing();
+        return instance;
+    }
+
+    /**
+     * Borrows a connection, opening one if fewer than the pool size are
+     * open, or waiting for one to be given back otherwise.
+     *
+     * @return a connection that must be closed to give it back.
+     *
+     * @throws SQLException if no connection can be opened or none is
+     * given back in time.
+     */
+    public PooledConnection borrow() throws SQLException {
+        var connection = this.idle.poll();
+        if(connection != null) {
+            return connection;
+        } // else no connection is idle doNothing();
+        synchronized(this) {
+            if(this.closed) {
+                throw new SQLException("The connection pool is closed.");
+            } else if(this.opened.size() < this.size) {
+                connection = this.open();
+                this.opened.add(connection);
+                return connection;
+            } // else every connection is open doNothing();
+        }
+        try {
+            connection = this.idle.poll(this.timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection.", ex);
+        }
+        if(connection == null) {
+            throw new SQLException("No database connection available.");
+        } // else a connection was given back doNothing();
+        return connection;
+    }
+
+    /**
+     * Opens and configures a new connection.
+     *
+     * @return a new connection.
+     *
+     * @throws SQLException if the connection cannot be opened.
+     */
+    private PooledConnection open() throws SQLException {
+        var connection = DriverManager.getConnection(this.url);
+        try(var statement = connection.createStatement()) {
+            statement.execute("PRAGMA journal_mode=WAL");
+            statement.execute("PRAGMA synchronous=" + this.synchronous);
+            statement.execute("PRAGMA cache_size=-" + this.cacheSizeKiB);
+            statement.execute("PRAGMA busy_timeout=" + this.timeoutMillis);
+        } catch (SQLException ex) {
+            connection.close();
+            throw ex;
+        }
+        LOG.log(Level.FINE, "Opened a database connection.");
+        return new PooledConnection(connection);
+    }
+
+    /**
+     * Gives the given connection back to the pool, or closes it if it
+     * failed or the pool is closed.
+     *
+     * @param connection the given connection.
+     */
+    private void release(PooledConnection connection) {
+        try {
+            if(!connection.broken && !connection.connection.getAutoCommit()) {
+                connection.connection.rollback();
+                connection.connection.setAutoCommit(true);
+            } // else no transaction is left open doNothing();
+        } catch (SQLException ex) {
+            LOG.log(Level.WARNING, "Discarding a database connection: " + ex.getMessage(), ex);
+            connection.broken = true;
+        }
+        synchronized(this) {
+            if(!connection.broken && !this.closed) {
+                this.idle.offer(connection);
+                return;
+            } // else the connection is closed doNothing();
+            this.opened.remove(connection);
+        }
+        connection.closeQuietly();
+    }
+
+    /**
+     * Closes the idle connections and every connection given back later.
+     */
+    public void close() {
+        var connections = new ArrayList<PooledConnection>();
+        synchronized(this) {
+            this.closed = true;
+            this.idle.drainTo(connections);
+            this.opened.removeAll(connections);
+        }
+        connections.forEach(PooledConnection::closeQuietly);
+    }
+}
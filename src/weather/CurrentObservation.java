@@ -1,5 +1,10 @@
 package weather;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.logging.Level;
@@ -52,10 +57,22 @@ public final class CurrentObservation {
      */
     private String pressure;
 
+    /**
+     * Represents the period after which the feed suggests to pick up
+     * a new weather update.
+     */
+    private Duration pickupPeriod;
+
+    /**
+     * Represents the age of this weather update if it is served stale
+     * while a newer one is fetched, or null if it is current.
+     */
+    private Duration staleAge;
+
     /**
      * It is used to access the data to initialize a weather update.
      */
-    private static final CurrentObservationDAO DAO = new CurrentObservationDAOWebImpl();
+    private static final CurrentObservationDAO DAO = CachedCurrentObservationDAO.getInstance();
 
     /**
      * Represents a Logger retrieved by the Manager class.
@@ -122,6 +139,36 @@ public final class CurrentObservation {
          */
         private String pressure = "";
 
+        /**
+         * Represents the period after which the feed suggests to pick up
+         * a new weather update.
+         */
+        private Duration pickupPeriod = Duration.ZERO;
+
+        /**
+         * Represents the age of the weather update if it is stale.
+         */
+        private Duration staleAge;
+
+        /**
+         * Constructs a Builder holding all values of the given weather
+         * update.
+         *
+         * @param observation the given weather update.
+         */
+        public Builder(CurrentObservation observation) {
+            this(observation.location, observation.stationId);
+            this.observationTime = observation.observationTime;
+            this.observationTimeRfc822 = observation.observationTimeRfc822;
+            this.temperature = observation.temperature;
+            this.dewpoint = observation.dewpoint;
+            this.humidity = observation.humidity;
+            this.wind = observation.wind;
+            this.pressure = observation.pressure;
+            this.pickupPeriod = observation.pickupPeriod;
+            this.staleAge = observation.staleAge;
+        }
+
         /**
          * Constructs a Builder with a given location and a given
          * station ID. The location and station ID cannot be null.
@@ -274,6 +321,32 @@ public final class CurrentObservation {
             return this;
         }
 
+        /**
+         * Sets the suggested pickup period with the given period. If it
+         * is not set, it stays zero.
+         *
+         * @param pickupPeriod the given period.
+         * @return a Builder with its pickup period set.
+         */
+        public Builder pickupPeriod(Duration pickupPeriod) {
+            Objects.requireNonNull(pickupPeriod);
+            this.pickupPeriod = pickupPeriod;
+            return this;
+        }
+
+        /**
+         * Marks the weather update as stale with the given age. If it is
+         * not set, the weather update is current.
+         *
+         * @param staleAge the age of the weather update.
+         * @return a Builder with its stale age set.
+         */
+        public Builder staleAge(Duration staleAge) {
+            Objects.requireNonNull(staleAge);
+            this.staleAge = staleAge;
+            return this;
+        }
+
         /**
          * Builds a Weather update with this Build.
          *
@@ -299,6 +372,8 @@ public final class CurrentObservation {
         this.humidity = builder.humidity;
         this.wind = builder.wind;
         this.pressure = builder.pressure;
+        this.pickupPeriod = builder.pickupPeriod;
+        this.staleAge = builder.staleAge;
     }
 
     /**
@@ -354,6 +429,24 @@ public final class CurrentObservation {
         return this.observationTimeRfc822;
     }
 
+    /**
+     * Gets the instant of the observation parsed from its RFC-822 form.
+     *
+     * @return the instant of the observation, or an empty Optional if
+     * the RFC-822 form is missing or invalid.
+     */
+    public Optional<Instant> getObservationInstant() {
+        if(this.observationTimeRfc822 == null || this.observationTimeRfc822.isBlank()) {
+            return Optional.empty();
+        } // else there is a time to parse doNothing();
+        try {
+            return Optional.of(ZonedDateTime.parse(this.observationTimeRfc822.trim(),
+                    DateTimeFormatter.RFC_1123_DATE_TIME).toInstant());
+        } catch (DateTimeParseException ex) {
+            return Optional.empty();
+        }
+    }
+
     /**
      * Gets the temperature in the weather update.
      *
@@ -399,6 +492,66 @@ public final class CurrentObservation {
         return this.pressure;
     }
 
+    /**
+     * Gets the period after which the feed suggests to pick up a new
+     * weather update.
+     *
+     * @return the suggested pickup period, zero if unknown.
+     */
+    public Duration getPickupPeriod() {
+        return this.pickupPeriod;
+    }
+
+    /**
+     * Tells whether this weather update is served stale while a newer
+     * one is fetched.
+     *
+     * @return true if this weather update is stale.
+     */
+    public boolean isStale() {
+        return this.staleAge != null;
+    }
+
+    /**
+     * Gets the age of this weather update if it is stale.
+     *
+     * @return the age, or an empty Optional if it is current.
+     */
+    public Optional<Duration> getStaleAge() {
+        return Optional.ofNullable(this.staleAge);
+    }
+
+    /**
+     * Gets a copy of this weather update marked as stale with the
+     * given age.
+     *
+     * @param age the given age.
+     *
+     * @return a stale copy of this weather update.
+     */
+    public CurrentObservation asStale(Duration age) {
+        return new Builder(this).staleAge(age).build();
+    }
+
+    /**
+     * Estimates the number of bytes retained by this weather update.
+     *
+     * @return the estimated number of bytes.
+     */
+    public long estimateSize() {
+        return WeightedCache.sizeOfObject(11)
+                + WeightedCache.sizeOf(this.location)
+                + WeightedCache.sizeOf(this.stationId)
+                + WeightedCache.sizeOf(this.observationTime)
+                + WeightedCache.sizeOf(this.observationTimeRfc822)
+                + WeightedCache.sizeOf(this.temperature)
+                + WeightedCache.sizeOf(this.dewpoint)
+                + WeightedCache.sizeOf(this.humidity)
+                + WeightedCache.sizeOf(this.wind)
+                + WeightedCache.sizeOf(this.pressure)
+                + 2 * WeightedCache.sizeOfObject(3);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -439,6 +592,12 @@ public final class CurrentObservation {
                     "MSL Pressure: %s%s",
                     this.getPressure(),
                     System.lineSeparator()));
+            if(this.isStale()) {
+                builder.append(String.format(
+                        "(Updating, shown data is %d minutes old)%s",
+                        this.staleAge.toMinutes(),
+                        System.lineSeparator()));
+            } // else the update is current doNothing();
         } // else there is nothing to display doNothing();
         return builder.toString();
     }
@@ -1,6 +1,8 @@
 package weather;
 
+import java.util.Collection;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 public interface CurrentObservationDAO {
     /**
@@ -15,4 +17,61 @@ public interface CurrentObservationDAO {
      * data.
      */
     Optional<CurrentObservation> get(String stationId) throws DAOException;
+
+    /**
+     * Gets a Weather update that matches the given station ID
+     * without blocking the caller. By default the blocking get
+     * runs on the shared LoadExecutor.
+     *
+     * @param stationId the given ID of a station.
+     *
+     * @return a future holding the Weather update; it fails with
+     * a DAOException if errors occur while accessing the data.
+     */
+    default CompletableFuture<Optional<CurrentObservation>> getAsync(String stationId) {
+        return LoadExecutor.supply(() -> this.get(stationId));
+    }
+
+    /**
+     * Fetches a Weather update that matches the given station ID
+     * without blocking the caller. Unlike getAsync, a failure to
+     * reach the data fails the future instead of completing it with
+     * an empty Optional, so a missing observation can be told from
+     * an unreachable source. By default it is getAsync.
+     *
+     * @param stationId the given ID of a station.
+     *
+     * @return a future holding the Weather update; it fails with
+     * a DAOException if errors occur while accessing the data.
+     */
+    default CompletableFuture<Optional<CurrentObservation>> fetchAsync(String stationId) {
+        return this.getAsync(stationId);
+    }
+
+    /**
+     * Gets the Weather updates of all given station IDs, fetching
+     * at most the given number of stations at the same time. The
+     * results are returned as soon as each station finishes.
+     *
+     * @param stationIds the given IDs of the stations.
+     *
+     * @param parallelism the maximum number of concurrent fetches.
+     *
+     * @return a loader returning one result per station.
+     */
+    default BulkObservationLoader getAll(Collection<String> stationIds, int parallelism) {
+        return new BulkObservationLoader(this, stationIds, parallelism);
+    }
+
+    /**
+     * Gets the Weather updates of all given station IDs with the
+     * default parallelism.
+     *
+     * @param stationIds the given IDs of the stations.
+     *
+     * @return a loader returning one result per station.
+     */
+    default BulkObservationLoader getAll(Collection<String> stationIds) {
+        return this.getAll(stationIds, BulkObservationLoader.DEFAULT_PARALLELISM);
+    }
 }
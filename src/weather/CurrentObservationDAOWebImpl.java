@@ -1,12 +1,15 @@
 package weather;
 
-import com.fasterxml.jackson.dataformat.xml.XmlMapper;
-
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.time.Duration;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -14,15 +17,103 @@ public class CurrentObservationDAOWebImpl
 implements CurrentObservationDAO {
 
     /**
-     * Represents the URL from which the weather data can be accessed.
+     * Represents the path, relative to the base URL of the WebClient,
+     * from which the weather data can be accessed.
      */
-    private static final String WEATHER_URL = "https://w1.weather.gov/xml/current_obs/%s.xml";
+    private static final String WEATHER_PATH = "%s.xml";
 
     /**
      * Represents a Logger retrieved by the Manager class.
      */
     private static final Logger LOG = Manager.getLogger("CurrentObservationDAOWebImpl");
 
+    /**
+     * Parses a current observation document.
+     */
+    private static final ConditionalFetcher.Parser<CurrentObservationTO> PARSER
+            = in -> XmlReaders.forType(CurrentObservationTO.class).readValue(in);
+
+    /**
+     * Gives the suggested pickup period of a current observation.
+     */
+    private static final Function<CurrentObservationTO, Duration> PICKUP_PERIOD
+            = to -> ConditionalFetcher.pickupPeriod(to.suggestedPickupPeriod);
+
+    /**
+     * Decides when slow current observation requests are hedged.
+     */
+    private static final HedgingPolicy HEDGING = HedgingPolicy.fromSystemProperties();
+
+    /**
+     * Coalesces concurrent requests for the same station, so a station
+     * is requested from the server once however many callers ask.
+     */
+    private static final SingleFlight<String, Optional<CurrentObservation>> REQUESTS = new SingleFlight<>();
+
+    /**
+     * Remembers the stations whose last request failed.
+     */
+    private static final NegativeCache FAILURES = NegativeCache.fromSystemProperties();
+
+    /**
+     * Gets the cache of stations whose last request failed, which also
+     * holds the number of requests it rejected.
+     *
+     * @return the cache of failed stations.
+     */
+    public static NegativeCache getNegativeCache() {
+        return FAILURES;
+    }
+
+    /**
+     * Gets the number of current observation requests sent to the server
+     * asynchronously.
+     *
+     * @return the number of issued requests.
+     */
+    public static long getIssuedRequestCount() {
+        return REQUESTS.getIssuedCount();
+    }
+
+    /**
+     * Gets the number of asynchronous current observation requests that
+     * joined a request in flight for the same station instead of being
+     * sent to the server.
+     *
+     * @return the number of coalesced requests.
+     */
+    public static long getCoalescedRequestCount() {
+        return REQUESTS.getCoalescedCount();
+    }
+
+    /**
+     * Tells whether a request for the given station can be skipped,
+     * because the station is not in the station index or its last
+     * request failed recently.
+     *
+     * @param stationId the given station ID.
+     *
+     * @return true if the station certainly has no current observation.
+     */
+    private boolean isRejected(String stationId) {
+        Objects.requireNonNull(stationId);
+        if(!StationIndex.isKnown(stationId)) {
+            LOG.log(Level.FINE, String.format("Rejected unknown station %s.", stationId));
+            return true;
+        } // else the station may exist doNothing();
+        return FAILURES.rejects(stationId);
+    }
+
+    /**
+     * Gets the hedging policy of the current observation requests, which
+     * also holds their hedging metrics.
+     *
+     * @return the hedging policy.
+     */
+    public static HedgingPolicy getHedgingPolicy() {
+        return HEDGING;
+    }
+
     /**
      * Gets a valid URL to access weather data of the
      * given station ID.
@@ -34,44 +125,133 @@ implements CurrentObservationDAO {
     private URL buildURL(String stationId) {
         Objects.requireNonNull(stationId);
         try {
-            return new URL(String.format(WEATHER_URL, stationId));
-        } catch(MalformedURLException ex) {
+            return new URL(WebClient.url(String.format(WEATHER_PATH, stationId)));
+        } catch(MalformedURLException | IllegalArgumentException ex) {
             LOG.log(Level.SEVERE, ex.getMessage(), ex);
             throw new IllegalArgumentException("Invalid station ID.");
         }
     }
 
+    /**
+     * Builds a Weather update of the given station from the given
+     * transfer object.
+     *
+     * @param stationId the given station ID.
+     *
+     * @param currentObservation the given transfer object.
+     *
+     * @return a Weather update.
+     */
+    private CurrentObservation toCurrentObservation(String stationId, CurrentObservationTO currentObservation) {
+        var location = currentObservation.location;
+        var observationTime = currentObservation.observationTime;
+        var observationTimeRfc822 = currentObservation.observationTimeRfc822;
+        var temperature = currentObservation.temperatureString;
+        var dewpoint = currentObservation.dewpointString;
+        var humidity = currentObservation.relativeHumidity;
+        var wind = currentObservation.windString;
+        var pressure = currentObservation.pressureString;
+        return new CurrentObservation.Builder(location, stationId)
+                .observationTime(observationTime)
+                .observationTimeRfc822(observationTimeRfc822)
+                .temperature(temperature)
+                .dewpoint(dewpoint)
+                .humidity(humidity)
+                .wind(wind)
+                .pressure(pressure)
+                .pickupPeriod(PICKUP_PERIOD.apply(currentObservation))
+                .build();
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public Optional<CurrentObservation> get(String stationId) throws DAOException {
+        if(this.isRejected(stationId)) {
+            return Optional.empty();
+        } else if(HEDGING.isEnabled()) {
+            return this.getAsync(stationId).join();
+        } // else the request is sent on this thread doNothing();
 
         try {
-            XmlMapper mapper = new XmlMapper();
             var url = buildURL(stationId);
-            var currentObservation = mapper.readValue(url, CurrentObservationTO.class);
-            var location = currentObservation.location;
-            var observationTime = currentObservation.observationTime;
-            var observationTimeRfc822 = currentObservation.observationTimeRfc822;
-            var temperature = currentObservation.temperatureString;
-            var dewpoint = currentObservation.dewpointString;
-            var humidity = currentObservation.relativeHumidity;
-            var wind = currentObservation.windString;
-            var pressure = currentObservation.pressureString;
-            return Optional.of(new CurrentObservation.Builder(location, stationId)
-                    .observationTime(observationTime)
-                    .observationTimeRfc822(observationTimeRfc822)
-                    .temperature(temperature)
-                    .dewpoint(dewpoint)
-                    .humidity(humidity)
-                    .wind(wind)
-                    .pressure(pressure)
-                    .build());
-
+            var currentObservation = ConditionalFetcher.fetch(url.toString(), null, PARSER, PICKUP_PERIOD);
+            return Optional.of(this.toCurrentObservation(stationId, currentObservation));
         }catch (IOException ex) {
             LOG.log(Level.SEVERE, ex.getMessage(), ex);
+            FAILURES.recordFailure(stationId, ex);
             return Optional.empty();
         }
     }
+
+    /**
+     * {@inheritDoc}
+     *
+     * A failure to reach the server gives an empty Optional.
+     */
+    @Override
+    public CompletableFuture<Optional<CurrentObservation>> getAsync(String stationId) {
+        var fetch = this.fetchAsync(stationId);
+        return Futures.propagateCancel(fetch, fetch.exceptionally(ex -> {
+            var cause = Futures.unwrap(ex);
+            if(cause instanceof DAOException || cause instanceof CancellationException) {
+                return Optional.empty();
+            } // else the request is invalid doNothing();
+            throw ex instanceof CompletionException ? (CompletionException) ex : new CompletionException(cause);
+        }));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * An unknown station gives an empty Optional; a station that failed
+     * recently fails without a request. Concurrent requests for the same
+     * station share one request to the server.
+     */
+    @Override
+    public CompletableFuture<Optional<CurrentObservation>> fetchAsync(String stationId) {
+        Objects.requireNonNull(stationId);
+        if(!StationIndex.isKnown(stationId)) {
+            LOG.log(Level.FINE, String.format("Rejected unknown station %s.", stationId));
+            return CompletableFuture.completedFuture(Optional.empty());
+        } else if(FAILURES.rejects(stationId)) {
+            return CompletableFuture.failedFuture(
+                    new DAOException(String.format("Station %s failed recently.", stationId)));
+        } // else the station has to be requested doNothing();
+        String url;
+        try {
+            url = buildURL(stationId).toString();
+        } catch (IllegalArgumentException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+        return REQUESTS.execute(stationId, id -> this.request(id, url));
+    }
+
+    /**
+     * Requests the current observation of the given station from the
+     * given URL, hedging the request if it is slow.
+     *
+     * @param stationId the given station ID.
+     *
+     * @param url the URL of the current observation of the station.
+     *
+     * @return a future holding the observation; it fails with a
+     * DAOException if the server cannot be reached.
+     */
+    private CompletableFuture<Optional<CurrentObservation>> request(String stationId, String url) {
+        var fetch = HEDGING.execute(() -> ConditionalFetcher.fetchAsync(url, null, PARSER, PICKUP_PERIOD));
+        return Futures.propagateCancel(fetch, fetch.handle((currentObservation, ex) -> {
+            if(ex == null) {
+                return Optional.of(this.toCurrentObservation(stationId, currentObservation));
+            } // else the request failed or was abandoned doNothing();
+            var cause = Futures.unwrap(ex);
+            if(cause instanceof CancellationException) {
+                throw (CancellationException) cause;
+            } // else the request failed doNothing();
+            LOG.log(Level.SEVERE, cause.getMessage(), cause);
+            FAILURES.recordFailure(stationId, cause);
+            throw new CompletionException(new DAOException(cause.getMessage()));
+        }));
+    }
 }
@@ -0,0 +1,107 @@
+package weather;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * Holds helpers for composing CompletableFutures.
+ */
+public final class Futures {
+
+    /**
+     * Futures only has static members.
+     */
+    private Futures() {
+    }
+
+    /**
+     * Makes cancelling the given dependent future also cancel the given
+     * source future, so a caller cancelling a composed request stops the
+     * work it depends on.
+     *
+     * @param source the future the dependent is derived from.
+     *
+     * @param dependent the future handed to the caller.
+     *
+     * @param <T> the type of the dependent result.
+     *
+     * @return the dependent future.
+     */
+    public static <T> CompletableFuture<T> propagateCancel(CompletableFuture<?> source, CompletableFuture<T> dependent) {
+        Objects.requireNonNull(source);
+        Objects.requireNonNull(dependent);
+        dependent.whenComplete((result, ex) -> {
+            if(dependent.isCancelled()) {
+                source.cancel(true);
+            } // else the dependent finished normally doNothing();
+        });
+        return dependent;
+    }
+
+    /**
+     * Composes the given source future with the given function like
+     * thenCompose, but cancelling the returned future also cancels the
+     * source and the future the function returned, so a caller giving up
+     * stops both steps.
+     *
+     * @param source the first step.
+     *
+     * @param next starts the second step with the result of the first.
+     *
+     * @param <T> the type of the result of the first step.
+     *
+     * @param <U> the type of the result of the second step.
+     *
+     * @return a future holding the result of the second step.
+     */
+    public static <T, U> CompletableFuture<U> compose(CompletableFuture<T> source,
+                                                      Function<? super T, ? extends CompletableFuture<U>> next) {
+        Objects.requireNonNull(source);
+        Objects.requireNonNull(next);
+        var result = new CompletableFuture<U>();
+        source.whenComplete((value, ex) -> {
+            if(ex != null) {
+                result.completeExceptionally(ex);
+                return;
+            } else if(result.isDone()) {
+                return;
+            } // else the second step is still wanted doNothing();
+            CompletableFuture<U> step;
+            try {
+                step = next.apply(value);
+            } catch (RuntimeException stepEx) {
+                result.completeExceptionally(stepEx);
+                return;
+            }
+            step.whenComplete((stepValue, stepEx) -> {
+                if(stepEx != null) {
+                    result.completeExceptionally(stepEx);
+                } else {
+                    result.complete(stepValue);
+                }
+            });
+            propagateCancel(step, result);
+        });
+        return propagateCancel(source, result);
+    }
+
+    /**
+     * Gets the exception that caused the given exception, removing the
+     * wrappers added by CompletableFuture.
+     *
+     * @param ex the given exception.
+     *
+     * @return the underlying exception.
+     */
+    public static Throwable unwrap(Throwable ex) {
+        var cause = ex;
+        while((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
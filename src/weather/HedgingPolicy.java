@@ -0,0 +1,342 @@
+package weather;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Sends hedged requests to cut the tail latency of slow fetches. If a
+ * request has not answered within a percentile of the recently observed
+ * latencies, an identical second request is sent; the first successful
+ * response wins and the other request is cancelled. The number of hedges
+ * is capped by a budget relative to the number of requests.
+ */
+public final class HedgingPolicy {
+
+    /**
+     * Represents the name of the system property that enables hedging.
+     */
+    public static final String ENABLED_PROPERTY = "weather.hedge.enabled";
+
+    /**
+     * Represents the name of the system property with the latency
+     * percentile, between 0 and 100, after which a hedge is sent.
+     */
+    public static final String PERCENTILE_PROPERTY = "weather.hedge.percentile";
+
+    /**
+     * Represents the name of the system property with the maximum share of
+     * requests, in percent, that may be hedged.
+     */
+    public static final String BUDGET_PROPERTY = "weather.hedge.budgetPercent";
+
+    /**
+     * Represents the name of the system property with the delay in
+     * milliseconds used until enough latencies are recorded.
+     */
+    public static final String DEFAULT_DELAY_PROPERTY = "weather.hedge.defaultDelayMillis";
+
+    /**
+     * Represents the number of recent latencies kept.
+     */
+    private static final int WINDOW = 256;
+
+    /**
+     * Represents the number of latencies needed before the percentile is used.
+     */
+    private static final int MIN_SAMPLES = 20;
+
+    /**
+     * Represents the maximum number of hedges that can be saved up.
+     */
+    private static final double MAX_TOKENS = 10.0;
+
+    /**
+     * Represents the scheduler starting the hedges.
+     */
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "hedging-policy");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Tells whether hedging is enabled.
+     */
+    private final boolean enabled;
+
+    /**
+     * Represents the latency percentile after which a hedge is sent.
+     */
+    private final double percentile;
+
+    /**
+     * Represents the share of requests that may be hedged.
+     */
+    private final double budget;
+
+    /**
+     * Represents the delay in nanoseconds used until enough latencies are
+     * recorded.
+     */
+    private final long defaultDelay;
+
+    /**
+     * Represents the recent latencies in nanoseconds, used as a ring.
+     */
+    private final long[] latencies = new long[WINDOW];
+
+    /**
+     * Represents the number of latencies recorded so far.
+     */
+    private long recorded;
+
+    /**
+     * Represents the number of hedges that may be sent now.
+     */
+    private double tokens = MAX_TOKENS;
+
+    /**
+     * Represents the number of requests.
+     */
+    private final AtomicLong requests = new AtomicLong();
+
+    /**
+     * Represents the number of hedges sent.
+     */
+    private final AtomicLong hedgesFired = new AtomicLong();
+
+    /**
+     * Represents the number of hedges that answered first.
+     */
+    private final AtomicLong hedgesWon = new AtomicLong();
+
+    /**
+     * Constructs a HedgingPolicy.
+     *
+     * @param enabled whether hedging is enabled.
+     *
+     * @param percentile the latency percentile, between 0 and 100, after
+     * which a hedge is sent.
+     *
+     * @param budgetPercent the maximum share of requests, in percent, that
+     * may be hedged.
+     *
+     * @param defaultDelayMillis the delay used until enough latencies are
+     * recorded.
+     *
+     * @throws IllegalArgumentException if a value is out of range.
+     */
+    public HedgingPolicy(boolean enabled, double percentile, double budgetPercent, long defaultDelayMillis) {
+        if(percentile <= 0 || percentile > 100 || budgetPercent < 0 || budgetPercent > 100 || defaultDelayMillis < 0) {
+            throw new IllegalArgumentException("Invalid hedging policy.");
+        } // else the values are valid doNothing();
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.budget = budgetPercent / 100.0;
+        this.defaultDelay = TimeUnit.MILLISECONDS.toNanos(defaultDelayMillis);
+    }
+
+    /**
+     * Creates a HedgingPolicy from the system properties.
+     *
+     * @return a HedgingPolicy.
+     */
+    public static HedgingPolicy fromSystemProperties() {
+        return new HedgingPolicy(
+                Boolean.getBoolean(ENABLED_PROPERTY),
+                Double.parseDouble(System.getProperty(PERCENTILE_PROPERTY, "95")),
+                Double.parseDouble(System.getProperty(BUDGET_PROPERTY, "5")),
+                Long.getLong(DEFAULT_DELAY_PROPERTY, 1000L));
+    }
+
+    /**
+     * Tells whether hedging is enabled.
+     *
+     * @return true if hedging is enabled.
+     */
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * Runs a request supplied by the given supplier, hedging it if it is
+     * slow and the budget allows. Cancelling the returned future cancels
+     * every request still running.
+     *
+     * @param request starts an attempt of the request.
+     *
+     * @param <T> the type of the result.
+     *
+     * @return a future holding the first successful result, or the last
+     * failure if every attempt failed.
+     */
+    public <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> request) {
+        Objects.requireNonNull(request);
+        this.requests.incrementAndGet();
+        synchronized(this) {
+            this.tokens = Math.min(MAX_TOKENS, this.tokens + this.budget);
+        }
+        if(!this.enabled) {
+            return request.get();
+        } // else the request may be hedged doNothing();
+
+        var result = new CompletableFuture<T>();
+        List<CompletableFuture<T>> attempts = new CopyOnWriteArrayList<>();
+        var outstanding = new AtomicInteger(1);
+        this.attempt(request, result, attempts, outstanding, false);
+        if(result.isDone()) {
+            return result;
+        } // else the request went to the network doNothing();
+
+        var hedge = SCHEDULER.schedule(() -> {
+            if(!result.isDone() && this.tryAcquire()) {
+                outstanding.incrementAndGet();
+                this.hedgesFired.incrementAndGet();
+                this.attempt(request, result, attempts, outstanding, true);
+            } // else the request answered or the budget is spent doNothing();
+        }, this.hedgeDelay(), TimeUnit.NANOSECONDS);
+
+        result.whenComplete((value, ex) -> {
+            hedge.cancel(false);
+            attempts.forEach(attempt -> attempt.cancel(true));
+        });
+        return result;
+    }
+
+    /**
+     * Starts one attempt of the request and completes the given result
+     * with its outcome if it is the first to succeed or the last to fail.
+     * Only attempts that did not complete at once, and therefore went to
+     * the network, have their latency recorded.
+     *
+     * @param request starts an attempt of the request.
+     *
+     * @param result the result of the hedged request.
+     *
+     * @param attempts the attempts started so far.
+     *
+     * @param outstanding the number of attempts still running.
+     *
+     * @param isHedge whether the attempt is a hedge.
+     *
+     * @param <T> the type of the result.
+     */
+    private <T> void attempt(Supplier<CompletableFuture<T>> request, CompletableFuture<T> result,
+                             List<CompletableFuture<T>> attempts, AtomicInteger outstanding, boolean isHedge) {
+        var start = System.nanoTime();
+        CompletableFuture<T> attempt;
+        try {
+            attempt = request.get();
+        } catch (RuntimeException ex) {
+            attempt = CompletableFuture.failedFuture(ex);
+        }
+        attempts.add(attempt);
+        var answeredLocally = attempt.isDone();
+        attempt.whenComplete((value, ex) -> {
+            if(ex == null) {
+                if(!answeredLocally) {
+                    this.record(System.nanoTime() - start);
+                } // else the attempt was served from a cache, not the network doNothing();
+                if(result.complete(value) && isHedge) {
+                    this.hedgesWon.incrementAndGet();
+                } // else the other attempt won or this is the primary doNothing();
+            } else if(outstanding.decrementAndGet() == 0) {
+                result.completeExceptionally(ex);
+            } // else another attempt is still running doNothing();
+        });
+        if(result.isDone()) {
+            attempt.cancel(true);
+        } // else the attempt is still wanted doNothing();
+    }
+
+    /**
+     * Takes one hedge from the budget.
+     *
+     * @return true if a hedge may be sent.
+     */
+    private synchronized boolean tryAcquire() {
+        if(this.tokens >= 1.0) {
+            this.tokens -= 1.0;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Records the latency of a successful attempt.
+     *
+     * @param nanos the latency in nanoseconds.
+     */
+    private synchronized void record(long nanos) {
+        this.latencies[(int) (this.recorded % WINDOW)] = nanos;
+        this.recorded++;
+    }
+
+    /**
+     * Gets the delay after which a hedge is sent: the configured
+     * percentile of the recent latencies, or the default delay if too few
+     * latencies are recorded.
+     *
+     * @return the delay in nanoseconds.
+     */
+    private synchronized long hedgeDelay() {
+        if(this.recorded < MIN_SAMPLES) {
+            return this.defaultDelay;
+        } // else there are enough samples doNothing();
+        var samples = Arrays.copyOf(this.latencies, (int) Math.min(this.recorded, WINDOW));
+        Arrays.sort(samples);
+        var index = (int) Math.ceil(this.percentile / 100.0 * samples.length) - 1;
+        return samples[Math.max(0, Math.min(index, samples.length - 1))];
+    }
+
+    /**
+     * Gets the number of requests.
+     *
+     * @return the number of requests.
+     */
+    public long getRequestCount() {
+        return this.requests.get();
+    }
+
+    /**
+     * Gets the number of hedges sent.
+     *
+     * @return the number of hedges sent.
+     */
+    public long getHedgesFired() {
+        return this.hedgesFired.get();
+    }
+
+    /**
+     * Gets the number of hedges that answered before the first request.
+     *
+     * @return the number of hedges won.
+     */
+    public long getHedgesWon() {
+        return this.hedgesWon.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("HedgingPolicy{");
+        sb.append("enabled=").append(enabled);
+        sb.append(", requests=").append(requests);
+        sb.append(", hedgesFired=").append(hedgesFired);
+        sb.append(", hedgesWon=").append(hedgesWon);
+        sb.append('}');
+        return sb.toString();
+    }
+}
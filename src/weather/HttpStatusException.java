@@ -0,0 +1,45 @@
+package weather;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+
+/**
+ * Signals that a server answered a request with an unexpected status.
+ */
+public final class HttpStatusException extends IOException {
+
+    /**
+     * Represents the status code of the response.
+     */
+    private final int status;
+
+    /**
+     * Constructs an HttpStatusException for the given status and URL.
+     *
+     * @param status the status code of the response.
+     *
+     * @param url the URL of the request.
+     */
+    public HttpStatusException(int status, String url) {
+        super(String.format("Unexpected status %d for %s", status, url));
+        this.status = status;
+    }
+
+    /**
+     * Gets the status code of the response.
+     *
+     * @return the status code.
+     */
+    public int getStatus() {
+        return this.status;
+    }
+
+    /**
+     * Tells whether the requested document does not exist on the server.
+     *
+     * @return true if the status is Not Found or Gone.
+     */
+    public boolean isNotFound() {
+        return this.status == HttpURLConnection.HTTP_NOT_FOUND || this.status == HttpURLConnection.HTTP_GONE;
+    }
+}
@@ -0,0 +1,345 @@
+package weather;
+
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs the blocking load tasks of the application, such as the default
+ * asynchronous DAO methods and the reads of the local files, on one
+ * shared and bounded executor. The executor is configured with system
+ * properties and is created on first use.
+ */
+public final class LoadExecutor {
+
+    /**
+     * Represents the name of the system property with the number of threads.
+     */
+    public static final String THREADS_PROPERTY = "weather.executor.threads";
+
+    /**
+     * Represents the name of the system property with the maximum number of
+     * tasks that are queued or running at the same time.
+     */
+    public static final String MAX_PENDING_PROPERTY = "weather.executor.maxPending";
+
+    /**
+     * Represents the number of platform threads of the executor.
+     */
+    private static final int THREADS
+            = Integer.getInteger(THREADS_PROPERTY, Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+
+    /**
+     * Represents the maximum number of tasks that are queued or running.
+     */
+    private static final int MAX_PENDING = Integer.getInteger(MAX_PENDING_PROPERTY, 1024);
+
+    /**
+     * Represents the shared executor, or null if it is not created yet.
+     */
+    private static ThreadPoolExecutor executor;
+
+    /**
+     * Represents the number of tasks waiting to run.
+     */
+    private static final AtomicInteger QUEUED = new AtomicInteger();
+
+    /**
+     * Represents the number of tasks running.
+     */
+    private static final AtomicInteger ACTIVE = new AtomicInteger();
+
+    /**
+     * Represents the number of tasks that finished.
+     */
+    private static final AtomicLong COMPLETED = new AtomicLong();
+
+    /**
+     * Represents the number of tasks rejected because the executor was full.
+     */
+    private static final AtomicLong REJECTED = new AtomicLong();
+
+    /**
+     * Represents a Logger retrieved by the Manager class.
+     */
+    private static final Logger LOG = Manager.getLogger("LoadExecutor");
+
+    /**
+     * Represents a task of the shared executor. It leaves the queue count
+     * when it starts running or when it completes without running, as a
+     * task cancelled while queued never runs.
+     *
+     * @param <T> the type of the result of the task.
+     */
+    private static final class CountedTask<T> extends FutureTask<T> {
+        /**
+         * Tells whether the task has left the queue count.
+         */
+        private final AtomicBoolean dequeued = new AtomicBoolean();
+
+        /**
+         * Constructs a CountedTask running the given task.
+         *
+         * @param task the given task.
+         */
+        private CountedTask(Callable<T> task) {
+            super(() -> {
+                ACTIVE.incrementAndGet();
+                try {
+                    return task.call();
+                } finally {
+                    ACTIVE.decrementAndGet();
+                    COMPLETED.incrementAndGet();
+                }
+            });
+        }
+
+        /**
+         * Removes the task from the queue count once.
+         */
+        private void leaveQueue() {
+            if(this.dequeued.compareAndSet(false, true)) {
+                QUEUED.decrementAndGet();
+            } // else the task has left the queue count doNothing();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void run() {
+            this.leaveQueue();
+            super.run();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected void done() {
+            this.leaveQueue();
+        }
+    }
+
+    /**
+     * LoadExecutor only has static members.
+     */
+    private LoadExecutor() {
+    }
+
+    /**
+     * Gets the shared executor, creating it if necessary.
+     *
+     * @return the shared executor.
+     *
+     * @throws RejectedExecutionException if the executor has been shut down.
+     */
+    private static synchronized ThreadPoolExecutor getExecutor() {
+        if(executor == null) {
+            executor = createExecutor();
+        } else if(executor.isShutdown()) {
+            throw new RejectedExecutionException("The load executor has been shut down.");
+        } // else the executor is running doNothing();
+        return executor;
+    }
+
+    /**
+     * Creates the executor from the system properties.
+     *
+     * @return a new executor.
+     */
+    private static ThreadPoolExecutor createExecutor() {
+        var threadNumber = new AtomicInteger();
+        var pool = new ThreadPoolExecutor(THREADS, THREADS, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(MAX_PENDING),
+                runnable -> {
+                    var thread = new Thread(runnable, "load-executor-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Submits the given task to the shared executor.
+     *
+     * @param task the given task.
+     *
+     * @param <T> the type of the result of the task.
+     *
+     * @return a Future holding the result of the task.
+     *
+     * @throws RejectedExecutionException if too many tasks are pending or
+     * the executor has been shut down.
+     */
+    public static <T> Future<T> submit(Callable<T> task) {
+        Objects.requireNonNull(task);
+        if(QUEUED.incrementAndGet() + ACTIVE.get() > MAX_PENDING) {
+            QUEUED.decrementAndGet();
+            REJECTED.incrementAndGet();
+            throw new RejectedExecutionException("Too many pending load tasks.");
+        } // else there is room for the task doNothing();
+        try {
+            var future = new CountedTask<>(task);
+            execute(future);
+            return future;
+        } catch (RejectedExecutionException ex) {
+            QUEUED.decrementAndGet();
+            REJECTED.incrementAndGet();
+            throw ex;
+        }
+    }
+
+    /**
+     * Hands the given task to the shared executor. Tasks cancelled while
+     * queued stay in the queue of the pool until a thread takes them, so
+     * they are purged before giving up on a full queue.
+     *
+     * @param task the given task.
+     *
+     * @throws RejectedExecutionException if the queue is full of live
+     * tasks or the executor has been shut down.
+     */
+    private static void execute(CountedTask<?> task) {
+        var current = getExecutor();
+        try {
+            current.execute(task);
+        } catch (RejectedExecutionException ex) {
+            if(current.isShutdown()) {
+                throw ex;
+            } // else cancelled tasks may fill the queue doNothing();
+            current.purge();
+            current.execute(task);
+        }
+    }
+
+    /**
+     * Submits the given task to the shared executor.
+     *
+     * @param task the given task.
+     *
+     * @return a Future completing when the task finishes.
+     *
+     * @throws RejectedExecutionException if too many tasks are pending or
+     * the executor has been shut down.
+     */
+    public static Future<?> submit(Runnable task) {
+        Objects.requireNonNull(task);
+        return submit(Executors.callable(task));
+    }
+
+    /**
+     * Runs the given blocking task on the shared executor and exposes its
+     * result as a CompletableFuture. Cancelling the returned future
+     * interrupts the task.
+     *
+     * @param task the given task.
+     *
+     * @param <T> the type of the result of the task.
+     *
+     * @return a future holding the result of the task. Instead of being
+     * thrown, a RejectedExecutionException fails the future if too many
+     * tasks are pending or the executor has been shut down.
+     */
+    public static <T> CompletableFuture<T> supply(Callable<T> task) {
+        Objects.requireNonNull(task);
+        var result = new CompletableFuture<T>();
+        try {
+            var future = submit(() -> {
+                try {
+                    result.complete(task.call());
+                } catch (Exception ex) {
+                    result.completeExceptionally(ex);
+                }
+                return null;
+            });
+            result.whenComplete((value, ex) -> {
+                if(result.isCancelled()) {
+                    future.cancel(true);
+                } // else the task finished doNothing();
+            });
+        } catch (RejectedExecutionException ex) {
+            result.completeExceptionally(ex);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the number of tasks waiting to run.
+     *
+     * @return the queue depth.
+     */
+    public static int getQueueDepth() {
+        return QUEUED.get();
+    }
+
+    /**
+     * Gets the number of tasks running.
+     *
+     * @return the number of active tasks.
+     */
+    public static int getActiveCount() {
+        return ACTIVE.get();
+    }
+
+    /**
+     * Gets the number of tasks that finished.
+     *
+     * @return the number of completed tasks.
+     */
+    public static long getCompletedCount() {
+        return COMPLETED.get();
+    }
+
+    /**
+     * Gets the number of tasks rejected because the executor was full.
+     *
+     * @return the number of rejected tasks.
+     */
+    public static long getRejectedCount() {
+        return REJECTED.get();
+    }
+
+    /**
+     * Stops accepting tasks and waits up to the given time for the
+     * running tasks to finish. Tasks still running afterwards are
+     * interrupted. The wait is done outside the lock of the class, so
+     * tasks and other threads can still use the executor meanwhile.
+     *
+     * @param timeout the maximum time to wait.
+     *
+     * @param unit the unit of the timeout.
+     */
+    public static void shutdown(long timeout, TimeUnit unit) {
+        ThreadPoolExecutor current;
+        synchronized(LoadExecutor.class) {
+            if(executor == null) {
+                return;
+            } // else the executor has been created doNothing();
+            current = executor;
+            current.shutdown();
+        }
+        try {
+            if(!current.awaitTermination(timeout, unit)) {
+                LOG.log(Level.WARNING, "Load tasks did not finish in time, interrupting them.");
+                current.shutdownNow();
+            } // else all tasks finished doNothing();
+        } catch (InterruptedException ex) {
+            current.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
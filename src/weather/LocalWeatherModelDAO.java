@@ -0,0 +1,95 @@
+package weather;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Represents the weather data kept in the local files: besides what every
+ * WeatherModelDAO offers, current observations and their history are
+ * saved, and the saved stations can be listed and changed together.
+ */
+public interface LocalWeatherModelDAO
+extends WeatherModelDAO {
+    /**
+     * Saves the given current observation, replacing the one saved
+     * before for the same station. The observation is also added to the
+     * history of the station unless it is already there.
+     *
+     * @param observation a current observation.
+     *
+     * @throws DAOException if error occurs while connecting.
+     */
+    void saveCurrentObservation(CurrentObservation observation) throws DAOException;
+
+    /**
+     * Saves the given current observations, replacing the ones saved
+     * before for the same stations, and adds them to the history of their
+     * stations. By default they are saved one by one.
+     *
+     * @param observations the current observations.
+     *
+     * @throws DAOException if error occurs while connecting.
+     */
+    default void saveCurrentObservations(Collection<CurrentObservation> observations) throws DAOException {
+        for(var observation : observations) {
+            this.saveCurrentObservation(observation);
+        }
+    }
+
+    /**
+     * Retrieves the saved observations of the given station observed
+     * from the given instant, inclusive, to the given instant, exclusive.
+     *
+     * @param stationId a given station ID.
+     *
+     * @param from the start of the range, inclusive.
+     *
+     * @param to the end of the range, exclusive.
+     *
+     * @return the observations ordered by observation time.
+     *
+     * @throws DAOException if error occurs while connecting.
+     */
+    List<CurrentObservation> getObservationHistory(String stationId, Instant from, Instant to) throws DAOException;
+
+    /**
+     * Retrieves the latest saved observations of each of the given
+     * stations.
+     *
+     * @param stationIds the given station IDs.
+     *
+     * @param count the maximum number of observations of each station.
+     *
+     * @return the observations by station ID, latest first; stations
+     * without history are left out.
+     *
+     * @throws DAOException if error occurs while connecting.
+     */
+    Map<String, List<CurrentObservation>> getLatestObservations(Collection<String> stationIds, int count)
+            throws DAOException;
+
+    /**
+     * Retrieves every saved station.
+     *
+     * @return a list of stations.
+     *
+     * @throws DAOException if error occurs while connecting.
+     */
+    Optional<List<Station>> getAllStations() throws DAOException;
+
+    /**
+     * Saves the given stations, replacing the ones saved before with the
+     * same station IDs, and deletes the stations with the given IDs, in
+     * one transaction. Either all changes are applied or none is.
+     *
+     * @param stations the stations to save.
+     *
+     * @param removedStationIds the IDs of the stations to delete.
+     *
+     * @throws DAOException if error occurs while connecting.
+     */
+    void applyStationChanges(List<Station> stations, Collection<String> removedStationIds) throws DAOException;
+}
@@ -0,0 +1,165 @@
+package weather;
+
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the station IDs whose last request failed, so they are not
+ * requested again until a time to live passes. Stations the server does
+ * not know are remembered longer than stations that failed for another
+ * reason, such as a timeout.
+ */
+public final class NegativeCache {
+
+    /**
+     * Represents the name of the system property with the time, in
+     * seconds, a station unknown to the server is remembered.
+     */
+    public static final String NOT_FOUND_TTL_PROPERTY = "weather.negative.notFoundTtlSeconds";
+
+    /**
+     * Represents the name of the system property with the time, in
+     * seconds, a station whose request failed is remembered.
+     */
+    public static final String FAILURE_TTL_PROPERTY = "weather.negative.failureTtlSeconds";
+
+    /**
+     * Represents the number of remembered stations above which expired
+     * ones are purged.
+     */
+    private static final int PURGE_THRESHOLD = 4096;
+
+    /**
+     * Represents the instant until which every remembered station is
+     * rejected, by station ID.
+     */
+    private final Map<String, Instant> failures = new ConcurrentHashMap<>();
+
+    /**
+     * Represents the time a station unknown to the server is remembered.
+     */
+    private final Duration notFoundTtl;
+
+    /**
+     * Represents the time a station whose request failed is remembered.
+     */
+    private final Duration failureTtl;
+
+    /**
+     * Represents the clock used to expire stations.
+     */
+    private final Clock clock;
+
+    /**
+     * Represents the number of requests rejected by this cache.
+     */
+    private final AtomicLong rejections = new AtomicLong();
+
+    /**
+     * Constructs a NegativeCache.
+     *
+     * @param notFoundTtl the time a station unknown to the server is
+     * remembered.
+     *
+     * @param failureTtl the time a station whose request failed is
+     * remembered.
+     *
+     * @param clock the clock used to expire stations.
+     */
+    public NegativeCache(Duration notFoundTtl, Duration failureTtl, Clock clock) {
+        this.notFoundTtl = Objects.requireNonNull(notFoundTtl);
+        this.failureTtl = Objects.requireNonNull(failureTtl);
+        this.clock = Objects.requireNonNull(clock);
+    }
+
+    /**
+     * Creates a NegativeCache from the system properties.
+     *
+     * @return a NegativeCache.
+     */
+    public static NegativeCache fromSystemProperties() {
+        return new NegativeCache(
+                Duration.ofSeconds(Long.getLong(NOT_FOUND_TTL_PROPERTY, 600L)),
+                Duration.ofSeconds(Long.getLong(FAILURE_TTL_PROPERTY, 30L)),
+                Clock.systemUTC());
+    }
+
+    /**
+     * Tells whether a request for the given station should be rejected,
+     * and counts the rejection.
+     *
+     * @param stationId the given station ID.
+     *
+     * @return true if the last request of the station failed recently.
+     */
+    public boolean rejects(String stationId) {
+        Objects.requireNonNull(stationId);
+        var until = this.failures.get(stationId);
+        if(until == null) {
+            return false;
+        } else if(!this.clock.instant().isBefore(until)) {
+            this.failures.remove(stationId, until);
+            return false;
+        } else {
+            this.rejections.incrementAndGet();
+            return true;
+        }
+    }
+
+    /**
+     * Remembers that the request of the given station failed with the
+     * given cause.
+     *
+     * @param stationId the given station ID.
+     *
+     * @param cause the cause of the failure.
+     */
+    public void recordFailure(String stationId, Throwable cause) {
+        Objects.requireNonNull(stationId);
+        var status = cause instanceof UncheckedIOException ? cause.getCause() : cause;
+        var notFound = status instanceof HttpStatusException && ((HttpStatusException) status).isNotFound();
+        var ttl = notFound ? this.notFoundTtl : this.failureTtl;
+        if(ttl.isZero() || ttl.isNegative()) {
+            return;
+        } // else failures are remembered doNothing();
+        var now = this.clock.instant();
+        if(this.failures.size() >= PURGE_THRESHOLD) {
+            this.failures.values().removeIf(until -> !now.isBefore(until));
+        } // else there is room doNothing();
+        this.failures.put(stationId, now.plus(ttl));
+    }
+
+    /**
+     * Forgets the failure of the given station.
+     *
+     * @param stationId the given station ID.
+     */
+    public void invalidate(String stationId) {
+        Objects.requireNonNull(stationId);
+        this.failures.remove(stationId);
+    }
+
+    /**
+     * Gets the number of remembered stations, including expired ones.
+     *
+     * @return the number of remembered stations.
+     */
+    public int size() {
+        return this.failures.size();
+    }
+
+    /**
+     * Gets the number of requests rejected by this cache.
+     *
+     * @return the number of rejections.
+     */
+    public long getRejectionCount() {
+        return this.rejections.get();
+    }
+}
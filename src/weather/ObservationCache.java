@@ -0,0 +1,342 @@
+package weather;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the latest current observation of every station in memory. An
+ * observation expires when the next one is expected: at its observation
+ * time plus the pickup period suggested by the feed, rather than after a
+ * fixed time to live. Expired observations are kept as the last known
+ * observation of their station until they are replaced, or evicted when
+ * the cache reaches its memory budget.
+ */
+public final class ObservationCache {
+
+    /**
+     * Represents the name of the system property with the pickup period,
+     * in minutes, assumed when the feed does not suggest one.
+     */
+    public static final String DEFAULT_PICKUP_PROPERTY = "weather.cache.defaultPickupMinutes";
+
+    /**
+     * Represents the name of the system property with the minimum time,
+     * in seconds, an observation is kept.
+     */
+    public static final String MIN_TTL_PROPERTY = "weather.cache.minTtlSeconds";
+
+    /**
+     * Represents the name of the system property with the memory budget
+     * of the cache, in bytes.
+     */
+    public static final String MAX_BYTES_PROPERTY = "weather.cache.maxBytes";
+
+    /**
+     * Represents the default memory budget of the cache, in bytes.
+     */
+    private static final long DEFAULT_MAX_BYTES = Long.getLong(MAX_BYTES_PROPERTY, 16L * 1024 * 1024);
+
+    /**
+     * Represents the expected number of bytes of a cached observation.
+     */
+    private static final long AVERAGE_ENTRY_BYTES = 1024L;
+
+    /**
+     * Represents the pickup period assumed when the feed does not suggest one.
+     */
+    private static final Duration DEFAULT_PICKUP = Duration.ofMinutes(Long.getLong(DEFAULT_PICKUP_PROPERTY, 60L));
+
+    /**
+     * Represents the minimum time an observation is kept, so observations
+     * of stations that report late are not refetched on every request.
+     */
+    private static final Duration MIN_TTL = Duration.ofSeconds(Long.getLong(MIN_TTL_PROPERTY, 300L));
+
+    /**
+     * Represents a cached observation and the instant it expires.
+     */
+    private static final class Entry {
+        /**
+         * Represents the cached observation.
+         */
+        private final CurrentObservation observation;
+
+        /**
+         * Represents the instant the observation expires.
+         */
+        private final Instant expiresAt;
+
+        /**
+         * Represents the instant the observation was cached.
+         */
+        private final Instant cachedAt;
+
+        /**
+         * Constructs an Entry.
+         *
+         * @param observation the cached observation.
+         *
+         * @param expiresAt the instant the observation expires.
+         *
+         * @param cachedAt the instant the observation was cached.
+         */
+        private Entry(CurrentObservation observation, Instant expiresAt, Instant cachedAt) {
+            this.observation = observation;
+            this.expiresAt = expiresAt;
+            this.cachedAt = cachedAt;
+        }
+    }
+
+    /**
+     * Represents the cached observations by station ID.
+     */
+    private final WeightedCache<String, Entry> entries;
+
+    /**
+     * Represents the clock used to expire observations.
+     */
+    private final Clock clock;
+
+    /**
+     * Represents the number of lookups that found an expired observation.
+     * The cached entries count these as hits, the cache as misses.
+     */
+    private final AtomicLong expirations = new AtomicLong();
+
+    /**
+     * Constructs an empty ObservationCache using the system clock and the
+     * configured memory budget.
+     */
+    public ObservationCache() {
+        this(Clock.systemUTC(), DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Constructs an empty ObservationCache using the given clock and the
+     * configured memory budget.
+     *
+     * @param clock the given clock.
+     */
+    public ObservationCache(Clock clock) {
+        this(clock, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Constructs an empty ObservationCache.
+     *
+     * @param clock the clock used to expire observations.
+     *
+     * @param maxBytes the memory budget of the cache, in bytes.
+     */
+    public ObservationCache(Clock clock, long maxBytes) {
+        this.clock = Objects.requireNonNull(clock);
+        this.entries = new WeightedCache<>(maxBytes, AVERAGE_ENTRY_BYTES,
+                entry -> WeightedCache.sizeOfObject(3) + 2 * WeightedCache.sizeOfObject(2)
+                        + entry.observation.estimateSize());
+    }
+
+    /**
+     * Gets the cached observation of the given station if it has not
+     * expired.
+     *
+     * @param stationId the given station ID.
+     *
+     * @return the cached observation, or an empty Optional.
+     */
+    public Optional<CurrentObservation> get(String stationId) {
+        Objects.requireNonNull(stationId);
+        var entry = this.entries.get(stationId).orElse(null);
+        if(entry == null) {
+            return Optional.empty();
+        } else if(!this.clock.instant().isBefore(entry.expiresAt)) {
+            this.expirations.incrementAndGet();
+            return Optional.empty();
+        } else {
+            return Optional.of(entry.observation);
+        }
+    }
+
+    /**
+     * Gets the last known observation of the given station, expired or
+     * not, marked as stale with its age. The age is measured from the
+     * observation time, or from the time it was cached if unknown.
+     *
+     * @param stationId the given station ID.
+     *
+     * @return the last known observation, or an empty Optional.
+     */
+    public Optional<CurrentObservation> getStale(String stationId) {
+        Objects.requireNonNull(stationId);
+        var entry = this.entries.peek(stationId).orElse(null);
+        if(entry == null) {
+            return Optional.empty();
+        } // else there is a last known observation doNothing();
+        var observedAt = entry.observation.getObservationInstant().orElse(entry.cachedAt);
+        var age = Duration.between(observedAt, this.clock.instant());
+        return Optional.of(entry.observation.asStale(age.isNegative() ? Duration.ZERO : age));
+    }
+
+    /**
+     * Gets the instant the cached observation of the given station expires.
+     *
+     * @param stationId the given station ID.
+     *
+     * @return the instant of expiry, or an empty Optional if the station
+     * is not cached.
+     */
+    public Optional<Instant> getExpiry(String stationId) {
+        Objects.requireNonNull(stationId);
+        return this.entries.peek(stationId).map(entry -> entry.expiresAt);
+    }
+
+    /**
+     * Tells whether the cached observation of the given station has not
+     * expired, without counting a lookup.
+     *
+     * @param stationId the given station ID.
+     *
+     * @return true if a fresh observation is cached.
+     */
+    public boolean isFresh(String stationId) {
+        return this.getExpiry(stationId).map(this.clock.instant()::isBefore).orElse(false);
+    }
+
+    /**
+     * Caches the given observation under its station ID.
+     *
+     * @param observation the given observation.
+     */
+    public void put(CurrentObservation observation) {
+        Objects.requireNonNull(observation);
+        this.entries.put(observation.getStationId(),
+                new Entry(observation, this.expiryOf(observation), this.clock.instant()));
+    }
+
+    /**
+     * Gets the instant the given observation expires: its observation
+     * time plus its pickup period, but not earlier than the minimum time
+     * to live from now.
+     *
+     * @param observation the given observation.
+     *
+     * @return the instant the observation expires.
+     */
+    public Instant expiryOf(CurrentObservation observation) {
+        var now = this.clock.instant();
+        var period = observation.getPickupPeriod().isZero() ? DEFAULT_PICKUP : observation.getPickupPeriod();
+        var expiresAt = observation.getObservationInstant().orElse(now).plus(period);
+        var earliest = now.plus(MIN_TTL);
+        return expiresAt.isBefore(earliest) ? earliest : expiresAt;
+    }
+
+    /**
+     * Removes the cached observation of the given station.
+     *
+     * @param stationId the given station ID.
+     */
+    public void invalidate(String stationId) {
+        Objects.requireNonNull(stationId);
+        this.entries.invalidate(stationId);
+    }
+
+    /**
+     * Removes all cached observations.
+     */
+    public void clear() {
+        this.entries.clear();
+    }
+
+    /**
+     * Gets the number of cached observations, including expired ones.
+     *
+     * @return the number of cached observations.
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Gets the estimated number of bytes retained by the cache.
+     *
+     * @return the estimated number of bytes.
+     */
+    public long getWeightedSize() {
+        return this.entries.getWeightedSize();
+    }
+
+    /**
+     * Gets the memory budget of the cache.
+     *
+     * @return the memory budget, in bytes.
+     */
+    public long getMaximumWeight() {
+        return this.entries.getMaximumWeight();
+    }
+
+    /**
+     * Gets the share of lookups served from the cache.
+     *
+     * @return the hit ratio, between 0 and 1, or 0 before any lookup.
+     */
+    public double getHitRatio() {
+        var hits = this.getHitCount();
+        var lookups = hits + this.getMissCount();
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    /**
+     * Gets the number of observations evicted to respect the memory budget.
+     *
+     * @return the number of evictions.
+     */
+    public long getEvictionCount() {
+        return this.entries.getEvictionCount();
+    }
+
+    /**
+     * Gets the number of lookups served from the cache.
+     *
+     * @return the number of hits.
+     */
+    public long getHitCount() {
+        return Math.max(0L, this.entries.getHitCount() - this.expirations.get());
+    }
+
+    /**
+     * Gets the number of lookups not served from the cache.
+     *
+     * @return the number of misses.
+     */
+    public long getMissCount() {
+        return this.entries.getMissCount() + this.expirations.get();
+    }
+
+    /**
+     * Gets the number of lookups that found an expired observation.
+     *
+     * @return the number of expirations.
+     */
+    public long getExpirationCount() {
+        return this.expirations.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("ObservationCache{");
+        sb.append("size=").append(size());
+        sb.append(", bytes=").append(getWeightedSize());
+        sb.append(", hits=").append(getHitCount());
+        sb.append(", misses=").append(getMissCount());
+        sb.append(", expirations=").append(expirations);
+        sb.append(", evictions=").append(getEvictionCount());
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,250 @@
+package weather;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Warms the observation cache with the stations of a state as soon as the
+ * state is loaded, so the station the user picks next is likely to be
+ * cached. The most viewed stations are fetched first, then the others in
+ * the order of the list. Only a few fetches run at the same time, and a
+ * prefetch stops as soon as another state is loaded.
+ */
+public final class ObservationPrefetcher {
+
+    /**
+     * Represents the name of the system property with the maximum number
+     * of stations prefetched for a state. Zero disables prefetching.
+     */
+    public static final String LIMIT_PROPERTY = "weather.prefetch.limit";
+
+    /**
+     * Represents the name of the system property with the maximum number
+     * of prefetches running at the same time.
+     */
+    public static final String CONCURRENCY_PROPERTY = "weather.prefetch.concurrency";
+
+    /**
+     * Represents a Logger retrieved by the Manager class.
+     */
+    private static final Logger LOG = Manager.getLogger("ObservationPrefetcher");
+
+    /**
+     * Represents the prefetch of the stations of one state.
+     */
+    private final class Session {
+        /**
+         * Represents the IDs of the stations not prefetched yet.
+         */
+        private final Queue<String> pending;
+
+        /**
+         * Represents the prefetches running.
+         */
+        private final List<CompletableFuture<?>> running = new ArrayList<>();
+
+        /**
+         * Tells whether this prefetch has been cancelled.
+         */
+        private boolean cancelled;
+
+        /**
+         * Constructs a Session prefetching the given stations in order.
+         *
+         * @param stationIds the IDs of the stations to prefetch.
+         */
+        private Session(Collection<String> stationIds) {
+            this.pending = new ArrayDeque<>(stationIds);
+        }
+
+        /**
+         * Starts prefetches until the concurrency cap is reached or no
+         * station is left.
+         */
+        private void fill() {
+            while(true) {
+                CompletableFuture<?> prefetch;
+                synchronized(this) {
+                    if(this.cancelled || this.running.size() >= ObservationPrefetcher.this.concurrency
+                            || this.pending.isEmpty()) {
+                        return;
+                    } // else another prefetch can start doNothing();
+                    prefetch = ObservationPrefetcher.this.dao.prefetch(this.pending.poll());
+                    if(prefetch.isDone()) {
+                        continue;
+                    } // else the observation is being fetched doNothing();
+                    ObservationPrefetcher.this.started.incrementAndGet();
+                    this.running.add(prefetch);
+                }
+                prefetch.whenComplete((result, ex) -> {
+                    synchronized(this) {
+                        this.running.remove(prefetch);
+                    }
+                    this.fill();
+                });
+            }
+        }
+
+        /**
+         * Cancels this prefetch: no further station is fetched and the
+         * running fetches are abandoned.
+         */
+        private synchronized void cancel() {
+            this.cancelled = true;
+            ObservationPrefetcher.this.cancelled.addAndGet(this.pending.size());
+            this.pending.clear();
+            new ArrayList<>(this.running).forEach(prefetch -> prefetch.cancel(true));
+        }
+    }
+
+    /**
+     * Represents the DAO whose cache is warmed.
+     */
+    private final CachedCurrentObservationDAO dao;
+
+    /**
+     * Represents the maximum number of stations prefetched for a state.
+     */
+    private final int limit;
+
+    /**
+     * Represents the maximum number of prefetches running at the same time.
+     */
+    private final int concurrency;
+
+    /**
+     * Represents the prefetch in progress, or null.
+     */
+    private Session current;
+
+    /**
+     * Represents the number of stations whose observation was fetched
+     * ahead of a request.
+     */
+    private final AtomicLong started = new AtomicLong();
+
+    /**
+     * Represents the number of stations skipped because their prefetch
+     * was cancelled.
+     */
+    private final AtomicLong cancelled = new AtomicLong();
+
+    /**
+     * Constructs an ObservationPrefetcher.
+     *
+     * @param dao the DAO whose cache is warmed.
+     *
+     * @param limit the maximum number of stations prefetched for a state.
+     *
+     * @param concurrency the maximum number of prefetches running at the
+     * same time.
+     *
+     * @throws IllegalArgumentException if the concurrency is not positive.
+     */
+    public ObservationPrefetcher(CachedCurrentObservationDAO dao, int limit, int concurrency) {
+        if(concurrency <= 0) {
+            throw new IllegalArgumentException("Concurrency must be positive.");
+        } // else the concurrency is valid doNothing();
+        this.dao = Objects.requireNonNull(dao);
+        this.limit = limit;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Creates an ObservationPrefetcher of the shared cached DAO from the
+     * system properties.
+     *
+     * @return an ObservationPrefetcher.
+     */
+    public static ObservationPrefetcher fromSystemProperties() {
+        return new ObservationPrefetcher(CachedCurrentObservationDAO.getInstance(),
+                Integer.getInteger(LIMIT_PROPERTY, 20),
+                Integer.getInteger(CONCURRENCY_PROPERTY, 4));
+    }
+
+    /**
+     * Cancels the prefetch in progress and starts prefetching the given
+     * stations in the background.
+     *
+     * @param stations the stations of the loaded state.
+     */
+    public void prefetch(List<Station> stations) {
+        Objects.requireNonNull(stations);
+        Session session;
+        synchronized(this) {
+            this.cancel();
+            if(this.limit <= 0 || stations.isEmpty()) {
+                return;
+            } // else the stations are prefetched doNothing();
+            session = new Session(this.order(stations));
+            this.current = session;
+        }
+        LOG.log(Level.FINE, String.format("Prefetching %d stations.", session.pending.size()));
+        session.fill();
+    }
+
+    /**
+     * Orders the IDs of the given stations for prefetching: the most
+     * viewed stations first, then the others in the order of the list,
+     * up to the limit.
+     *
+     * @param stations the given stations.
+     *
+     * @return the ordered station IDs.
+     */
+    private List<String> order(List<Station> stations) {
+        var ids = new LinkedHashSet<String>();
+        for(var station : stations) {
+            ids.add(station.getStationId());
+        }
+        var ordered = new LinkedHashSet<String>();
+        this.dao.getRefresher().ifPresent(refresher -> {
+            for(var hot : refresher.getHotStations()) {
+                if(ids.contains(hot)) {
+                    ordered.add(hot);
+                } // else the station is in another state doNothing();
+            }
+        });
+        ordered.addAll(ids);
+        return new ArrayList<>(ordered).subList(0, Math.min(this.limit, ordered.size()));
+    }
+
+    /**
+     * Cancels the prefetch in progress, if any.
+     */
+    public synchronized void cancel() {
+        if(this.current != null) {
+            this.current.cancel();
+            this.current = null;
+        } // else nothing is prefetched doNothing();
+    }
+
+    /**
+     * Gets the number of stations whose observation was fetched ahead of
+     * a request; stations already cached are not counted.
+     *
+     * @return the number of prefetched stations.
+     */
+    public long getPrefetchCount() {
+        return this.started.get();
+    }
+
+    /**
+     * Gets the number of stations skipped because their prefetch was
+     * cancelled.
+     *
+     * @return the number of cancelled prefetches.
+     */
+    public long getCancelledCount() {
+        return this.cancelled.get();
+    }
+}
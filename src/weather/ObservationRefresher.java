@@ -0,0 +1,273 @@
+package weather;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tracks which stations are viewed and refreshes the observations of the
+ * most recently and most frequently viewed ones shortly before they
+ * expire, so these stations are rarely served stale. A refresh always
+ * revalidates with the server, as observation fetches hold no value in
+ * the ConditionalFetcher. Once the tracked stations are full, the least
+ * viewed one outside the most recent is forgotten, and the counts are
+ * halved from time to time so popularity follows current use.
+ */
+public final class ObservationRefresher {
+
+    /**
+     * Represents the name of the system property with the number of
+     * stations refreshed ahead of expiry.
+     */
+    public static final String COUNT_PROPERTY = "weather.refresh.count";
+
+    /**
+     * Represents the name of the system property with the time, in
+     * seconds, before expiry at which an observation is refreshed.
+     */
+    public static final String LEAD_PROPERTY = "weather.refresh.leadSeconds";
+
+    /**
+     * Represents the name of the system property with the time, in
+     * seconds, between two checks.
+     */
+    public static final String PERIOD_PROPERTY = "weather.refresh.periodSeconds";
+
+    /**
+     * Represents a viewed station.
+     */
+    private static final class View {
+        /**
+         * Represents the number of times the station was viewed.
+         */
+        private long count;
+    }
+
+    /**
+     * Represents the viewed stations, least recently viewed first.
+     */
+    private final LinkedHashMap<String, View> views = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Represents the number of views since the counts were last halved.
+     */
+    private long viewsSinceAging;
+
+    /**
+     * Represents the number of stations refreshed ahead of expiry.
+     */
+    private final int count;
+
+    /**
+     * Represents the time before expiry at which an observation is refreshed.
+     */
+    private final Duration lead;
+
+    /**
+     * Represents the time between two checks.
+     */
+    private final Duration period;
+
+    /**
+     * Represents the cache holding the observations and their expiry.
+     */
+    private final ObservationCache cache;
+
+    /**
+     * Starts a background refresh of a station.
+     */
+    private final Consumer<String> refresh;
+
+    /**
+     * Represents the clock used to compare expiries.
+     */
+    private final Clock clock;
+
+    /**
+     * Represents the scheduler of the checks, or null if not started.
+     */
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Tells whether the checks were stopped for good.
+     */
+    private boolean stopped;
+
+    /**
+     * Represents a Logger retrieved by the Manager class.
+     */
+    private static final Logger LOG = Manager.getLogger("ObservationRefresher");
+
+    /**
+     * Constructs an ObservationRefresher.
+     *
+     * @param cache the cache holding the observations and their expiry.
+     *
+     * @param refresh starts a background refresh of a station.
+     *
+     * @param count the number of stations refreshed ahead of expiry.
+     *
+     * @param lead the time before expiry at which an observation is refreshed.
+     *
+     * @param period the time between two checks.
+     *
+     * @param clock the clock used to compare expiries.
+     */
+    public ObservationRefresher(ObservationCache cache, Consumer<String> refresh,
+                                int count, Duration lead, Duration period, Clock clock) {
+        this.cache = Objects.requireNonNull(cache);
+        this.refresh = Objects.requireNonNull(refresh);
+        this.count = count;
+        this.lead = Objects.requireNonNull(lead);
+        this.period = Objects.requireNonNull(period);
+        this.clock = Objects.requireNonNull(clock);
+    }
+
+    /**
+     * Creates an ObservationRefresher configured with the system properties.
+     *
+     * @param cache the cache holding the observations and their expiry.
+     *
+     * @param refresh starts a background refresh of a station.
+     *
+     * @return an ObservationRefresher.
+     */
+    public static ObservationRefresher fromSystemProperties(ObservationCache cache, Consumer<String> refresh) {
+        return new ObservationRefresher(cache, refresh,
+                Integer.getInteger(COUNT_PROPERTY, 10),
+                Duration.ofSeconds(Long.getLong(LEAD_PROPERTY, 120L)),
+                Duration.ofSeconds(Long.getLong(PERIOD_PROPERTY, 60L)),
+                Clock.systemUTC());
+    }
+
+    /**
+     * Records that the given station was viewed, starting the periodic
+     * checks on the first view.
+     *
+     * @param stationId the given station ID.
+     */
+    public void recordView(String stationId) {
+        Objects.requireNonNull(stationId);
+        if(this.count <= 0) {
+            return;
+        } // else refreshing ahead is enabled doNothing();
+        synchronized(this) {
+            this.views.computeIfAbsent(stationId, id -> new View()).count++;
+            while(this.views.size() > this.count * 4) {
+                this.evictLeastFrequent();
+            }
+            if(++this.viewsSinceAging >= this.count * 64L) {
+                this.age();
+            } // else the counts are recent enough doNothing();
+            if(this.scheduler == null && !this.stopped) {
+                this.start();
+            } // else the checks are running doNothing();
+        }
+    }
+
+    /**
+     * Forgets the least frequently viewed station among those that are
+     * not among the most recently viewed, so the counts of popular
+     * stations survive a burst of stations viewed once.
+     */
+    private void evictLeastFrequent() {
+        var candidates = this.views.size() - this.count;
+        String victim = null;
+        var victimCount = Long.MAX_VALUE;
+        var iterator = this.views.entrySet().iterator();
+        for(var i = 0; i < candidates && iterator.hasNext(); i++) {
+            var entry = iterator.next();
+            if(entry.getValue().count < victimCount) {
+                victim = entry.getKey();
+                victimCount = entry.getValue().count;
+            } // else a less viewed station has been found doNothing();
+        }
+        this.views.remove(victim);
+    }
+
+    /**
+     * Halves every count, so stations that were popular long ago give way
+     * to the ones popular now.
+     */
+    private void age() {
+        this.viewsSinceAging = 0;
+        for(var view : this.views.values()) {
+            view.count = Math.max(1, view.count / 2);
+        }
+    }
+
+    /**
+     * Gets the stations refreshed ahead of expiry: the most recently
+     * viewed ones followed by the most frequently viewed ones.
+     *
+     * @return the IDs of the stations.
+     */
+    public synchronized List<String> getHotStations() {
+        var recent = new ArrayList<>(this.views.keySet());
+        var hot = new LinkedHashSet<String>();
+        for(var i = recent.size() - 1; i >= 0 && hot.size() < this.count; i--) {
+            hot.add(recent.get(i));
+        }
+        var frequent = new ArrayList<>(this.views.entrySet());
+        frequent.sort(Comparator.comparingLong((Map.Entry<String, View> entry) -> entry.getValue().count).reversed());
+        for(var i = 0; i < frequent.size() && i < this.count; i++) {
+            hot.add(frequent.get(i).getKey());
+        }
+        return new ArrayList<>(hot);
+    }
+
+    /**
+     * Refreshes every hot station whose observation expires within the
+     * lead time.
+     */
+    void check() {
+        var threshold = this.clock.instant().plus(this.lead);
+        for(var stationId : this.getHotStations()) {
+            var expiry = this.cache.getExpiry(stationId);
+            if(expiry.isPresent() && expiry.get().isBefore(threshold)) {
+                this.refresh.accept(stationId);
+            } // else the observation is fresh or not cached doNothing();
+        }
+    }
+
+    /**
+     * Starts the periodic checks on a daemon thread.
+     */
+    private void start() {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "observation-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                this.check();
+            } catch (RuntimeException ex) {
+                LOG.log(Level.WARNING, ex.getMessage(), ex);
+            }
+        }, this.period.toMillis(), this.period.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the periodic checks for good.
+     */
+    public synchronized void stop() {
+        this.stopped = true;
+        if(this.scheduler != null) {
+            this.scheduler.shutdownNow();
+            this.scheduler = null;
+        } // else the checks are not running doNothing();
+    }
+}
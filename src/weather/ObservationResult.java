@@ -0,0 +1,117 @@
+package weather;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Represents the outcome of fetching the current observation of a single
+ * station, either a (possibly empty) observation or the error that occurred.
+ */
+public final class ObservationResult {
+
+    /**
+     * Represents the ID of the station that was fetched.
+     */
+    private final String stationId;
+
+    /**
+     * Represents the observation returned for the station, if any.
+     */
+    private final Optional<CurrentObservation> observation;
+
+    /**
+     * Represents the error raised while fetching, or null on success.
+     */
+    private final Exception error;
+
+    /**
+     * Constructs an ObservationResult.
+     *
+     * @param stationId the ID of the station.
+     *
+     * @param observation the fetched observation.
+     *
+     * @param error the error raised, or null on success.
+     */
+    private ObservationResult(String stationId, Optional<CurrentObservation> observation, Exception error) {
+        this.stationId = Objects.requireNonNull(stationId);
+        this.observation = Objects.requireNonNull(observation);
+        this.error = error;
+    }
+
+    /**
+     * Creates a successful result for the given station.
+     *
+     * @param stationId the ID of the station.
+     *
+     * @param observation the fetched observation.
+     *
+     * @return a successful result.
+     */
+    public static ObservationResult success(String stationId, Optional<CurrentObservation> observation) {
+        return new ObservationResult(stationId, observation, null);
+    }
+
+    /**
+     * Creates a failed result for the given station.
+     *
+     * @param stationId the ID of the station.
+     *
+     * @param error the error raised while fetching.
+     *
+     * @return a failed result.
+     */
+    public static ObservationResult failure(String stationId, Exception error) {
+        Objects.requireNonNull(error);
+        return new ObservationResult(stationId, Optional.empty(), error);
+    }
+
+    /**
+     * Gets the ID of the station.
+     *
+     * @return the ID of the station.
+     */
+    public String getStationId() {
+        return this.stationId;
+    }
+
+    /**
+     * Gets the fetched observation. It is empty on failure or if the
+     * station returned no observation.
+     *
+     * @return the fetched observation.
+     */
+    public Optional<CurrentObservation> getObservation() {
+        return this.observation;
+    }
+
+    /**
+     * Gets the error raised while fetching.
+     *
+     * @return the error, or an empty Optional on success.
+     */
+    public Optional<Exception> getError() {
+        return Optional.ofNullable(this.error);
+    }
+
+    /**
+     * Tells whether the fetch succeeded.
+     *
+     * @return true if no error occurred.
+     */
+    public boolean isSuccess() {
+        return this.error == null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("ObservationResult{");
+        sb.append("stationId='").append(stationId).append('\'');
+        sb.append(", success=").append(isSuccess());
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,735 @@
+package weather;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the raw bodies of fetched web documents on disk, so they can be
+ * revalidated and parsed again after a restart without downloading them.
+ * Bodies are stored once under the SHA-256 hash of their content; the
+ * metadata of every URL, with its validators, refers to the hash of its
+ * last body, and several URLs may share a body. Bodies no URL refers to
+ * any more are deleted by a periodic sweep. Stored bodies are read
+ * through memory-mapped files.
+ */
+public final class ResponseStore {
+
+    /**
+     * Represents the name of the system property with the directory of
+     * the store. An empty value disables the store.
+     */
+    public static final String DIRECTORY_PROPERTY = "weather.responseCache.dir";
+
+    /**
+     * Represents the name of the subdirectory holding the bodies.
+     */
+    private static final String OBJECTS = "objects";
+
+    /**
+     * Represents the name of the subdirectory holding the metadata of URLs.
+     */
+    private static final String URLS = "urls";
+
+    /**
+     * Represents the number of locks the URLs are spread over.
+     */
+    private static final int URL_LOCKS = 64;
+
+    /**
+     * Represents the number of replaced bodies after which unreferenced
+     * bodies are swept.
+     */
+    private static final int SWEEP_INTERVAL = 256;
+
+    /**
+     * Represents a Logger retrieved by the Manager class.
+     */
+    private static final Logger LOG = Manager.getLogger("ResponseStore");
+
+    /**
+     * Represents a stored response: its validators and the location of
+     * its body.
+     */
+    public static final class StoredResponse {
+        /**
+         * Represents the URL of the response.
+         */
+        private final String url;
+
+        /**
+         * Represents the ETag of the response, or null.
+         */
+        private final String etag;
+
+        /**
+         * Represents the Last-Modified header of the response, or null.
+         */
+        private final String lastModified;
+
+        /**
+         * Represents the file holding the body.
+         */
+        private final Path body;
+
+        /**
+         * Represents the instant the response was stored.
+         */
+        private final Instant storedAt;
+
+        /**
+         * Constructs a StoredResponse.
+         *
+         * @param url the URL of the response.
+         *
+         * @param etag the ETag, or null.
+         *
+         * @param lastModified the Last-Modified header, or null.
+         *
+         * @param body the file holding the body.
+         *
+         * @param storedAt the instant the response was stored.
+         */
+        private StoredResponse(String url, String etag, String lastModified, Path body, Instant storedAt) {
+            this.url = url;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.body = body;
+            this.storedAt = storedAt;
+        }
+
+        /**
+         * Gets the URL of the response.
+         *
+         * @return the URL.
+         */
+        public String getUrl() {
+            return this.url;
+        }
+
+        /**
+         * Gets the ETag of the response.
+         *
+         * @return the ETag, or an empty Optional.
+         */
+        public Optional<String> getEtag() {
+            return Optional.ofNullable(this.etag);
+        }
+
+        /**
+         * Gets the Last-Modified header of the response.
+         *
+         * @return the Last-Modified header, or an empty Optional.
+         */
+        public Optional<String> getLastModified() {
+            return Optional.ofNullable(this.lastModified);
+        }
+
+        /**
+         * Gets the instant the response was stored.
+         *
+         * @return the instant the response was stored.
+         */
+        public Instant getStoredAt() {
+            return this.storedAt;
+        }
+
+        /**
+         * Opens the body of the response through a memory-mapped file.
+         *
+         * @return the body.
+         *
+         * @throws IOException if the body cannot be read.
+         */
+        public InputStream openBody() throws IOException {
+            try(var channel = FileChannel.open(this.body, StandardOpenOption.READ)) {
+                return new BufferInputStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            }
+        }
+    }
+
+    /**
+     * Represents an InputStream reading a ByteBuffer.
+     */
+    private static final class BufferInputStream extends InputStream {
+        /**
+         * Represents the buffer read.
+         */
+        private final ByteBuffer buffer;
+
+        /**
+         * Constructs a BufferInputStream reading the given buffer.
+         *
+         * @param buffer the given buffer.
+         */
+        private BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int read() {
+            return this.buffer.hasRemaining() ? this.buffer.get() & 0xff : -1;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            Objects.checkFromIndexSize(offset, length, bytes.length);
+            if(length == 0) {
+                return 0;
+            } else if(!this.buffer.hasRemaining()) {
+                return -1;
+            } // else there are bytes to read doNothing();
+            var count = Math.min(length, this.buffer.remaining());
+            this.buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int available() {
+            return this.buffer.remaining();
+        }
+    }
+
+    /**
+     * Represents the directory of the store, or null if it is disabled.
+     */
+    private final Path directory;
+
+    /**
+     * Serializes the stores of a URL; a URL always uses the same lock.
+     */
+    private final Object[] urlLocks = new Object[URL_LOCKS];
+
+    /**
+     * Lets stores run together, and the sweep alone.
+     */
+    private final ReadWriteLock sweepLock = new ReentrantReadWriteLock();
+
+    /**
+     * Represents the number of bodies replaced by another one.
+     */
+    private final AtomicInteger replacedBodies = new AtomicInteger();
+
+    /**
+     * Constructs a ResponseStore in the given directory.
+     *
+     * @param directory the given directory, or null to disable the store.
+     */
+    public ResponseStore(Path directory) {
+        this.directory = directory;
+        for(var i = 0; i < this.urlLocks.length; i++) {
+            this.urlLocks[i] = new Object();
+        }
+    }
+
+    /**
+     * Creates a ResponseStore from the system properties.
+     *
+     * @return a ResponseStore, disabled if the directory is empty.
+     */
+    public static ResponseStore fromSystemProperties() {
+        var directory = System.getProperty(DIRECTORY_PROPERTY, "response-cache").trim();
+        return new ResponseStore(directory.isEmpty() ? null : Paths.get(directory));
+    }
+
+    /**
+     * Tells whether the store keeps responses.
+     *
+     * @return true if the store is enabled.
+     */
+    public boolean isEnabled() {
+        return this.directory != null;
+    }
+
+    /**
+     * Gets the last stored response of the given URL.
+     *
+     * @param url the given URL.
+     *
+     * @return the stored response, or an empty Optional if none is stored
+     * or it cannot be read.
+     */
+    public Optional<StoredResponse> get(String url) {
+        Objects.requireNonNull(url);
+        if(!this.isEnabled()) {
+            return Optional.empty();
+        } // else the store may hold the URL doNothing();
+        var metadata = this.metadataOf(url);
+        if(!Files.isRegularFile(metadata)) {
+            return Optional.empty();
+        } // else the URL has been stored doNothing();
+        try(Reader reader = Files.newBufferedReader(metadata, StandardCharsets.UTF_8)) {
+            var properties = new Properties();
+            properties.load(reader);
+            var body = this.objectOf(properties.getProperty("sha256", ""));
+            if(!url.equals(properties.getProperty("url")) || !Files.isRegularFile(body)) {
+                return Optional.empty();
+            } // else the metadata refers to an existing body doNothing();
+            return Optional.of(new StoredResponse(url,
+                    properties.getProperty("etag"),
+                    properties.getProperty("lastModified"),
+                    body,
+                    Instant.ofEpochMilli(Long.parseLong(properties.getProperty("storedAt", "0")))));
+        } catch (IOException | RuntimeException ex) {
+            LOG.log(Level.WARNING, "Cannot read stored response of " + url + ": " + ex.getMessage(), ex);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Represents a body being stored while it is read. The bytes read
+     * through the wrapped stream are written to a temporary file and
+     * hashed as they go, so the body is never held in memory. Committing
+     * stores the body under its hash with the given validators; closing
+     * without committing discards it. A disabled store, or a failure to
+     * write, only stops the copy: the body is still read.
+     */
+    public final class Capture implements AutoCloseable {
+        /**
+         * Represents the URL of the response.
+         */
+        private final String url;
+
+        /**
+         * Represents the ETag of the response, or null.
+         */
+        private final String etag;
+
+        /**
+         * Represents the Last-Modified header of the response, or null.
+         */
+        private final String lastModified;
+
+        /**
+         * Represents the digest of the bytes read so far.
+         */
+        private final MessageDigest digest;
+
+        /**
+         * Represents the temporary file, or null if nothing is stored.
+         */
+        private Path temporary;
+
+        /**
+         * Represents the stream writing the temporary file, or null.
+         */
+        private OutputStream out;
+
+        /**
+         * Represents the wrapped body, or null if none is wrapped yet.
+         */
+        private InputStream body;
+
+        /**
+         * Constructs a Capture of the given URL.
+         *
+         * @param url the URL of the response.
+         *
+         * @param etag the ETag, or null.
+         *
+         * @param lastModified the Last-Modified header, or null.
+         */
+        private Capture(String url, String etag, String lastModified) {
+            this.url = url;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.digest = newDigest();
+            if(!isEnabled()) {
+                return;
+            } // else the body is copied to disk doNothing();
+            try {
+                var objects = directory.resolve(OBJECTS);
+                Files.createDirectories(objects);
+                this.temporary = Files.createTempFile(objects, "body", ".tmp");
+                this.out = new BufferedOutputStream(Files.newOutputStream(this.temporary));
+            } catch (IOException ex) {
+                LOG.log(Level.WARNING, "Cannot store response of " + url + ": " + ex.getMessage(), ex);
+                this.discard();
+            }
+        }
+
+        /**
+         * Wraps the given body so the bytes read are stored. Closing the
+         * wrapper does not close the given body, which stays owned by the
+         * caller.
+         *
+         * @param in the given body.
+         *
+         * @return the wrapped body.
+         */
+        public InputStream wrap(InputStream in) {
+            Objects.requireNonNull(in);
+            this.body = new FilterInputStream(in) {
+                @Override
+                public int read() throws IOException {
+                    var b = super.read();
+                    if(b != -1) {
+                        Capture.this.copy(new byte[] {(byte) b}, 0, 1);
+                    } // else the body is over doNothing();
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] bytes, int offset, int length) throws IOException {
+                    var count = super.read(bytes, offset, length);
+                    if(count > 0) {
+                        Capture.this.copy(bytes, offset, count);
+                    } // else nothing was read doNothing();
+                    return count;
+                }
+
+                @Override
+                public long skip(long n) throws IOException {
+                    var buffer = new byte[(int) Math.min(8192, Math.max(0, n))];
+                    var count = this.read(buffer, 0, buffer.length);
+                    return Math.max(0, count);
+                }
+
+                @Override
+                public boolean markSupported() {
+                    return false;
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+            return this.body;
+        }
+
+        /**
+         * Copies the given bytes read from the body to the temporary file.
+         *
+         * @param bytes the given bytes.
+         *
+         * @param offset the offset of the bytes read.
+         *
+         * @param length the number of bytes read.
+         */
+        private void copy(byte[] bytes, int offset, int length) {
+            if(this.out == null) {
+                return;
+            } // else the body is being stored doNothing();
+            this.digest.update(bytes, offset, length);
+            try {
+                this.out.write(bytes, offset, length);
+            } catch (IOException ex) {
+                LOG.log(Level.WARNING, "Cannot store response of " + this.url + ": " + ex.getMessage(), ex);
+                this.discard();
+            }
+        }
+
+        /**
+         * Reads what the parser left of the body and stores the body with
+         * its validators. Failures to store are logged and otherwise
+         * ignored.
+         *
+         * @throws IOException if the rest of the body cannot be read.
+         */
+        public void commit() throws IOException {
+            if(this.out == null || this.body == null) {
+                this.discard();
+                return;
+            } // else the body is being stored doNothing();
+            var buffer = new byte[8192];
+            while(this.body.read(buffer) != -1) {
+                // the bytes are copied by the wrapper
+            }
+            if(this.out == null) {
+                return;
+            } // else the copy failed and was discarded doNothing();
+            try {
+                this.out.close();
+                this.out = null;
+                store(this.url, this.temporary, hex(this.digest.digest()), this.etag, this.lastModified);
+            } catch (IOException ex) {
+                LOG.log(Level.WARNING, "Cannot store response of " + this.url + ": " + ex.getMessage(), ex);
+            } finally {
+                this.discard();
+            }
+        }
+
+        /**
+         * Discards the stored copy of the body, if any.
+         */
+        @Override
+        public void close() {
+            this.discard();
+        }
+
+        /**
+         * Stops copying the body and deletes the temporary file.
+         */
+        private void discard() {
+            if(this.out != null) {
+                try {
+                    this.out.close();
+                } catch (IOException ex) {
+                    LOG.log(Level.FINE, ex.getMessage(), ex);
+                }
+                this.out = null;
+            } // else the file is closed doNothing();
+            if(this.temporary != null) {
+                try {
+                    Files.deleteIfExists(this.temporary);
+                } catch (IOException ex) {
+                    LOG.log(Level.FINE, ex.getMessage(), ex);
+                }
+                this.temporary = null;
+            } // else there is no file doNothing();
+        }
+    }
+
+    /**
+     * Starts storing a response of the given URL whose body is about to
+     * be read.
+     *
+     * @param url the given URL.
+     *
+     * @param etag the ETag of the response, or null.
+     *
+     * @param lastModified the Last-Modified header of the response, or null.
+     *
+     * @return a capture of the body, which must be closed.
+     */
+    public Capture capture(String url, String etag, String lastModified) {
+        Objects.requireNonNull(url);
+        return new Capture(url, etag, lastModified);
+    }
+
+    /**
+     * Moves the given body file under its hash, unless the same body is
+     * already stored, and records it as the body of the given URL with
+     * its validators. Stores of the same URL run one at a time. The body
+     * of the previous response is left to the sweep, since other URLs may
+     * share it.
+     *
+     * @param url the given URL.
+     *
+     * @param file the file holding the body, deleted or moved.
+     *
+     * @param hash the hash of the body.
+     *
+     * @param etag the ETag of the response, or null.
+     *
+     * @param lastModified the Last-Modified header of the response, or null.
+     *
+     * @throws IOException if the body or its metadata cannot be written.
+     */
+    private void store(String url, Path file, String hash, String etag, String lastModified) throws IOException {
+        var replaced = false;
+        this.sweepLock.readLock().lock();
+        try {
+            synchronized(this.urlLocks[Math.floorMod(url.hashCode(), this.urlLocks.length)]) {
+                var previous = this.get(url);
+                var object = this.objectOf(hash);
+                if(!Files.isRegularFile(object)) {
+                    Files.createDirectories(object.getParent());
+                    move(file, object);
+                } // else the same body is already stored doNothing();
+
+                var properties = new Properties();
+                properties.setProperty("url", url);
+                properties.setProperty("sha256", hash);
+                properties.setProperty("storedAt", Long.toString(System.currentTimeMillis()));
+                if(etag != null) {
+                    properties.setProperty("etag", etag);
+                } // else there is no ETag doNothing();
+                if(lastModified != null) {
+                    properties.setProperty("lastModified", lastModified);
+                } // else there is no date doNothing();
+                var metadata = new StringWriter();
+                properties.store(metadata, null);
+                this.write(this.metadataOf(url), metadata.toString().getBytes(StandardCharsets.UTF_8));
+                replaced = previous.isPresent() && !previous.get().body.equals(object);
+            }
+        } finally {
+            this.sweepLock.readLock().unlock();
+        }
+        if(replaced && this.replacedBodies.incrementAndGet() % SWEEP_INTERVAL == 0) {
+            this.sweep();
+        } // else few bodies may be unreferenced doNothing();
+    }
+
+    /**
+     * Deletes the bodies no URL refers to. Stores wait for the sweep. If
+     * the metadata of a URL cannot be read, nothing is deleted.
+     */
+    public void sweep() {
+        if(!this.isEnabled()) {
+            return;
+        } // else there may be bodies to delete doNothing();
+        this.sweepLock.writeLock().lock();
+        try {
+            var urls = this.directory.resolve(URLS);
+            var objects = this.directory.resolve(OBJECTS);
+            if(!Files.isDirectory(objects)) {
+                return;
+            } // else bodies are stored doNothing();
+            var referenced = new HashSet<Path>();
+            if(Files.isDirectory(urls)) {
+                try(var files = Files.newDirectoryStream(urls, "*.properties")) {
+                    for(var metadata : files) {
+                        try(Reader reader = Files.newBufferedReader(metadata, StandardCharsets.UTF_8)) {
+                            var properties = new Properties();
+                            properties.load(reader);
+                            referenced.add(this.objectOf(properties.getProperty("sha256", "")));
+                        }
+                    }
+                }
+            } // else no URL is stored doNothing();
+            var deleted = 0;
+            try(var files = Files.walk(objects)) {
+                for(var body : (Iterable<Path>) files::iterator) {
+                    if(Files.isRegularFile(body) && !body.getFileName().toString().endsWith(".tmp")
+                            && !referenced.contains(body)) {
+                        Files.deleteIfExists(body);
+                        deleted++;
+                    } // else the body is referenced or being captured doNothing();
+                }
+            }
+            LOG.log(Level.FINE, String.format("Deleted %d unreferenced bodies.", deleted));
+        } catch (IOException | RuntimeException ex) {
+            LOG.log(Level.WARNING, "Cannot sweep stored responses: " + ex.getMessage(), ex);
+        } finally {
+            this.sweepLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the given bytes to the given file atomically, through a
+     * temporary file in the same directory.
+     *
+     * @param file the given file.
+     *
+     * @param bytes the given bytes.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    private void write(Path file, byte[] bytes) throws IOException {
+        Files.createDirectories(file.getParent());
+        var temporary = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporary, bytes);
+            move(temporary, file);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Moves the given file in place of the given target, atomically if
+     * the file system allows it.
+     *
+     * @param file the given file.
+     *
+     * @param target the given target.
+     *
+     * @throws IOException if the file cannot be moved.
+     */
+    private static void move(Path file, Path target) throws IOException {
+        try {
+            Files.move(file, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Gets the file holding the body with the given hash.
+     *
+     * @param hash the given hash.
+     *
+     * @return the file of the body.
+     */
+    private Path objectOf(String hash) {
+        if(hash.length() < 3) {
+            return this.directory.resolve(OBJECTS).resolve("invalid");
+        } // else the hash is valid doNothing();
+        return this.directory.resolve(OBJECTS).resolve(hash.substring(0, 2)).resolve(hash.substring(2));
+    }
+
+    /**
+     * Gets the file holding the metadata of the given URL.
+     *
+     * @param url the given URL.
+     *
+     * @return the file of the metadata.
+     */
+    private Path metadataOf(String url) {
+        return this.directory.resolve(URLS).resolve(sha256(url.getBytes(StandardCharsets.UTF_8)) + ".properties");
+    }
+
+    /**
+     * Gets the hexadecimal SHA-256 hash of the given bytes.
+     *
+     * @param bytes the given bytes.
+     *
+     * @return the hash.
+     */
+    private static String sha256(byte[] bytes) {
+        return hex(newDigest().digest(bytes));
+    }
+
+    /**
+     * Creates a SHA-256 digest.
+     *
+     * @return a new digest.
+     */
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available.", ex);
+        }
+    }
+
+    /**
+     * Gets the hexadecimal form of the given hash.
+     *
+     * @param digest the given hash.
+     *
+     * @return the hexadecimal form.
+     */
+    private static String hex(byte[] digest) {
+        var hex = new StringBuilder(digest.length * 2);
+        for(var b : digest) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,225 @@
+package weather;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Brings the schema of the local files up to date. The version of the
+ * schema is kept in the SCHEMA_VERSION table; every migration newer than
+ * that version is applied in order, each in its own transaction together
+ * with the record of its version, so an interrupted upgrade resumes where
+ * it stopped and existing data is kept.
+ */
+public final class SchemaMigrations {
+
+    /**
+     * A database query that creates the table of applied versions.
+     */
+    private static final String CREATE_VERSION_TABLE
+            = "CREATE TABLE IF NOT EXISTS SCHEMA_VERSION(VERSION INTEGER PRIMARY KEY, "
+            + "DESCRIPTION TEXT, APPLIED_AT INTEGER NOT NULL)";
+
+    /**
+     * A database query that selects the current version.
+     */
+    private static final String SELECT_VERSION_QUERY
+            = "SELECT COALESCE(MAX(VERSION), 0) AS VERSION FROM SCHEMA_VERSION";
+
+    /**
+     * A database query that records an applied version.
+     */
+    private static final String INSERT_VERSION_QUERY
+            = "INSERT INTO SCHEMA_VERSION(VERSION, DESCRIPTION, APPLIED_AT) VALUES(?, ?, ?)";
+
+    /**
+     * Represents a Logger retrieved by the Manager class.
+     */
+    private static final Logger LOG = Manager.getLogger("SchemaMigrations");
+
+    /**
+     * Represents one step of the schema.
+     */
+    private static final class Migration {
+        /**
+         * Represents the version reached by this migration.
+         */
+        private final int version;
+
+        /**
+         * Represents what this migration does.
+         */
+        private final String description;
+
+        /**
+         * Represents the statements of this migration, run in order.
+         */
+        private final List<String> statements;
+
+        /**
+         * Constructs a Migration.
+         *
+         * @param version the version reached by the migration.
+         *
+         * @param description what the migration does.
+         *
+         * @param statements the statements of the migration.
+         */
+        private Migration(int version, String description, String... statements) {
+            this.version = version;
+            this.description = description;
+            this.statements = List.of(statements);
+        }
+    }
+
+    /**
+     * Represents the migrations, ordered by version. Applied migrations
+     * must never be changed; new ones are appended.
+     */
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "Create the stations and observations tables",
+                    "CREATE TABLE IF NOT EXISTS STATIONS("
+                            + "ID INTEGER PRIMARY KEY AUTOINCREMENT, "
+                            + "STATION_ID TEXT NOT NULL, "
+                            + "STATE TEXT, "
+                            + "STATION_NAME TEXT)",
+                    "CREATE TABLE IF NOT EXISTS OBSERVATIONS("
+                            + "STATION_ID TEXT PRIMARY KEY, "
+                            + "LOCATION TEXT, "
+                            + "OBSERVATION_TIME TEXT, "
+                            + "OBSERVATION_TIME_RFC822 TEXT, "
+                            + "TEMPERATURE TEXT, "
+                            + "DEWPOINT TEXT, "
+                            + "HUMIDITY TEXT, "
+                            + "WIND TEXT, "
+                            + "PRESSURE TEXT, "
+                            + "PICKUP_PERIOD INTEGER, "
+                            + "SAVED_AT INTEGER)"),
+            new Migration(2, "Remove duplicate stations, make station IDs unique and index states",
+                    "DELETE FROM STATIONS WHERE ID NOT IN (SELECT MAX(ID) FROM STATIONS GROUP BY STATION_ID)",
+                    "CREATE UNIQUE INDEX IF NOT EXISTS STATIONS_STATION_ID ON STATIONS(STATION_ID)",
+                    "CREATE INDEX IF NOT EXISTS STATIONS_STATE ON STATIONS(STATE)"),
+            new Migration(3, "Create the observation history table",
+                    "CREATE TABLE IF NOT EXISTS OBSERVATION_HISTORY("
+                            + "STATION_ID TEXT NOT NULL, "
+                            + "OBSERVED_AT INTEGER NOT NULL, "
+                            + "OBSERVATION_TIME_RFC822 TEXT NOT NULL, "
+                            + "LOCATION TEXT, "
+                            + "OBSERVATION_TIME TEXT, "
+                            + "TEMPERATURE TEXT, "
+                            + "DEWPOINT TEXT, "
+                            + "HUMIDITY TEXT, "
+                            + "WIND TEXT, "
+                            + "PRESSURE TEXT, "
+                            + "PRIMARY KEY(STATION_ID, OBSERVED_AT)) WITHOUT ROWID"));
+
+    /**
+     * SchemaMigrations only has static members.
+     */
+    private SchemaMigrations() {
+    }
+
+    /**
+     * Gets the version the migrations bring the schema to.
+     *
+     * @return the latest version.
+     */
+    public static int getLatestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+    }
+
+    /**
+     * Applies every migration newer than the version of the local files.
+     *
+     * @return the version of the schema afterwards.
+     *
+     * @throws DAOException if a migration fails; the migrations applied
+     * before it are kept.
+     */
+    public static int migrate() throws DAOException {
+        try(var pooled = ConnectionPool.getInstance().borrow()) {
+            return migrate(pooled.getConnection());
+        } catch (SQLException sQLEx) {
+            LOG.log(Level.SEVERE, sQLEx.getMessage(), sQLEx);
+            throw new DAOException(sQLEx.getMessage());
+        }
+    }
+
+    /**
+     * Applies every migration newer than the version of the database of
+     * the given connection.
+     *
+     * @param connection the given connection.
+     *
+     * @return the version of the schema afterwards.
+     *
+     * @throws SQLException if a migration fails; the migrations applied
+     * before it are kept.
+     */
+    static int migrate(Connection connection) throws SQLException {
+        try(var statement = connection.createStatement()) {
+            statement.executeUpdate(CREATE_VERSION_TABLE);
+        }
+        var version = currentVersion(connection);
+        for(var migration : MIGRATIONS) {
+            if(migration.version > version) {
+                apply(connection, migration);
+                version = migration.version;
+            } // else the migration has been applied doNothing();
+        }
+        return version;
+    }
+
+    /**
+     * Gets the version of the schema of the given connection.
+     *
+     * @param connection the given connection.
+     *
+     * @return the version, 0 if no migration has been applied.
+     *
+     * @throws SQLException if the version cannot be read.
+     */
+    private static int currentVersion(Connection connection) throws SQLException {
+        try(var statement = connection.prepareStatement(SELECT_VERSION_QUERY);
+            var resultSet = statement.executeQuery()) {
+            return resultSet.next() ? resultSet.getInt("VERSION") : 0;
+        }
+    }
+
+    /**
+     * Applies the given migration and records its version in one
+     * transaction.
+     *
+     * @param connection the connection to the local files.
+     *
+     * @param migration the given migration.
+     *
+     * @throws SQLException if the migration fails; it is rolled back.
+     */
+    private static void apply(Connection connection, Migration migration) throws SQLException {
+        LOG.log(Level.INFO, String.format("Migrating schema to version %d: %s.",
+                migration.version, migration.description));
+        connection.setAutoCommit(false);
+        try {
+            try(var statement = connection.createStatement()) {
+                for(var sql : migration.statements) {
+                    statement.executeUpdate(sql);
+                }
+            }
+            try(var statement = connection.prepareStatement(INSERT_VERSION_QUERY)) {
+                statement.setInt(1, migration.version);
+                statement.setString(2, migration.description);
+                statement.setLong(3, System.currentTimeMillis());
+                statement.executeUpdate();
+            }
+            connection.commit();
+        } catch (SQLException sQLEx) {
+            connection.rollback();
+            throw sQLEx;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package weather;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent requests for the same key. While a request for a
+ * key is in flight, further callers asking for that key share it instead
+ * of starting their own, and all of them receive its result. The request
+ * is cancelled once every caller sharing it has cancelled its future.
+ *
+ * @param <K> the type of the keys.
+ *
+ * @param <V> the type of the results.
+ */
+public final class SingleFlight<K, V> {
+
+    /**
+     * Represents a request in flight and the callers sharing it.
+     */
+    private final class Flight {
+        /**
+         * Represents the key of the request.
+         */
+        private final K key;
+
+        /**
+         * Represents the result of the request, shared by the callers.
+         */
+        private final CompletableFuture<V> shared = new CompletableFuture<>();
+
+        /**
+         * Represents the request started by the loader.
+         */
+        private CompletableFuture<V> request;
+
+        /**
+         * Represents the number of callers whose future is neither
+         * cancelled nor complete.
+         */
+        private int subscribers;
+
+        /**
+         * Tells whether every caller cancelled, so no caller may join.
+         */
+        private boolean abandoned;
+
+        /**
+         * Constructs a Flight for the given key.
+         *
+         * @param key the given key.
+         */
+        private Flight(K key) {
+            this.key = key;
+        }
+
+        /**
+         * Adds a caller to this flight.
+         *
+         * @return the future of the caller, or null if the flight has
+         * been abandoned.
+         */
+        private CompletableFuture<V> subscribe() {
+            synchronized(this) {
+                if(this.abandoned) {
+                    return null;
+                } // else the request is still wanted doNothing();
+                this.subscribers++;
+            }
+            var copy = this.shared.copy();
+            copy.whenComplete((result, ex) -> {
+                if(copy.isCancelled()) {
+                    this.unsubscribe();
+                } // else the request completed doNothing();
+            });
+            return copy;
+        }
+
+        /**
+         * Removes a caller that cancelled its future, and cancels the
+         * request if it was the last one.
+         */
+        private void unsubscribe() {
+            CompletableFuture<V> abandonedRequest;
+            synchronized(this) {
+                this.subscribers--;
+                if(this.subscribers > 0 || this.shared.isDone()) {
+                    return;
+                } // else nobody waits for the request doNothing();
+                this.abandoned = true;
+                abandonedRequest = this.request;
+            }
+            SingleFlight.this.inFlight.remove(this.key, this);
+            this.shared.cancel(false);
+            if(abandonedRequest != null) {
+                abandonedRequest.cancel(true);
+            } // else the request has not been started doNothing();
+        }
+
+        /**
+         * Starts the request of this flight with the given loader.
+         *
+         * @param loader starts a request for a key.
+         */
+        private void start(Function<K, CompletableFuture<V>> loader) {
+            CompletableFuture<V> started;
+            try {
+                started = loader.apply(this.key);
+            } catch (RuntimeException ex) {
+                started = CompletableFuture.failedFuture(ex);
+            }
+            boolean cancelled;
+            synchronized(this) {
+                this.request = started;
+                cancelled = this.abandoned;
+            }
+            if(cancelled) {
+                started.cancel(true);
+            } // else a caller still waits doNothing();
+            started.whenComplete((result, ex) -> {
+                SingleFlight.this.inFlight.remove(this.key, this);
+                if(ex != null) {
+                    this.shared.completeExceptionally(ex);
+                } else {
+                    this.shared.complete(result);
+                }
+            });
+        }
+    }
+
+    /**
+     * Represents the requests in flight by key.
+     */
+    private final Map<K, Flight> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Represents the number of requests actually started.
+     */
+    private final AtomicLong issued = new AtomicLong();
+
+    /**
+     * Represents the number of callers that joined a request in flight.
+     */
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Gets the result for the given key, joining the request in flight
+     * for that key or starting one with the given loader. Every caller
+     * receives its own copy of the shared future, so a caller cancelling
+     * its copy does not affect the others; the request itself is
+     * cancelled when the last caller waiting for it cancels.
+     *
+     * @param key the given key.
+     *
+     * @param loader starts a request for a key.
+     *
+     * @return a future holding the result for the key.
+     */
+    public CompletableFuture<V> execute(K key, Function<K, CompletableFuture<V>> loader) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(loader);
+        while(true) {
+            var flight = new Flight(key);
+            var existing = this.inFlight.putIfAbsent(key, flight);
+            if(existing == null) {
+                this.issued.incrementAndGet();
+                var copy = flight.subscribe();
+                flight.start(loader);
+                return copy;
+            } // else a request for the key is in flight doNothing();
+            var copy = existing.subscribe();
+            if(copy != null) {
+                this.coalesced.incrementAndGet();
+                return copy;
+            } // else the request has just been abandoned doNothing();
+            this.inFlight.remove(key, existing);
+        }
+    }
+
+    /**
+     * Gets the number of requests actually started.
+     *
+     * @return the number of issued requests.
+     */
+    public long getIssuedCount() {
+        return this.issued.get();
+    }
+
+    /**
+     * Gets the number of callers that joined a request in flight.
+     *
+     * @return the number of coalesced requests.
+     */
+    public long getCoalescedCount() {
+        return this.coalesced.get();
+    }
+
+    /**
+     * Gets the number of requests in flight.
+     *
+     * @return the number of requests in flight.
+     */
+    public int getInFlightCount() {
+        return this.inFlight.size();
+    }
+}
@@ -109,6 +109,18 @@ implements Comparable<Station> {
         this.stationName = stationName;
     }
 
+    /**
+     * Estimates the number of bytes retained by the station.
+     *
+     * @return the estimated number of bytes.
+     */
+    public long estimateSize() {
+        return WeightedCache.sizeOfObject(3)
+                + WeightedCache.sizeOf(this.stationId)
+                + WeightedCache.sizeOf(this.state)
+                + WeightedCache.sizeOf(this.stationName);
+    }
+
     /**
      * {@inheritDoc}
      */
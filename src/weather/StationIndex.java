@@ -0,0 +1,336 @@
+package weather;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Represents an immutable snapshot of the NOAA station index, partitioned
+ * by state. One snapshot is shared by the whole application; it is loaded
+ * once, refreshed in the background and replaced by an atomic swap, so
+ * readers never block on a refresh or see a partially built index.
+ */
+public final class StationIndex {
+
+    /**
+     * Represents the URL from which the stations data can be accessed.
+     */
+    private static final String STATIONS_URL = WebClient.url("index.xml");
+
+    /**
+     * Represents the name of the system property with the refresh period
+     * in minutes.
+     */
+    public static final String REFRESH_PROPERTY = "weather.index.refreshMinutes";
+
+    /**
+     * Represents the number of minutes between background refreshes.
+     */
+    private static final long REFRESH_MINUTES = Long.getLong(REFRESH_PROPERTY, 60L);
+
+    /**
+     * Represents the false positive probability of the filter of station IDs.
+     */
+    private static final double ID_FILTER_FALSE_POSITIVES = 0.01;
+
+    /**
+     * Represents the snapshot currently published, or null before the
+     * first load.
+     */
+    private static final AtomicReference<StationIndex> CURRENT = new AtomicReference<>();
+
+    /**
+     * Represents the scheduler of the background refresh, or null if it is
+     * not started yet.
+     */
+    private static ScheduledExecutorService refresher;
+
+    /**
+     * Represents a Logger retrieved by the Manager class.
+     */
+    private static final Logger LOG = Manager.getLogger("StationIndex");
+
+    /**
+     * Represents the stations of each state.
+     */
+    private final Map<String, List<Station>> stationsByState;
+
+    /**
+     * Represents the sorted list of states.
+     */
+    private final List<String> states;
+
+    /**
+     * Represents the number of stations in this index.
+     */
+    private final int size;
+
+    /**
+     * Represents the time at which this index was loaded.
+     */
+    private final Instant loadedAt;
+
+    /**
+     * Represents the pickup period suggested by the index.
+     */
+    private final Duration pickupPeriod;
+
+    /**
+     * Represents the IDs of the stations in this index.
+     */
+    private final BloomFilter stationIds;
+
+    /**
+     * Constructs a StationIndex from the given stations grouped by state.
+     *
+     * @param stationsByState the given stations grouped by state.
+     *
+     * @param pickupPeriod the pickup period suggested by the index.
+     */
+    private StationIndex(Map<String, List<Station>> stationsByState, Duration pickupPeriod) {
+        var partitions = new HashMap<String, List<Station>>();
+        var size = 0;
+        for(var entry : stationsByState.entrySet()) {
+            partitions.put(entry.getKey(), Collections.unmodifiableList(new ArrayList<>(entry.getValue())));
+            size += entry.getValue().size();
+        }
+        var stationIds = new BloomFilter(size, ID_FILTER_FALSE_POSITIVES);
+        for(var stations : partitions.values()) {
+            for(var station : stations) {
+                stationIds.add(station.getStationId());
+            }
+        }
+        var states = new ArrayList<>(partitions.keySet());
+        Collections.sort(states);
+        this.stationsByState = Collections.unmodifiableMap(partitions);
+        this.states = Collections.unmodifiableList(states);
+        this.size = size;
+        this.loadedAt = Instant.now();
+        this.pickupPeriod = pickupPeriod;
+        this.stationIds = stationIds;
+    }
+
+    /**
+     * Gets the published snapshot, loading it first if no snapshot has
+     * been published yet.
+     *
+     * @return the published snapshot.
+     *
+     * @throws DAOException if the index cannot be loaded.
+     */
+    public static StationIndex get() throws DAOException {
+        var index = CURRENT.get();
+        if(index != null) {
+            return index;
+        } // else the index has not been loaded yet doNothing();
+        synchronized(CURRENT) {
+            index = CURRENT.get();
+            if(index == null) {
+                index = load();
+                CURRENT.set(index);
+                startBackgroundRefresh();
+            } // else another thread loaded the index doNothing();
+            return index;
+        }
+    }
+
+    /**
+     * Gets the published snapshot without loading it.
+     *
+     * @return the published snapshot, or an empty Optional if none has
+     * been loaded yet.
+     */
+    public static Optional<StationIndex> peek() {
+        return Optional.ofNullable(CURRENT.get());
+    }
+
+    /**
+     * Loads a new snapshot and publishes it in place of the current one.
+     * The current snapshot is kept if the index has not changed or its
+     * suggested pickup period has not passed yet.
+     *
+     * @return the new snapshot.
+     *
+     * @throws DAOException if the index cannot be loaded; the current
+     * snapshot is kept.
+     */
+    public static StationIndex refresh() throws DAOException {
+        var index = load();
+        if(CURRENT.getAndSet(index) != index) {
+            LOG.log(Level.INFO, String.format("Published station index with %d stations.", index.size()));
+        } // else the index has not changed doNothing();
+        return index;
+    }
+
+    /**
+     * Starts refreshing the snapshot periodically on a daemon thread.
+     */
+    private static synchronized void startBackgroundRefresh() {
+        if(refresher != null || REFRESH_MINUTES <= 0) {
+            return;
+        } // else the refresh is enabled and not started doNothing();
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "station-index-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (DAOException | RuntimeException ex) {
+                LOG.log(Level.WARNING, "Keeping the previous station index: " + ex.getMessage(), ex);
+            }
+        }, REFRESH_MINUTES, REFRESH_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Downloads and parses the full station index, unless the server
+     * reports it unchanged. If it cannot be downloaded before any index
+     * has been published, the copy stored on disk is used.
+     *
+     * @return a new snapshot, or the previous one if it is still current.
+     *
+     * @throws DAOException if the index cannot be downloaded or parsed.
+     */
+    private static StationIndex load() throws DAOException {
+        try {
+            return ConditionalFetcher.fetch(STATIONS_URL, CURRENT.get(), StationIndex::parse,
+                    StationIndex::getPickupPeriod);
+        } catch (IOException ex) {
+            LOG.log(Level.SEVERE, ex.getMessage(), ex);
+            var previous = CURRENT.get();
+            if(previous != null) {
+                throw new DAOException(ex.getMessage());
+            } // else the stored index is better than none doNothing();
+            try {
+                var stored = ConditionalFetcher.parseStored(STATIONS_URL, StationIndex::parse);
+                if(stored.isPresent()) {
+                    LOG.log(Level.WARNING, "Using the stored station index until it can be downloaded.");
+                    return stored.get();
+                } // else no index has been stored doNothing();
+            } catch (IOException storedEx) {
+                LOG.log(Level.WARNING, "Cannot parse the stored station index: " + storedEx.getMessage(), storedEx);
+            }
+            throw new DAOException(ex.getMessage());
+        }
+    }
+
+    /**
+     * Parses a full station index.
+     *
+     * @param in the given index document.
+     *
+     * @return a new snapshot.
+     *
+     * @throws IOException if the document cannot be read or parsed.
+     */
+    private static StationIndex parse(InputStream in) throws IOException {
+        var stationsByState = new HashMap<String, List<Station>>();
+        try {
+            var pickupPeriod = StationIndexParser.parse(in, null, station ->
+                    stationsByState.computeIfAbsent(station.getState(), state -> new ArrayList<>()).add(station));
+            return new StationIndex(stationsByState, pickupPeriod);
+        } catch (XMLStreamException ex) {
+            throw new IOException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Gets the stations of the given state.
+     *
+     * @param state the given state.
+     *
+     * @return an unmodifiable list of stations, empty if the state is unknown.
+     */
+    public List<Station> getStations(String state) {
+        Objects.requireNonNull(state);
+        return this.stationsByState.getOrDefault(state, Collections.emptyList());
+    }
+
+    /**
+     * Tells whether the given station ID may be in this index. The answer
+     * is false only for IDs that are certainly not in the index.
+     *
+     * @param stationId the given station ID.
+     *
+     * @return false if the station is certainly unknown.
+     */
+    public boolean mightContain(String stationId) {
+        Objects.requireNonNull(stationId);
+        return this.stationIds.mightContain(stationId);
+    }
+
+    /**
+     * Tells whether the given station ID can be valid according to the
+     * published snapshot. Every ID is accepted while no snapshot has been
+     * loaded.
+     *
+     * @param stationId the given station ID.
+     *
+     * @return false if the station is certainly unknown.
+     */
+    public static boolean isKnown(String stationId) {
+        var index = CURRENT.get();
+        return index == null || index.mightContain(stationId);
+    }
+
+    /**
+     * Gets all stations grouped by state.
+     *
+     * @return an unmodifiable map from state to stations.
+     */
+    public Map<String, List<Station>> getStationsByState() {
+        return this.stationsByState;
+    }
+
+    /**
+     * Gets the sorted list of states.
+     *
+     * @return an unmodifiable list of states.
+     */
+    public List<String> getStates() {
+        return this.states;
+    }
+
+    /**
+     * Gets the number of stations in this index.
+     *
+     * @return the number of stations.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Gets the time at which this index was loaded.
+     *
+     * @return the load time.
+     */
+    public Instant getLoadedAt() {
+        return this.loadedAt;
+    }
+
+    /**
+     * Gets the pickup period suggested by the index.
+     *
+     * @return the pickup period.
+     */
+    public Duration getPickupPeriod() {
+        return this.pickupPeriod;
+    }
+}
@@ -0,0 +1,181 @@
+package weather;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Parses the NOAA station index (index.xml) with a streaming pull parser.
+ * Unlike binding the whole document into a WxStationIndexTO, only the
+ * station ID, state and name are read, and stations of other states are
+ * skipped as soon as their state is known. StationIndexParserBenchmark
+ * compares both on a saved copy of the index.
+ */
+public final class StationIndexParser {
+
+    /**
+     * Represents the name of the element holding a station.
+     */
+    private static final String STATION = "station";
+
+    /**
+     * Represents the name of the element holding the ID of a station.
+     */
+    private static final String STATION_ID = "station_id";
+
+    /**
+     * Represents the name of the element holding the state of a station.
+     */
+    private static final String STATE = "state";
+
+    /**
+     * Represents the name of the element holding the name of a station.
+     */
+    private static final String STATION_NAME = "station_name";
+
+    /**
+     * Represents the name of the element holding the suggested pickup
+     * period of the index in minutes.
+     */
+    private static final String SUGGESTED_PICKUP_PERIOD = "suggested_pickup_period";
+
+    /**
+     * Represents the factory of the pull parsers. Factories are thread-safe
+     * once configured.
+     */
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    /**
+     * StationIndexParser only has static members.
+     */
+    private StationIndexParser() {
+    }
+
+    /**
+     * Creates a factory that neither resolves external entities nor
+     * coalesces text it is not asked for.
+     *
+     * @return a configured factory.
+     */
+    private static XMLInputFactory createFactory() {
+        var factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        return factory;
+    }
+
+    /**
+     * Parses the given index and hands every station of the given
+     * state to the given consumer. If the state is null, every station
+     * is handed out.
+     *
+     * @param in the given index document.
+     *
+     * @param state the given state, or null for all states.
+     *
+     * @param consumer the consumer of the parsed stations.
+     *
+     * @return the suggested pickup period of the index, or zero if the
+     * index does not suggest one.
+     *
+     * @throws XMLStreamException if the document is malformed.
+     */
+    public static Duration parse(InputStream in, String state, Consumer<Station> consumer) throws XMLStreamException {
+        Objects.requireNonNull(in);
+        Objects.requireNonNull(consumer);
+        var pickupPeriod = Duration.ZERO;
+        var reader = FACTORY.createXMLStreamReader(in);
+        try {
+            while(reader.hasNext()) {
+                if(reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                } else if(STATION.equals(reader.getLocalName())) {
+                    var station = parseStation(reader, state);
+                    if(station != null) {
+                        consumer.accept(station);
+                    } // else the station is filtered out or incomplete doNothing();
+                } else if(SUGGESTED_PICKUP_PERIOD.equals(reader.getLocalName())) {
+                    pickupPeriod = ConditionalFetcher.pickupPeriod(reader.getElementText());
+                } // else the element is not needed doNothing();
+            }
+        } finally {
+            reader.close();
+        }
+        return pickupPeriod;
+    }
+
+    /**
+     * Parses the station the given reader is positioned on, leaving the
+     * reader on the end of the station element.
+     *
+     * @param reader a reader positioned on the start of a station.
+     *
+     * @param state the wanted state, or null for all states.
+     *
+     * @return the parsed station, or null if it is in another state or
+     * incomplete.
+     *
+     * @throws XMLStreamException if the document is malformed.
+     */
+    private static Station parseStation(XMLStreamReader reader, String state) throws XMLStreamException {
+        String stationId = null;
+        String stationState = null;
+        String stationName = null;
+        while(reader.hasNext()) {
+            var event = reader.next();
+            if(event == XMLStreamConstants.END_ELEMENT) {
+                break;
+            } else if(event == XMLStreamConstants.START_ELEMENT) {
+                switch(reader.getLocalName()) {
+                    case STATION_ID:
+                        stationId = reader.getElementText().trim();
+                        break;
+                    case STATE:
+                        stationState = reader.getElementText().trim();
+                        if(state != null && !state.equals(stationState)) {
+                            skipToEnd(reader);
+                            return null;
+                        } // else the station is wanted doNothing();
+                        break;
+                    case STATION_NAME:
+                        stationName = reader.getElementText().trim();
+                        break;
+                    default:
+                        skipToEnd(reader);
+                        break;
+                }
+            } // else the event is whitespace or a comment doNothing();
+        }
+        if(stationId == null || stationState == null || stationName == null) {
+            return null;
+        } else {
+            return new Station(stationId, stationState, stationName);
+        }
+    }
+
+    /**
+     * Skips the remainder of the element the reader is in, leaving the
+     * reader on its end element.
+     *
+     * @param reader a reader inside an element.
+     *
+     * @throws XMLStreamException if the document is malformed.
+     */
+    private static void skipToEnd(XMLStreamReader reader) throws XMLStreamException {
+        var depth = 1;
+        while(depth > 0 && reader.hasNext()) {
+            var event = reader.next();
+            if(event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if(event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            } // else the event has no children doNothing();
+        }
+    }
+}
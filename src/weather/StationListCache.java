@@ -0,0 +1,129 @@
+package weather;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Keeps the immutable list of stations of the states read so far, weighted
+ * by their estimated size, so the most requested states stay in memory
+ * within a budget. Every state has a generation that grows whenever its
+ * stations are invalidated; a list read before an invalidation of its
+ * state carries the older generation and is not kept, so a slow read can
+ * never bring back stations that changed meanwhile.
+ */
+public final class StationListCache {
+
+    /**
+     * Represents the expected number of bytes of a list of stations.
+     */
+    private static final long AVERAGE_LIST_BYTES = 32L * 1024;
+
+    /**
+     * Represents the lists of stations by state.
+     */
+    private final WeightedCache<String, List<Station>> stationsByState;
+
+    /**
+     * Represents the number of times the stations of each state were
+     * invalidated.
+     */
+    private final Map<String, Long> generations = new HashMap<>();
+
+    /**
+     * Represents the number of times all the stations were dropped.
+     */
+    private long clearedGeneration;
+
+    /**
+     * Constructs an empty StationListCache.
+     *
+     * @param maxBytes the memory budget of the cache, in bytes.
+     */
+    public StationListCache(long maxBytes) {
+        this.stationsByState = new WeightedCache<>(maxBytes, AVERAGE_LIST_BYTES,
+                stations -> WeightedCache.sizeOfObject(2) + WeightedCache.sizeOfObject(stations.size())
+                        + stations.stream().mapToLong(Station::estimateSize).sum());
+    }
+
+    /**
+     * Gets the stations of the given state kept in memory.
+     *
+     * @param state the given state.
+     *
+     * @return the stations, or an empty Optional if they have to be read.
+     */
+    public synchronized Optional<List<Station>> get(String state) {
+        Objects.requireNonNull(state);
+        return this.stationsByState.get(state);
+    }
+
+    /**
+     * Gets the generation of the stations of the given state. It is to be
+     * read before the stations are read and handed back to put.
+     *
+     * @param state the given state.
+     *
+     * @return the generation of the state.
+     */
+    public synchronized long getGeneration(String state) {
+        Objects.requireNonNull(state);
+        return this.clearedGeneration + this.generations.getOrDefault(state, 0L);
+    }
+
+    /**
+     * Keeps an immutable copy of the given stations of the given state,
+     * unless the stations of the state were invalidated since the given
+     * generation.
+     *
+     * @param state the given state.
+     *
+     * @param stations the stations of the state.
+     *
+     * @param generation the generation of the state when the stations
+     * were read.
+     *
+     * @return the immutable copy.
+     */
+    public List<Station> put(String state, List<Station> stations, long generation) {
+        Objects.requireNonNull(state);
+        var copy = List.copyOf(stations);
+        synchronized(this) {
+            if(this.getGeneration(state) == generation) {
+                this.stationsByState.put(state, copy);
+            } // else the stations may be stale doNothing();
+        }
+        return copy;
+    }
+
+    /**
+     * Drops the stations of the given state, so lists being read at the
+     * same time are not kept either.
+     *
+     * @param state the given state.
+     */
+    public synchronized void invalidate(String state) {
+        Objects.requireNonNull(state);
+        this.generations.merge(state, 1L, Long::sum);
+        this.stationsByState.invalidate(state);
+    }
+
+    /**
+     * Drops the stations of every state, so lists being read at the same
+     * time are not kept either.
+     */
+    public synchronized void clear() {
+        this.clearedGeneration++;
+        this.stationsByState.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return this.stationsByState.toString();
+    }
+}
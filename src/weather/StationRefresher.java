@@ -0,0 +1,253 @@
+package weather;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Refreshes the stations saved in the local files against the station
+ * index. The index is fetched once; the stations of the saved states are
+ * compared with the saved ones by station ID, and only the inserted,
+ * changed and removed stations are written, in one transaction, so the
+ * cost of a refresh follows the amount of change.
+ */
+public final class StationRefresher {
+
+    /**
+     * Represents the changes applied by a refresh.
+     */
+    public static final class Result {
+        /**
+         * Represents the number of stations added.
+         */
+        private final int inserted;
+
+        /**
+         * Represents the number of stations whose state or name changed.
+         */
+        private final int changed;
+
+        /**
+         * Represents the number of stations deleted.
+         */
+        private final int removed;
+
+        /**
+         * Represents the number of stations left as they were.
+         */
+        private final int unchanged;
+
+        /**
+         * Represents the states whose stations changed.
+         */
+        private final Set<String> affectedStates;
+
+        /**
+         * Represents the duration of the refresh in milliseconds.
+         */
+        private final long elapsedMillis;
+
+        /**
+         * Constructs a Result.
+         *
+         * @param inserted the number of stations added.
+         *
+         * @param changed the number of stations changed.
+         *
+         * @param removed the number of stations deleted.
+         *
+         * @param unchanged the number of stations left as they were.
+         *
+         * @param affectedStates the states whose stations changed.
+         *
+         * @param elapsedMillis the duration of the refresh in milliseconds.
+         */
+        private Result(int inserted, int changed, int removed, int unchanged,
+                       Set<String> affectedStates, long elapsedMillis) {
+            this.inserted = inserted;
+            this.changed = changed;
+            this.removed = removed;
+            this.unchanged = unchanged;
+            this.affectedStates = Collections.unmodifiableSet(affectedStates);
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        /**
+         * Gets the number of stations added.
+         *
+         * @return the number of stations added.
+         */
+        public int getInserted() {
+            return this.inserted;
+        }
+
+        /**
+         * Gets the number of stations whose state or name changed.
+         *
+         * @return the number of stations changed.
+         */
+        public int getChanged() {
+            return this.changed;
+        }
+
+        /**
+         * Gets the number of stations deleted.
+         *
+         * @return the number of stations deleted.
+         */
+        public int getRemoved() {
+            return this.removed;
+        }
+
+        /**
+         * Gets the number of stations left as they were.
+         *
+         * @return the number of stations unchanged.
+         */
+        public int getUnchanged() {
+            return this.unchanged;
+        }
+
+        /**
+         * Gets the states whose stations changed, before or after the
+         * refresh.
+         *
+         * @return an unmodifiable set of states.
+         */
+        public Set<String> getAffectedStates() {
+            return this.affectedStates;
+        }
+
+        /**
+         * Gets the duration of the refresh.
+         *
+         * @return the duration in milliseconds.
+         */
+        public long getElapsedMillis() {
+            return this.elapsedMillis;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder("Result{");
+            sb.append("inserted=").append(inserted);
+            sb.append(", changed=").append(changed);
+            sb.append(", removed=").append(removed);
+            sb.append(", unchanged=").append(unchanged);
+            sb.append(", affectedStates=").append(affectedStates);
+            sb.append(", elapsedMillis=").append(elapsedMillis);
+            sb.append('}');
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Represents a Logger retrieved by the Manager class.
+     */
+    private static final Logger LOG = Manager.getLogger("StationRefresher");
+
+    /**
+     * Represents the DAO of the local files.
+     */
+    private final LocalWeatherModelDAO local;
+
+    /**
+     * Constructs a StationRefresher of the given local files.
+     *
+     * @param local the DAO of the local files.
+     */
+    public StationRefresher(LocalWeatherModelDAO local) {
+        this.local = Objects.requireNonNull(local);
+    }
+
+    /**
+     * Refreshes the stations of the saved states against the station
+     * index. Nothing is written if nothing changed.
+     *
+     * @return the changes applied.
+     *
+     * @throws DAOException if the index or the local files cannot be
+     * accessed; the local files are left as they were.
+     */
+    public Result refresh() throws DAOException {
+        var start = System.nanoTime();
+        var index = StationIndex.refresh();
+        return this.refresh(index::getStations, start);
+    }
+
+    /**
+     * Refreshes the stations of the saved states against the given
+     * stations of each state. Nothing is written if nothing changed.
+     *
+     * @param stationsOfState gets the stations of a state in the index.
+     *
+     * @param start the value of System.nanoTime when the refresh started.
+     *
+     * @return the changes applied.
+     *
+     * @throws DAOException if the local files cannot be accessed; they
+     * are left as they were.
+     */
+    Result refresh(Function<String, List<Station>> stationsOfState, long start) throws DAOException {
+        var saved = this.local.getAllStations().orElse(List.of());
+
+        var savedById = new HashMap<String, Station>();
+        var states = new TreeSet<String>();
+        for(var station : saved) {
+            savedById.put(station.getStationId(), station);
+            states.add(station.getState());
+        }
+        var indexed = new HashMap<String, Station>();
+        for(var state : states) {
+            for(var station : stationsOfState.apply(state)) {
+                indexed.put(station.getStationId(), station);
+            }
+        }
+
+        var upserts = new ArrayList<Station>();
+        var removed = new ArrayList<String>();
+        var affectedStates = new TreeSet<String>();
+        var inserted = 0;
+        var changed = 0;
+        for(var station : indexed.values()) {
+            var previous = savedById.get(station.getStationId());
+            if(previous == null) {
+                inserted++;
+            } else if(!previous.equals(station)) {
+                changed++;
+                affectedStates.add(previous.getState());
+            } else {
+                continue;
+            }
+            upserts.add(station);
+            affectedStates.add(station.getState());
+        }
+        for(var station : savedById.values()) {
+            if(!indexed.containsKey(station.getStationId())) {
+                removed.add(station.getStationId());
+                affectedStates.add(station.getState());
+            } // else the station is still in the index doNothing();
+        }
+
+        if(!upserts.isEmpty() || !removed.isEmpty()) {
+            this.local.applyStationChanges(upserts, removed);
+        } // else the local files are up to date doNothing();
+        var result = new Result(inserted, changed, removed.size(), indexed.size() - upserts.size(),
+                affectedStates, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        LOG.log(Level.INFO, String.format("Refreshed %d states: %d added, %d changed, %d removed in %d ms.",
+                states.size(), result.getInserted(), result.getChanged(), result.getRemoved(),
+                result.getElapsedMillis()));
+        return result;
+    }
+}
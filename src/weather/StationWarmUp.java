@@ -0,0 +1,147 @@
+package weather;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Saves the stations of every state to the local files in the background
+ * at startup, in one pass over the station index, so the first selection
+ * of a state is served from the local files. States already saved are
+ * skipped.
+ */
+public final class StationWarmUp {
+
+    /**
+     * Represents the name of the system property that disables the warm-up.
+     */
+    public static final String DISABLED_PROPERTY = "weather.warmup.disabled";
+
+    /**
+     * Represents a Logger retrieved by the Manager class.
+     */
+    private static final Logger LOG = Manager.getLogger("StationWarmUp");
+
+    /**
+     * Represents the number of states saved by the warm-up.
+     */
+    private static final AtomicInteger SAVED_STATES = new AtomicInteger();
+
+    /**
+     * Tells whether the warm-up has been started.
+     */
+    private static boolean started;
+
+    /**
+     * Tells whether the warm-up has been cancelled.
+     */
+    private static volatile boolean cancelled;
+
+    /**
+     * Tells whether the warm-up has finished.
+     */
+    private static volatile boolean done;
+
+    /**
+     * StationWarmUp only has static members.
+     */
+    private StationWarmUp() {
+    }
+
+    /**
+     * Starts the warm-up on the load executor, unless it is disabled or
+     * already started.
+     */
+    public static synchronized void start() {
+        if(started || Boolean.getBoolean(DISABLED_PROPERTY)) {
+            return;
+        } // else the warm-up has to run doNothing();
+        started = true;
+        try {
+            LoadExecutor.submit(StationWarmUp::run);
+        } catch (RejectedExecutionException ex) {
+            LOG.log(Level.WARNING, "Cannot start the station warm-up: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Saves the stations of every state missing from the local files.
+     */
+    private static void run() {
+        var start = System.nanoTime();
+        try {
+            var index = StationIndex.get();
+            if(!saveMissingStates(index.getStates(), index::getStations, WeatherModel::saveStationsIfAbsent)) {
+                LOG.log(Level.INFO, "Station warm-up cancelled.");
+                return;
+            } // else every state has been visited doNothing();
+            done = true;
+            LOG.log(Level.INFO, String.format("Station warm-up saved %d states in %d ms.",
+                    SAVED_STATES.get(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        } catch (DAOException | RuntimeException ex) {
+            LOG.log(Level.WARNING, "Station warm-up failed: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Saves the sorted stations of each of the given states, unless the
+     * state is already saved, stopping before the next state once the
+     * warm-up is cancelled.
+     *
+     * @param states the given states.
+     *
+     * @param stationsOfState gets the stations of a state in the index.
+     *
+     * @param saveIfAbsent saves the stations of a state unless it is
+     * saved, and tells whether it saved them.
+     *
+     * @return true if every state has been visited, false if the warm-up
+     * was cancelled.
+     */
+    static boolean saveMissingStates(List<String> states, Function<String, List<Station>> stationsOfState,
+                                     BiPredicate<String, List<Station>> saveIfAbsent) {
+        for(var state : states) {
+            if(cancelled) {
+                return false;
+            } // else the next state is saved if missing doNothing();
+            var stations = new ArrayList<>(stationsOfState.apply(state));
+            Collections.sort(stations);
+            if(saveIfAbsent.test(state, stations)) {
+                SAVED_STATES.incrementAndGet();
+            } // else the state was saved meanwhile doNothing();
+        }
+        return true;
+    }
+
+    /**
+     * Stops the warm-up before the next state.
+     */
+    public static void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Tells whether the warm-up has saved every state.
+     *
+     * @return true if the warm-up has finished.
+     */
+    public static boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Gets the number of states saved by the warm-up.
+     *
+     * @return the number of saved states.
+     */
+    public static int getSavedStates() {
+        return SAVED_STATES.get();
+    }
+}
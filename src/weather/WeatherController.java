@@ -1,5 +1,6 @@
 package weather;
 
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 
@@ -92,12 +93,14 @@ public final class WeatherController {
         @Override
         public void handle(ActionEvent actionEvent) {
             try {
+                WeatherModel.cancelPrefetch();
                 var state = WeatherController.this.view.getStateQuery();
                 var stations = WeatherModel.getStations(state);
                 WeatherController.this.model.setState(state);
                 WeatherController.this.model.setStations(stations);
                 WeatherController.this.model.setCurrentObservation(CurrentObservation.EMPTY);
                 WeatherController.this.view.onModelUpdate(WeatherController.this.model);
+                WeatherModel.prefetchCurrentObservations(stations);
             } catch (DataAccessException ex) {
                 LOG.log(Level.SEVERE, ex.getMessage(), ex);
                 WeatherController.this.onException(ex);
@@ -133,18 +136,20 @@ public final class WeatherController {
          */
         @Override
         public void handle(ActionEvent actionEvent) {
-            try {
-                var states = WeatherModel.getAllLocalStates();
-                WeatherModel.deleteAllLocalData();
-                for(var state : states) {
-                    WeatherModel.getStations(state);
-                }
+            WeatherModel.refreshLocalStationsAsync().whenComplete((result, ex) -> Platform.runLater(() -> {
+                if(ex != null) {
+                    var cause = Futures.unwrap(ex);
+                    LOG.log(Level.SEVERE, cause.getMessage(), cause);
+                    WeatherController.this.onException(cause instanceof DataAccessException
+                            ? cause.getMessage()
+                            : "Cannot refresh local data. Contact support.");
+                    return;
+                } // else the refresh succeeded doNothing();
                 WeatherController.this.model.setCurrentObservation(CurrentObservation.EMPTY);
-                WeatherController.this.onException("All local data are refreshed.");
-            } catch (DataAccessException ex) {
-                LOG.log(Level.SEVERE, ex.getMessage(), ex);
-                WeatherController.this.onException(ex);
-            }
+                WeatherController.this.onException(String.format(
+                        "All local data are refreshed: %d added, %d changed, %d removed.",
+                        result.getInserted(), result.getChanged(), result.getRemoved()));
+            }));
         }
     }
 }
@@ -2,12 +2,18 @@ package weather;
 
 import javafx.scene.chart.XYChart;
 
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -31,7 +37,47 @@ public final class WeatherModel {
     /**
      * It is used to access the data to initialize a weather model update.
      */
-    private final static WeatherModelDAO LOCAL_DAO = new WeatherModelDAOSqlImpl();
+    private final static LocalWeatherModelDAO LOCAL_DAO = WriteBehindBuffer.getInstance();
+
+    /**
+     * It is used to download stations missing from the local data.
+     */
+    private final static WeatherModelDAO REMOTE_DAO = new WeatherModelDAOWebImpl();
+
+    /**
+     * It is used to access the data to initialize a current observation update.
+     */
+    private final static CurrentObservationDAO OBSERVATION_DAO = CachedCurrentObservationDAO.getInstance();
+
+    /**
+     * Represents the name of the system property with the memory budget
+     * of the station lists kept in memory, in bytes.
+     */
+    public final static String STATION_CACHE_BYTES_PROPERTY = "weather.stations.cacheMaxBytes";
+
+    /**
+     * Represents the stations of the states read so far, invalidated
+     * whenever the local data of a state changes.
+     */
+    private final static StationListCache STATIONS_BY_STATE
+            = new StationListCache(Long.getLong(STATION_CACHE_BYTES_PROPERTY, 8L * 1024 * 1024));
+
+    /**
+     * Refreshes the saved stations against the station index.
+     */
+    private final static StationRefresher REFRESHER = new StationRefresher(LOCAL_DAO);
+
+    /**
+     * Serializes the checks and writes of the saved stations, apart from
+     * the monitor of the stations kept in memory so reads of that cache
+     * never wait for the local files.
+     */
+    private final static Object SAVE_LOCK = new Object();
+
+    /**
+     * Warms the observation cache with the stations of the loaded state.
+     */
+    private final static ObservationPrefetcher PREFETCHER = ObservationPrefetcher.fromSystemProperties();
 
     /**
      * Represents a Logger retrieved by the Manager class.
@@ -57,24 +103,46 @@ public final class WeatherModel {
      * @return a list of stations from the given state.
      */
     public static List<Station> getStations(String state) {
+        return join(getStationsAsync(state), "Cannot access station data. Contact support.");
+    }
+
+    /**
+     * Gets a list of stations from the given state without blocking
+     * the caller. The list is served from memory if the state was read
+     * before; otherwise it is retrieved from local files, and if not
+     * found in these files, it is downloaded from the server and saved.
+     *
+     * @param state the given state.
+     *
+     * @return a future holding an unmodifiable list of stations from the
+     * given state.
+     */
+    public static CompletableFuture<List<Station>> getStationsAsync(String state) {
         Objects.requireNonNull(state);
-        try{
-            var list = LOCAL_DAO.getStations(state);
+        long generation;
+        synchronized(STATIONS_BY_STATE) {
+            var cached = STATIONS_BY_STATE.get(state);
+            if(cached.isPresent()) {
+                return CompletableFuture.completedFuture(cached.get());
+            } // else the state has to be read doNothing();
+            generation = STATIONS_BY_STATE.getGeneration(state);
+        }
+        var local = LOCAL_DAO.getStationsAsync(state);
+        return Futures.propagateCancel(local, local.thenCompose(list -> {
             if(list.isPresent()) {
-                var result = list.get();
-                return result;
-            } else{
-                var executor = Executors.newSingleThreadExecutor();
-                var result = executor.submit(new LoadStations(state)).get().get();
-                Collections.sort(result);
-                saveStations(result);
-                return result;
+                return CompletableFuture.completedFuture(STATIONS_BY_STATE.put(state, list.get(), generation));
+            } else {
+                return REMOTE_DAO.getStationsAsync(state).thenApply(remote -> {
+                    var result = remote.orElseThrow(
+                            () -> new NotFoundException(String.format("There is no station in %s.", state)));
+                    Collections.sort(result);
+                    var saved = saveStationsIfAbsent(state, result);
+                    // saving the stations invalidated their state once
+                    var savedState = saved && result.stream().anyMatch(station -> state.equals(station.getState()));
+                    return STATIONS_BY_STATE.put(state, result, savedState ? generation + 1 : generation);
+                });
             }
-        } catch (DAOException | InterruptedException | ExecutionException ex) {
-            LOG.log(Level.SEVERE, ex.getMessage(), ex);
-            System.out.println(ex);
-            throw new DataAccessException("Cannot access station data. Contact support.");
-        }
+        }));
     }
 
     /**
@@ -86,19 +154,109 @@ public final class WeatherModel {
      * @return the current observation with the given ID.
      */
     public static CurrentObservation getCurrentObservation(String stationId) {
+        return join(getCurrentObservationAsync(stationId),
+                "Cannot connect to weather conditions. Contact support.");
+    }
+
+    /**
+     * Gets a current observation with the given station ID from the
+     * server without blocking the caller. The returned future can be
+     * composed, given a timeout or cancelled. Concurrent callers asking
+     * for the same station share one request.
+     *
+     * @param stationId the given station ID.
+     *
+     * @return a future holding the current observation with the given ID.
+     */
+    public static CompletableFuture<CurrentObservation> getCurrentObservationAsync(String stationId) {
         Objects.requireNonNull(stationId);
+        var request = OBSERVATION_DAO.getAsync(stationId);
+        return Futures.propagateCancel(request, request.thenApply(result -> result.orElseThrow(
+                () -> new NotFoundException("Cannot get weather conditions of the station."))));
+    }
+
+    /**
+     * Gets the number of current observation requests sent to the server.
+     *
+     * @return the number of issued requests.
+     */
+    public static long getIssuedObservationRequests() {
+        return CurrentObservationDAOWebImpl.getIssuedRequestCount();
+    }
+
+    /**
+     * Starts fetching the current observations of the given stations in
+     * the background, in place of the stations given before.
+     *
+     * @param stations the stations of the loaded state.
+     */
+    public static void prefetchCurrentObservations(List<Station> stations) {
+        PREFETCHER.prefetch(stations);
+    }
+
+    /**
+     * Stops fetching current observations in the background.
+     */
+    public static void cancelPrefetch() {
+        PREFETCHER.cancel();
+    }
+
+    /**
+     * Gets the number of current observation requests that joined a
+     * request for the same station already in flight.
+     *
+     * @return the number of coalesced requests.
+     */
+    public static long getCoalescedObservationRequests() {
+        return CurrentObservationDAOWebImpl.getCoalescedRequestCount();
+    }
+
+    /**
+     * Gets a summary of the station lists kept in memory: their estimated
+     * size, hit ratio and evictions.
+     *
+     * @return a summary of the station cache.
+     */
+    public static String getStationCacheStats() {
+        return STATIONS_BY_STATE.toString();
+    }
+
+    /**
+     * Waits for the given future. A DataAccessException raised by the
+     * future is rethrown as is; any other failure is logged and
+     * reported with the given message.
+     *
+     * @param future the given future.
+     *
+     * @param message the message reported on failure.
+     *
+     * @param <T> the type of the result.
+     *
+     * @return the result of the future.
+     */
+    private static <T> T join(CompletableFuture<T> future, String message) {
         try {
-            var executor = Executors.newSingleThreadExecutor();
-            var result = executor.submit(new LoadCurrentObservation(stationId)).get().get();
-            return result;
-        } catch (InterruptedException | ExecutionException ex) {
+            return future.get();
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
             LOG.log(Level.SEVERE, ex.getMessage(), ex);
-            throw new DataAccessException("Cannot connect to weather conditions. Contact support.");
+            throw new DataAccessException(message);
+        } catch (ExecutionException | CancellationException ex) {
+            var cause = Futures.unwrap(ex);
+            LOG.log(Level.SEVERE, cause.getMessage(), cause);
+            if(cause instanceof DataAccessException) {
+                throw (DataAccessException) cause;
+            } else {
+                throw new DataAccessException(message);
+            }
         }
     }
 
     /**
-     * Saves a given list of stations to the local files.
+     * Saves a given list of stations to the local files. The write is
+     * queued and flushed in the background. The stations kept in memory
+     * for the states of the given stations are dropped, once per state.
      *
      * @param stations a given list of stations.
      */
@@ -108,11 +266,119 @@ public final class WeatherModel {
         } catch (DAOException ex) {
             LOG.log(Level.SEVERE, ex.getMessage(), ex);
             throw new DataAccessException("Cannot save stations. Contact support.");
+        } finally {
+            var states = new HashSet<String>();
+            for(var station : stations) {
+                states.add(station.getState());
+            }
+            states.forEach(STATIONS_BY_STATE::invalidate);
+        }
+    }
+
+    /**
+     * Saves the given stations of the given state to the local files
+     * unless the local files already hold stations of that state. Both
+     * the warm-up and the first selection of a state save stations this
+     * way, so a state is never saved twice.
+     *
+     * @param state the given state.
+     *
+     * @param stations the stations of the state.
+     *
+     * @return true if the stations were saved.
+     */
+    public static boolean saveStationsIfAbsent(String state, List<Station> stations) {
+        Objects.requireNonNull(state);
+        Objects.requireNonNull(stations);
+        synchronized(SAVE_LOCK) {
+            try {
+                if(LOCAL_DAO.getStations(state).isPresent()) {
+                    return false;
+                } // else the state has not been saved yet doNothing();
+            } catch (DAOException ex) {
+                LOG.log(Level.SEVERE, ex.getMessage(), ex);
+                throw new DataAccessException("Cannot access station data. Contact support.");
+            }
+            saveStations(stations);
+            return true;
+        }
+    }
+
+    /**
+     * Refreshes the stations of the states saved in the local files
+     * against the station index, writing only the stations that changed.
+     * The stations kept in memory for the affected states are dropped.
+     * The refresh downloads the index, so it should not run on the user
+     * interface thread; see refreshLocalStationsAsync.
+     *
+     * @return the changes applied.
+     */
+    public static StationRefresher.Result refreshLocalStations() {
+        synchronized(SAVE_LOCK) {
+            try {
+                var result = REFRESHER.refresh();
+                result.getAffectedStates().forEach(STATIONS_BY_STATE::invalidate);
+                return result;
+            } catch (DAOException ex) {
+                LOG.log(Level.SEVERE, ex.getMessage(), ex);
+                throw new DataAccessException("Cannot refresh local data. Contact support.");
+            }
+        }
+    }
+
+    /**
+     * Refreshes the stations saved in the local files without blocking
+     * the caller.
+     *
+     * @return a future holding the changes applied; it fails with a
+     * DataAccessException if the refresh fails.
+     */
+    public static CompletableFuture<StationRefresher.Result> refreshLocalStationsAsync() {
+        return LoadExecutor.supply(WeatherModel::refreshLocalStations);
+    }
+
+    /**
+     * Gets the saved observations of the given station observed from the
+     * given instant, inclusive, to the given instant, exclusive.
+     *
+     * @param stationId the given station ID.
+     *
+     * @param from the start of the range, inclusive.
+     *
+     * @param to the end of the range, exclusive.
+     *
+     * @return the observations ordered by observation time.
+     */
+    public static List<CurrentObservation> getObservationHistory(String stationId, Instant from, Instant to) {
+        try {
+            return LOCAL_DAO.getObservationHistory(stationId, from, to);
+        } catch (DAOException ex) {
+            LOG.log(Level.SEVERE, ex.getMessage(), ex);
+            throw new DataAccessException("Cannot access observation history. Contact support.");
+        }
+    }
+
+    /**
+     * Gets the latest saved observations of each of the given stations.
+     *
+     * @param stationIds the given station IDs.
+     *
+     * @param count the maximum number of observations of each station.
+     *
+     * @return the observations by station ID, latest first.
+     */
+    public static Map<String, List<CurrentObservation>> getLatestObservations(Collection<String> stationIds, int count) {
+        try {
+            return LOCAL_DAO.getLatestObservations(stationIds, count);
+        } catch (DAOException ex) {
+            LOG.log(Level.SEVERE, ex.getMessage(), ex);
+            throw new DataAccessException("Cannot access observation history. Contact support.");
         }
     }
 
     /**
-     * Deletes all data in the local files.
+     * Deletes all data in the local files, together with the stations
+     * kept in memory.
      */
     public static void deleteAllLocalData() {
         try{
@@ -120,6 +386,8 @@ public final class WeatherModel {
         } catch (DAOException ex) {
             LOG.log(Level.SEVERE, ex.getMessage(), ex);
             throw new DataAccessException("Cannot delete all data. Contact support.");
+        } finally {
+            STATIONS_BY_STATE.clear();
         }
     }
 
@@ -2,6 +2,7 @@ package weather;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 public interface WeatherModelDAO {
     /**
@@ -15,6 +16,20 @@ public interface WeatherModelDAO {
      */
     Optional<List<Station>> getStations(String state) throws DAOException;
 
+    /**
+     * Retrieves a list of stations from the given state without
+     * blocking the caller. By default the blocking getStations
+     * runs on the shared LoadExecutor.
+     *
+     * @param state a given state
+     *
+     * @return a future holding a list of stations; it fails with a
+     * DAOException if error occurs while connecting.
+     */
+    default CompletableFuture<Optional<List<Station>>> getStationsAsync(String state) {
+        return LoadExecutor.supply(() -> this.getStations(state));
+    }
+
     /**
      * Retreives a current observation with the given station ID.
      *
@@ -27,7 +42,22 @@ public interface WeatherModelDAO {
     Optional<CurrentObservation> getCurrentObservation(String stationId) throws DAOException;
 
     /**
-     * Saves the given list of stations.
+     * Retreives a current observation with the given station ID
+     * without blocking the caller. By default the blocking
+     * getCurrentObservation runs on the shared LoadExecutor.
+     *
+     * @param stationId a given station ID.
+     *
+     * @return a future holding a current observation; it fails with
+     * a DAOException if error occurs while connecting.
+     */
+    default CompletableFuture<Optional<CurrentObservation>> getCurrentObservationAsync(String stationId) {
+        return LoadExecutor.supply(() -> this.getCurrentObservation(stationId));
+    }
+
+    /**
+     * Saves the given list of stations in one transaction. Either all
+     * stations are saved or none is.
      *
      * @param stations a list of stations.
      *
@@ -36,7 +66,8 @@ public interface WeatherModelDAO {
     void saveStations(List<Station> stations) throws DAOException;
 
     /**
-     * Clears all data which has been saved.
+     * Clears all data which has been saved: stations, current
+     * observations and the observation history.
      *
      * @throws DAOException if error occurs while connecting.
      */
@@ -1,20 +1,38 @@
 package weather;
 
 import java.sql.*;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class WeatherModelDAOSqlImpl
-implements WeatherModelDAO {
+implements LocalWeatherModelDAO {
     /**
      * Represents the connection string from which the weather data can be accessed.
      */
     public static final String CONNECTION_STRING = "jdbc:sqlite:weather.sqlite";
 
+    /**
+     * Represents the name of the system property with the number of
+     * rows sent to the database in one batch.
+     */
+    public static final String BATCH_SIZE_PROPERTY = "weather.sql.batchSize";
+
+    /**
+     * Represents the number of rows sent to the database in one batch.
+     * Most of the gain over saving row by row comes from the single
+     * transaction; StationSaveBenchmark measures both.
+     */
+    private static final int BATCH_SIZE = Math.max(1, Integer.getInteger(BATCH_SIZE_PROPERTY, 500));
+
     /**
      * A database query that selects all stations with a state.
      */
@@ -22,16 +40,33 @@ implements WeatherModelDAO {
             = "SELECT STATION_ID, STATE, STATION_NAME FROM STATIONS WHERE STATE = ?";
 
     /**
-     * A database query that inserts a record in the table.
+     * A database query that inserts a record in the table, or updates the
+     * record with the same station ID.
      */
     private static final String INSERT_STATION_QUERY
-            = "INSERT INTO STATIONS(STATION_ID, STATE, STATION_NAME) VALUES(?, ?, ?)";
+            = "INSERT INTO STATIONS(STATION_ID, STATE, STATION_NAME) VALUES(?, ?, ?) "
+            + "ON CONFLICT(STATION_ID) DO UPDATE SET STATE = excluded.STATE, STATION_NAME = excluded.STATION_NAME";
 
     /**
-     * A database query that deletes all records in the table.
+     * A database query that deletes the record of a station.
      */
-    private static final String DELETE_ALL_QUERY
-            = "DELETE FROM STATIONS";
+    private static final String DELETE_STATION_QUERY
+            = "DELETE FROM STATIONS WHERE STATION_ID = ?";
+
+    /**
+     * A database query that selects all stations.
+     */
+    private static final String SELECT_ALL_STATIONS_QUERY
+            = "SELECT STATION_ID, STATE, STATION_NAME FROM STATIONS";
+
+    /**
+     * The database queries that delete all records, run in order in one
+     * transaction.
+     */
+    private static final List<String> DELETE_ALL_QUERIES = List.of(
+            "DELETE FROM STATIONS",
+            "DELETE FROM OBSERVATIONS",
+            "DELETE FROM OBSERVATION_HISTORY");
 
     /**
      * A database query that selects all states in the table.
@@ -39,6 +74,54 @@ implements WeatherModelDAO {
     private static final String SELECT_STATES_QUERY
             = "SELECT DISTINCT STATE FROM STATIONS";
 
+    /**
+     * A database query that selects the latest observation of a station.
+     */
+    private static final String SELECT_OBSERVATION_QUERY
+            = "SELECT STATION_ID, LOCATION, OBSERVATION_TIME, OBSERVATION_TIME_RFC822, TEMPERATURE, "
+            + "DEWPOINT, HUMIDITY, WIND, PRESSURE, PICKUP_PERIOD FROM OBSERVATIONS WHERE STATION_ID = ?";
+
+    /**
+     * A database query that inserts or updates the latest observation of a station.
+     */
+    private static final String SAVE_OBSERVATION_QUERY
+            = "INSERT INTO OBSERVATIONS(STATION_ID, LOCATION, OBSERVATION_TIME, OBSERVATION_TIME_RFC822, "
+            + "TEMPERATURE, DEWPOINT, HUMIDITY, WIND, PRESSURE, PICKUP_PERIOD, SAVED_AT) "
+            + "VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT(STATION_ID) DO UPDATE SET LOCATION = excluded.LOCATION, "
+            + "OBSERVATION_TIME = excluded.OBSERVATION_TIME, OBSERVATION_TIME_RFC822 = excluded.OBSERVATION_TIME_RFC822, "
+            + "TEMPERATURE = excluded.TEMPERATURE, DEWPOINT = excluded.DEWPOINT, HUMIDITY = excluded.HUMIDITY, "
+            + "WIND = excluded.WIND, PRESSURE = excluded.PRESSURE, PICKUP_PERIOD = excluded.PICKUP_PERIOD, "
+            + "SAVED_AT = excluded.SAVED_AT";
+
+
+    /**
+     * A database query that adds an observation to the history of a
+     * station unless an observation with the same time is there.
+     */
+    private static final String INSERT_HISTORY_QUERY
+            = "INSERT INTO OBSERVATION_HISTORY(STATION_ID, OBSERVED_AT, OBSERVATION_TIME_RFC822, LOCATION, "
+            + "OBSERVATION_TIME, TEMPERATURE, DEWPOINT, HUMIDITY, WIND, PRESSURE) "
+            + "VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT(STATION_ID, OBSERVED_AT) DO NOTHING";
+
+    /**
+     * A database query that selects the history of a station in a time
+     * range. It is a range scan of the primary key.
+     */
+    private static final String SELECT_HISTORY_RANGE_QUERY
+            = "SELECT STATION_ID, OBSERVATION_TIME_RFC822, LOCATION, OBSERVATION_TIME, TEMPERATURE, "
+            + "DEWPOINT, HUMIDITY, WIND, PRESSURE FROM OBSERVATION_HISTORY "
+            + "WHERE STATION_ID = ? AND OBSERVED_AT >= ? AND OBSERVED_AT < ? ORDER BY OBSERVED_AT";
+
+    /**
+     * A database query that selects the latest observations of a station.
+     * It reads the primary key backwards and stops after the limit.
+     */
+    private static final String SELECT_LATEST_HISTORY_QUERY
+            = "SELECT STATION_ID, OBSERVATION_TIME_RFC822, LOCATION, OBSERVATION_TIME, TEMPERATURE, "
+            + "DEWPOINT, HUMIDITY, WIND, PRESSURE FROM OBSERVATION_HISTORY "
+            + "WHERE STATION_ID = ? ORDER BY OBSERVED_AT DESC LIMIT ?";
 
     /**
      * Represents a Logger retrieved by the Manager class.
@@ -46,14 +129,37 @@ implements WeatherModelDAO {
     private static final Logger LOG = Manager.getLogger("WeatherModelDAOSqlImpl");
 
     /**
-     * Gets a database connection to a sqlite file.
+     * Represents the pool of connections to the database.
+     */
+    private final ConnectionPool pool;
+
+    /**
+     * Constructs a WeatherModelDAOSqlImpl of the local files.
+     */
+    public WeatherModelDAOSqlImpl() {
+        this(ConnectionPool.getInstance());
+    }
+
+    /**
+     * Constructs a WeatherModelDAOSqlImpl of the database of the given
+     * pool.
+     *
+     * @param pool the given pool.
+     */
+    WeatherModelDAOSqlImpl(ConnectionPool pool) {
+        this.pool = Objects.requireNonNull(pool);
+    }
+
+    /**
+     * Borrows a pooled database connection to a sqlite file. Closing the
+     * connection gives it back to the pool.
      *
      * @return a connection to a sqlite file.
      *
      * @throws SQLException if database error occurs.
      */
-    private Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(CONNECTION_STRING);
+    private ConnectionPool.PooledConnection getConnection() throws SQLException {
+        return this.pool.borrow();
     }
 
     /**
@@ -88,23 +194,267 @@ implements WeatherModelDAO {
     @Override
     public Optional<List<Station>> getStations(String state) throws DAOException {
         Objects.requireNonNull(state);
-        try(var connection = this.getConnection();
-            var statement = connection.prepareStatement(SELECT_STATIONS_BY_STATE)) {
+        try(var connection = this.getConnection()) {
+            var statement = connection.prepare(SELECT_STATIONS_BY_STATE);
             statement.setString(1, state);
             LOG.log(Level.INFO, String.format("Getting stations in the state: %s.", state));
-            return parseStations(statement.executeQuery());
+            try(var resultSet = statement.executeQuery()) {
+                return parseStations(resultSet);
+            }
         } catch (SQLException sQLEx) {
             LOG.log(Level.SEVERE, sQLEx.getMessage(), sQLEx);
             throw new DAOException(sQLEx.getMessage());
         }
     }
 
+    /**
+     * Retrieves an Optional with a current observation from a
+     * result set of observation data.
+     *
+     * @param resultSet a resultSet with observation data.
+     *
+     * @return an Optional with a current observation.
+     *
+     * @throws SQLException if errors occur when accessing the
+     * database.
+     */
+    private Optional<CurrentObservation> parseCurrentObservation(ResultSet resultSet) throws SQLException {
+        if(!resultSet.next()) {
+            return Optional.empty();
+        } // else the station has a saved observation doNothing();
+        return Optional.of(new CurrentObservation.Builder(
+                resultSet.getString("LOCATION"), resultSet.getString("STATION_ID"))
+                .observationTime(resultSet.getString("OBSERVATION_TIME"))
+                .observationTimeRfc822(resultSet.getString("OBSERVATION_TIME_RFC822"))
+                .temperature(resultSet.getString("TEMPERATURE"))
+                .dewpoint(resultSet.getString("DEWPOINT"))
+                .humidity(resultSet.getString("HUMIDITY"))
+                .wind(resultSet.getString("WIND"))
+                .pressure(resultSet.getString("PRESSURE"))
+                .pickupPeriod(Duration.ofMinutes(resultSet.getLong("PICKUP_PERIOD")))
+                .build());
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public Optional<CurrentObservation> getCurrentObservation(String stationId) throws DAOException {
-        throw new UnsupportedOperationException("Get current observation Not Supported.");
+        Objects.requireNonNull(stationId);
+        try(var connection = this.getConnection()) {
+            var statement = connection.prepare(SELECT_OBSERVATION_QUERY);
+            statement.setString(1, stationId);
+            LOG.log(Level.FINE, String.format("Getting observation of the station: %s.", stationId));
+            try(var resultSet = statement.executeQuery()) {
+                return parseCurrentObservation(resultSet);
+            }
+        } catch (SQLException sQLEx) {
+            LOG.log(Level.SEVERE, sQLEx.getMessage(), sQLEx);
+            throw new DAOException(sQLEx.getMessage());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void saveCurrentObservation(CurrentObservation observation) throws DAOException {
+        Objects.requireNonNull(observation);
+        LOG.log(Level.FINE, String.format("Saving observation of the station: %s", observation.getStationId()));
+        this.saveCurrentObservations(List.of(observation));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void saveCurrentObservations(Collection<CurrentObservation> observations) throws DAOException {
+        Objects.requireNonNull(observations);
+        try(var connection = this.getConnection()) {
+            var statement = connection.prepare(SAVE_OBSERVATION_QUERY);
+            var history = connection.prepare(INSERT_HISTORY_QUERY);
+            connection.getConnection().setAutoCommit(false);
+            try {
+                var pending = 0;
+                var pendingHistory = 0;
+                for(var observation : observations) {
+                    this.bindObservation(statement, observation);
+                    statement.addBatch();
+                    if(++pending == BATCH_SIZE) {
+                        statement.executeBatch();
+                        pending = 0;
+                    } // else the batch is not full doNothing();
+                    if(this.bindHistory(history, observation)) {
+                        history.addBatch();
+                        if(++pendingHistory == BATCH_SIZE) {
+                            history.executeBatch();
+                            pendingHistory = 0;
+                        } // else the batch is not full doNothing();
+                    } // else the observation has no time to be kept by doNothing();
+                }
+                if(pending > 0) {
+                    statement.executeBatch();
+                } // else every batch has been executed doNothing();
+                if(pendingHistory > 0) {
+                    history.executeBatch();
+                } // else every batch has been executed doNothing();
+                LOG.log(Level.FINE, String.format("Saved %d observations.", observations.size()));
+                connection.getConnection().commit();
+            } catch (SQLException sQLEx) {
+                connection.getConnection().rollback();
+                throw sQLEx;
+            }
+        } catch (SQLException sQLEx) {
+            LOG.log(Level.SEVERE, sQLEx.getMessage(), sQLEx);
+            throw new DAOException(sQLEx.getMessage());
+        }
+    }
+
+    /**
+     * Binds the given observation to the parameters of the given save
+     * observation statement.
+     *
+     * @param statement the given statement.
+     *
+     * @param observation the given observation.
+     *
+     * @throws SQLException if a parameter cannot be set.
+     */
+    private void bindObservation(PreparedStatement statement, CurrentObservation observation) throws SQLException {
+        statement.setString(1, observation.getStationId());
+        statement.setString(2, observation.getLocation());
+        statement.setString(3, observation.getObservationTime());
+        statement.setString(4, observation.getObervationTimeRfc822());
+        statement.setString(5, observation.getTemperature());
+        statement.setString(6, observation.getDewpoint());
+        statement.setString(7, observation.getHumidity());
+        statement.setString(8, observation.getWind());
+        statement.setString(9, observation.getPressure());
+        statement.setLong(10, observation.getPickupPeriod().toMinutes());
+        statement.setLong(11, System.currentTimeMillis());
+    }
+
+    /**
+     * Binds the given observation to the parameters of the given history
+     * statement, unless its RFC-822 time is missing or invalid.
+     *
+     * @param statement the given statement.
+     *
+     * @param observation the given observation.
+     *
+     * @return true if the observation was bound.
+     *
+     * @throws SQLException if a parameter cannot be set.
+     */
+    private boolean bindHistory(PreparedStatement statement, CurrentObservation observation) throws SQLException {
+        var observedAt = observation.getObservationInstant();
+        if(observedAt.isEmpty()) {
+            return false;
+        } // else the observation can be kept in the history doNothing();
+        statement.setString(1, observation.getStationId());
+        statement.setLong(2, observedAt.get().getEpochSecond());
+        statement.setString(3, observation.getObervationTimeRfc822());
+        statement.setString(4, observation.getLocation());
+        statement.setString(5, observation.getObservationTime());
+        statement.setString(6, observation.getTemperature());
+        statement.setString(7, observation.getDewpoint());
+        statement.setString(8, observation.getHumidity());
+        statement.setString(9, observation.getWind());
+        statement.setString(10, observation.getPressure());
+        return true;
+    }
+
+    /**
+     * Retrieves the observations of a result set of history data.
+     *
+     * @param resultSet a resultSet with history data.
+     *
+     * @return a list of observations in the order of the result set.
+     *
+     * @throws SQLException if errors occur when accessing the
+     * database.
+     */
+    private List<CurrentObservation> parseHistory(ResultSet resultSet) throws SQLException {
+        var observations = new ArrayList<CurrentObservation>();
+        while(resultSet.next()) {
+            observations.add(new CurrentObservation.Builder(
+                    resultSet.getString("LOCATION"), resultSet.getString("STATION_ID"))
+                    .observationTime(resultSet.getString("OBSERVATION_TIME"))
+                    .observationTimeRfc822(resultSet.getString("OBSERVATION_TIME_RFC822"))
+                    .temperature(resultSet.getString("TEMPERATURE"))
+                    .dewpoint(resultSet.getString("DEWPOINT"))
+                    .humidity(resultSet.getString("HUMIDITY"))
+                    .wind(resultSet.getString("WIND"))
+                    .pressure(resultSet.getString("PRESSURE"))
+                    .build());
+        }
+        return observations;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<CurrentObservation> getObservationHistory(String stationId, Instant from, Instant to)
+            throws DAOException {
+        Objects.requireNonNull(stationId);
+        Objects.requireNonNull(from);
+        Objects.requireNonNull(to);
+        try(var connection = this.getConnection()) {
+            var statement = connection.prepare(SELECT_HISTORY_RANGE_QUERY);
+            statement.setString(1, stationId);
+            statement.setLong(2, from.getEpochSecond());
+            statement.setLong(3, to.getEpochSecond());
+            LOG.log(Level.FINE, String.format("Getting history of the station %s from %s to %s.", stationId, from, to));
+            try(var resultSet = statement.executeQuery()) {
+                return parseHistory(resultSet);
+            }
+        } catch (SQLException sQLEx) {
+            LOG.log(Level.SEVERE, sQLEx.getMessage(), sQLEx);
+            throw new DAOException(sQLEx.getMessage());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Each station is one bounded seek of the primary key, all in one
+     * read transaction, so the cost follows the number of stations and
+     * observations returned rather than the size of the history.
+     */
+    @Override
+    public Map<String, List<CurrentObservation>> getLatestObservations(Collection<String> stationIds, int count)
+            throws DAOException {
+        Objects.requireNonNull(stationIds);
+        if(count <= 0) {
+            throw new IllegalArgumentException("The count must be positive.");
+        } // else the count is valid doNothing();
+        var latest = new LinkedHashMap<String, List<CurrentObservation>>();
+        try(var connection = this.getConnection()) {
+            var statement = connection.prepare(SELECT_LATEST_HISTORY_QUERY);
+            connection.getConnection().setAutoCommit(false);
+            try {
+                for(var stationId : stationIds) {
+                    statement.setString(1, Objects.requireNonNull(stationId));
+                    statement.setInt(2, count);
+                    try(var resultSet = statement.executeQuery()) {
+                        var observations = parseHistory(resultSet);
+                        if(!observations.isEmpty()) {
+                            latest.put(stationId, observations);
+                        } // else the station has no history doNothing();
+                    }
+                }
+                connection.getConnection().commit();
+            } catch (SQLException sQLEx) {
+                connection.getConnection().rollback();
+                throw sQLEx;
+            }
+            LOG.log(Level.FINE, String.format("Got latest observations of %d stations.", latest.size()));
+            return latest;
+        } catch (SQLException sQLEx) {
+            LOG.log(Level.SEVERE, sQLEx.getMessage(), sQLEx);
+            throw new DAOException(sQLEx.getMessage());
+        }
     }
 
     /**
@@ -112,15 +462,97 @@ implements WeatherModelDAO {
      */
     @Override
     public void saveStations(List<Station> stations) throws DAOException {
-        try(var connection = this.getConnection();
-            var statement = connection.prepareStatement(INSERT_STATION_QUERY)) {
-            for(var station : stations) {
-                statement.setString(1, station.getStationId());
-                statement.setString(2, station.getState());
-                statement.setString(3, station.getStationName());
-
-                LOG.log(Level.INFO, String.format("Saving station with station ID: %s", station.getStationId()));
-                statement.executeUpdate();
+        try(var connection = this.getConnection()) {
+            var statement = connection.prepare(INSERT_STATION_QUERY);
+            connection.getConnection().setAutoCommit(false);
+            try {
+                var pending = 0;
+                for(var station : stations) {
+                    statement.setString(1, station.getStationId());
+                    statement.setString(2, station.getState());
+                    statement.setString(3, station.getStationName());
+                    statement.addBatch();
+                    if(++pending == BATCH_SIZE) {
+                        statement.executeBatch();
+                        pending = 0;
+                    } // else the batch is not full doNothing();
+                }
+                if(pending > 0) {
+                    statement.executeBatch();
+                } // else every batch has been executed doNothing();
+                connection.getConnection().commit();
+                LOG.log(Level.INFO, String.format("Saved %d stations.", stations.size()));
+            } catch (SQLException sQLEx) {
+                connection.getConnection().rollback();
+                throw sQLEx;
+            }
+        } catch (SQLException sQLEx) {
+            LOG.log(Level.SEVERE, sQLEx.getMessage(), sQLEx);
+            throw new DAOException(sQLEx.getMessage());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<List<Station>> getAllStations() throws DAOException {
+        try(var connection = this.getConnection()) {
+            var statement = connection.prepare(SELECT_ALL_STATIONS_QUERY);
+            LOG.log(Level.INFO, "Getting all stations.");
+            try(var resultSet = statement.executeQuery()) {
+                return parseStations(resultSet);
+            }
+        } catch (SQLException sQLEx) {
+            LOG.log(Level.SEVERE, sQLEx.getMessage(), sQLEx);
+            throw new DAOException(sQLEx.getMessage());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void applyStationChanges(List<Station> stations, Collection<String> removedStationIds) throws DAOException {
+        Objects.requireNonNull(stations);
+        Objects.requireNonNull(removedStationIds);
+        try(var connection = this.getConnection()) {
+            var insert = connection.prepare(INSERT_STATION_QUERY);
+            var delete = connection.prepare(DELETE_STATION_QUERY);
+            connection.getConnection().setAutoCommit(false);
+            try {
+                var pending = 0;
+                for(var station : stations) {
+                    insert.setString(1, station.getStationId());
+                    insert.setString(2, station.getState());
+                    insert.setString(3, station.getStationName());
+                    insert.addBatch();
+                    if(++pending == BATCH_SIZE) {
+                        insert.executeBatch();
+                        pending = 0;
+                    } // else the batch is not full doNothing();
+                }
+                if(pending > 0) {
+                    insert.executeBatch();
+                } // else every batch has been executed doNothing();
+                pending = 0;
+                for(var stationId : removedStationIds) {
+                    delete.setString(1, stationId);
+                    delete.addBatch();
+                    if(++pending == BATCH_SIZE) {
+                        delete.executeBatch();
+                        pending = 0;
+                    } // else the batch is not full doNothing();
+                }
+                if(pending > 0) {
+                    delete.executeBatch();
+                } // else every batch has been executed doNothing();
+                connection.getConnection().commit();
+                LOG.log(Level.INFO, String.format("Saved %d stations and deleted %d stations.",
+                        stations.size(), removedStationIds.size()));
+            } catch (SQLException sQLEx) {
+                connection.getConnection().rollback();
+                throw sQLEx;
             }
         } catch (SQLException sQLEx) {
             LOG.log(Level.SEVERE, sQLEx.getMessage(), sQLEx);
@@ -133,10 +565,18 @@ implements WeatherModelDAO {
      */
     @Override
     public void clear() throws DAOException {
-        try (var connection = this.getConnection();
-             var statement = connection.prepareStatement(DELETE_ALL_QUERY)) {
+        try(var connection = this.getConnection()) {
             LOG.log(Level.INFO, "Deleting all data.");
-            statement.executeUpdate();
+            connection.getConnection().setAutoCommit(false);
+            try {
+                for(var sql : DELETE_ALL_QUERIES) {
+                    connection.prepare(sql).executeUpdate();
+                }
+                connection.getConnection().commit();
+            } catch (SQLException sQLEx) {
+                connection.getConnection().rollback();
+                throw sQLEx;
+            }
         } catch (SQLException sQLEx) {
             LOG.log(Level.SEVERE, sQLEx.getMessage(), sQLEx);
             throw new DAOException(sQLEx.getMessage());
@@ -172,10 +612,12 @@ implements WeatherModelDAO {
     @Override
     public Optional<List<String>> getAllStates() throws DAOException {
 
-        try(var connection = this.getConnection();
-            var statement = connection.prepareStatement(SELECT_STATES_QUERY)){
+        try(var connection = this.getConnection()) {
+            var statement = connection.prepare(SELECT_STATES_QUERY);
             LOG.log(Level.INFO, String.format("Getting all states."));
-            return parseStates(statement.executeQuery());
+            try(var resultSet = statement.executeQuery()) {
+                return parseStates(resultSet);
+            }
         } catch (SQLException sQLEx) {
             LOG.log(Level.SEVERE, sQLEx.getMessage(), sQLEx);
             throw new DAOException(sQLEx.getMessage());
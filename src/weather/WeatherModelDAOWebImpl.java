@@ -1,22 +1,14 @@
 package weather;
 
-import java.io.IOException;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.logging.Level;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
 
-import com.fasterxml.jackson.dataformat.xml.XmlMapper;
-
 public class WeatherModelDAOWebImpl
 implements WeatherModelDAO {
-    /**
-     * Represents the URL from which the weather data can be accessed.
-     */
-    private static final String STATIONS_URL = "https://w1.weather.gov/xml/current_obs/index.xml";
-
     /**
      * Represents a Logger retrieved by the Manager class.
      */
@@ -25,33 +17,36 @@ implements WeatherModelDAO {
     /**
      * It is used to access the data to initialize a weather model update.
      */
-    private static final CurrentObservationDAO CURRENT_OBSERVATION_DAO = new CurrentObservationDAOWebImpl();
+    private static final CurrentObservationDAO CURRENT_OBSERVATION_DAO = CachedCurrentObservationDAO.getInstance();
 
     /**
      * {@inheritDoc}
      */
     @Override
     public Optional<List<Station>> getStations(String state) throws DAOException {
-        List<Station> list = new ArrayList<>();
-        try {
-            XmlMapper mapper = new XmlMapper();
-            var url = new URL(STATIONS_URL);
-            var stations = mapper.readValue(url, WxStationIndexTO.class);
-
-            for(var station : stations.station) {
-                if(station.state.equals(state)) {
-                    list.add(new Station(station.stationId, station.state, station.stationName));
-                } // else the station is not in the given state doNothing();
-            }
+        Objects.requireNonNull(state);
+        var list = StationIndex.get().getStations(state);
+        if(list.isEmpty()) {
+            return Optional.empty();
+        } else {
+            return Optional.of(new ArrayList<>(list));
+        }
+    }
 
-            if(list.isEmpty()) {
-                return Optional.empty();
-            } else {
-                return Optional.of(list);
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Optional<List<Station>>> getStationsAsync(String state) {
+        Objects.requireNonNull(state);
+        if(StationIndex.peek().isPresent()) {
+            try {
+                return CompletableFuture.completedFuture(this.getStations(state));
+            } catch (DAOException ex) {
+                return CompletableFuture.failedFuture(ex);
             }
-        } catch (IOException ex) {
-            LOG.log(Level.SEVERE, ex.getMessage(), ex);
-            throw new DAOException(ex.getMessage());
+        } else {
+            return LoadExecutor.supply(() -> this.getStations(state));
         }
     }
 
@@ -64,6 +59,14 @@ implements WeatherModelDAO {
 
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Optional<CurrentObservation>> getCurrentObservationAsync(String stationId) {
+        return CURRENT_OBSERVATION_DAO.getAsync(stationId);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -13,9 +13,8 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
-import java.sql.DriverManager;
-import java.sql.SQLException;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 public class WeatherView extends Application {
@@ -105,6 +104,18 @@ public class WeatherView extends Application {
         stage.show();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void stop() {
+        StationWarmUp.cancel();
+        WeatherModel.cancelPrefetch();
+        LoadExecutor.shutdown(5, TimeUnit.SECONDS);
+        WriteBehindBuffer.getInstance().close();
+        ConnectionPool.getInstance().close();
+    }
+
     /**
      * Adds an event listener to the combobox containing state list.
      *
@@ -202,26 +213,23 @@ public class WeatherView extends Application {
     }
 
     /**
-     * Creates a table in the database if it does not exist.
+     * Creates the tables in the database, or brings them up to the latest
+     * version of the schema.
      */
     private static void onCreate() {
-
-        var queryBuilder = new StringBuilder("CREATE TABLE IF NOT EXISTS STATIONS(");
-        queryBuilder.append("ID INTEGER PRIMARY KEY AUTOINCREMENT, ");
-        queryBuilder.append("STATION_ID TEXT NOT NULL, ");
-        queryBuilder.append("STATE TEXT, ");
-        queryBuilder.append("STATION_NAME TEXT)");
-
-        try (var connection = DriverManager.getConnection(WeatherModelDAOSqlImpl.CONNECTION_STRING);
-             var statement = connection.createStatement()) {
-            statement.executeUpdate(queryBuilder.toString());
-        } catch (SQLException sQLEx) {
+        try {
+            SchemaMigrations.migrate();
+        } catch (DAOException daoEx) {
             System.err.println("Unable to get access to create data.");
         }
     }
 
     public static void main(String[] args) {
         onCreate();
+        StationWarmUp.start();
+        if(Boolean.getBoolean(WebClient.PREWARM_PROPERTY)) {
+            WebClient.prewarm();
+        } // else the connection is opened by the first request doNothing();
 
         launch();
 
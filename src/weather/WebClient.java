@@ -0,0 +1,401 @@
+package weather;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Represents the shared transport of the web DAOs. All requests go through
+ * one HttpClient, which keeps connections alive and multiplexes them over
+ * HTTP/2 when the server supports it. Responses are requested compressed
+ * and every request is bounded by a connect and a read timeout: the read
+ * timeout bounds the wait for the response headers and, once they have
+ * arrived, the reading of the whole body. The base URL and the timeouts
+ * are configured with system properties.
+ */
+public final class WebClient {
+
+    /**
+     * Represents the name of the system property with the base URL of the
+     * NOAA current observation feeds.
+     */
+    public static final String BASE_URL_PROPERTY = "weather.baseUrl";
+
+    /**
+     * Represents the name of the system property with the connect timeout
+     * in milliseconds.
+     */
+    public static final String CONNECT_TIMEOUT_PROPERTY = "weather.http.connectTimeoutMillis";
+
+    /**
+     * Represents the name of the system property with the read timeout in
+     * milliseconds.
+     */
+    public static final String READ_TIMEOUT_PROPERTY = "weather.http.readTimeoutMillis";
+
+    /**
+     * Represents the name of the system property that enables pre-warming
+     * the connection at startup.
+     */
+    public static final String PREWARM_PROPERTY = "weather.http.prewarm";
+
+    /**
+     * Represents the base URL against which relative paths are resolved.
+     */
+    private static final URI BASE_URL = URI.create(withTrailingSlash(
+            System.getProperty(BASE_URL_PROPERTY, "https://w1.weather.gov/xml/current_obs/")));
+
+    /**
+     * Represents the maximum time to wait for a response.
+     */
+    private static final Duration READ_TIMEOUT = Duration.ofMillis(Long.getLong(READ_TIMEOUT_PROPERTY, 15000L));
+
+    /**
+     * Represents the largest rest of a body read when a response is
+     * closed, so its connection can be reused.
+     */
+    private static final int MAX_DRAIN_BYTES = 64 * 1024;
+
+    /**
+     * Enforces the deadlines of the response bodies.
+     */
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "web-client-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Represents the shared HTTP client.
+     */
+    private static final HttpClient CLIENT = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(Duration.ofMillis(Long.getLong(CONNECT_TIMEOUT_PROPERTY, 5000L)))
+            .build();
+
+    /**
+     * Represents a Logger retrieved by the Manager class.
+     */
+    private static final Logger LOG = Manager.getLogger("WebClient");
+
+    /**
+     * Represents a response whose body is decompressed if necessary.
+     * The body must be closed to release the connection.
+     */
+    public static final class Response implements AutoCloseable {
+        /**
+         * Represents the underlying response.
+         */
+        private final HttpResponse<?> response;
+
+        /**
+         * Represents the raw body.
+         */
+        private final InputStream raw;
+
+        /**
+         * Represents the decoded body.
+         */
+        private final InputStream body;
+
+        /**
+         * Closes the raw body once its deadline has passed, or null if the
+         * body has already been received.
+         */
+        private final ScheduledFuture<?> deadline;
+
+        /**
+         * Tells whether the body was closed because its deadline passed.
+         */
+        private volatile boolean timedOut;
+
+        /**
+         * Constructs a Response from the given response and its raw body.
+         * A body still to be received is closed if it is not read before
+         * the read timeout, and reading it then fails with an
+         * HttpTimeoutException.
+         *
+         * @param response the given response.
+         *
+         * @param body the raw body of the response.
+         *
+         * @param received whether the body has already been received.
+         *
+         * @throws IOException if the body cannot be decoded.
+         */
+        private Response(HttpResponse<?> response, InputStream body, boolean received) throws IOException {
+            this.response = response;
+            this.raw = received ? body : new FilterInputStream(body) {
+                @Override
+                public int read() throws IOException {
+                    try {
+                        return super.read();
+                    } catch (IOException ex) {
+                        throw Response.this.failure(ex);
+                    }
+                }
+
+                @Override
+                public int read(byte[] bytes, int offset, int length) throws IOException {
+                    try {
+                        return super.read(bytes, offset, length);
+                    } catch (IOException ex) {
+                        throw Response.this.failure(ex);
+                    }
+                }
+            };
+            this.deadline = received ? null : TIMER.schedule(() -> {
+                this.timedOut = true;
+                closeQuietly(body);
+            }, READ_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            var encoding = response.headers().firstValue("Content-Encoding").orElse("");
+            if("gzip".equalsIgnoreCase(encoding) && response.statusCode() != 304) {
+                this.body = new GZIPInputStream(this.raw);
+            } else {
+                this.body = this.raw;
+            }
+        }
+
+        /**
+         * Gets the exception to report for the given failure to read the
+         * body.
+         *
+         * @param ex the given failure.
+         *
+         * @return an HttpTimeoutException if the deadline passed, or the
+         * given failure.
+         */
+        private IOException failure(IOException ex) {
+            if(!this.timedOut) {
+                return ex;
+            } // else the body was closed by its deadline doNothing();
+            var timeout = new HttpTimeoutException("Response body not received in time: " + this.response.uri());
+            timeout.initCause(ex);
+            return timeout;
+        }
+
+        /**
+         * Gets the status code of this response.
+         *
+         * @return the status code.
+         */
+        public int getStatus() {
+            return this.response.statusCode();
+        }
+
+        /**
+         * Gets the first value of the given header.
+         *
+         * @param name the name of the header.
+         *
+         * @return the value of the header, or an empty Optional.
+         */
+        public Optional<String> getHeader(String name) {
+            return this.response.headers().firstValue(name);
+        }
+
+        /**
+         * Gets the decoded body of this response.
+         *
+         * @return the body.
+         */
+        public InputStream getBody() {
+            return this.body;
+        }
+
+        /**
+         * Reads what is left of a small body, such as the body of an
+         * error or of a partly parsed document, so the connection can be
+         * reused, then closes the body.
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                if(!this.timedOut) {
+                    var buffer = new byte[8192];
+                    var drained = 0;
+                    int count;
+                    while(drained < MAX_DRAIN_BYTES && (count = this.raw.read(buffer)) != -1) {
+                        drained += count;
+                    }
+                } // else the body is closed already doNothing();
+            } catch (IOException ex) {
+                LOG.log(Level.FINE, "Cannot drain response body: " + ex.getMessage(), ex);
+            } finally {
+                if(this.deadline != null) {
+                    this.deadline.cancel(false);
+                } // else the body was received at once doNothing();
+                this.body.close();
+            }
+        }
+    }
+
+    /**
+     * Closes the given stream, ignoring failures.
+     *
+     * @param in the given stream.
+     */
+    private static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException ex) {
+            LOG.log(Level.FINE, ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * WebClient only has static members.
+     */
+    private WebClient() {
+    }
+
+    /**
+     * Appends a slash to the given URL if it does not end with one.
+     *
+     * @param url the given URL.
+     *
+     * @return the URL ending with a slash.
+     */
+    private static String withTrailingSlash(String url) {
+        return url.endsWith("/") ? url : url + "/";
+    }
+
+    /**
+     * Resolves the given path against the configured base URL.
+     *
+     * @param path the given relative path.
+     *
+     * @return the absolute URL.
+     */
+    public static String url(String path) {
+        Objects.requireNonNull(path);
+        return BASE_URL.resolve(path).toString();
+    }
+
+    /**
+     * Builds a GET request for the given URL with the given headers.
+     *
+     * @param url the given URL.
+     *
+     * @param headers the given headers.
+     *
+     * @return a request.
+     */
+    private static HttpRequest buildRequest(String url, Map<String, String> headers) {
+        var builder = HttpRequest.newBuilder(URI.create(url))
+                .timeout(READ_TIMEOUT)
+                .header("Accept-Encoding", "gzip")
+                .GET();
+        headers.forEach(builder::header);
+        return builder.build();
+    }
+
+    /**
+     * Sends a GET request to the given URL with the given headers.
+     *
+     * @param url the given URL.
+     *
+     * @param headers the given headers.
+     *
+     * @return the response, which must be closed.
+     *
+     * @throws IOException if the request fails or times out.
+     */
+    public static Response get(String url, Map<String, String> headers) throws IOException {
+        Objects.requireNonNull(url);
+        Objects.requireNonNull(headers);
+        try {
+            var response = CLIENT.send(buildRequest(url, headers), HttpResponse.BodyHandlers.ofInputStream());
+            try {
+                return new Response(response, response.body(), false);
+            } catch (IOException ex) {
+                closeQuietly(response.body());
+                throw ex;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Request was interrupted: " + url, ex);
+        }
+    }
+
+    /**
+     * Sends a GET request to the given URL with the given headers without
+     * blocking. The body is received completely before the returned
+     * future completes, and cancelling the future aborts the exchange.
+     * The future fails with an HttpTimeoutException if the body is not
+     * received within the read timeout after the headers.
+     *
+     * @param url the given URL.
+     *
+     * @param headers the given headers.
+     *
+     * @return a future holding the response.
+     */
+    public static CompletableFuture<Response> getAsync(String url, Map<String, String> headers) {
+        Objects.requireNonNull(url);
+        Objects.requireNonNull(headers);
+        var result = new CompletableFuture<Response>();
+        var exchange = CLIENT.sendAsync(buildRequest(url, headers), info -> {
+            var deadline = TIMER.schedule(() -> result.completeExceptionally(
+                    new HttpTimeoutException("Response body not received in time: " + url)),
+                    READ_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            result.whenComplete((response, ex) -> deadline.cancel(false));
+            return HttpResponse.BodySubscribers.ofByteArray();
+        });
+        exchange.whenComplete((response, ex) -> {
+            if(ex != null) {
+                result.completeExceptionally(ex);
+                return;
+            } // else the body has been received doNothing();
+            try {
+                result.complete(new Response(response, new ByteArrayInputStream(response.body()), true));
+            } catch (IOException decodeEx) {
+                result.completeExceptionally(decodeEx);
+            }
+        });
+        result.whenComplete((response, ex) -> {
+            if(ex != null) {
+                exchange.cancel(true);
+            } // else the exchange is over doNothing();
+        });
+        return result;
+    }
+
+    /**
+     * Opens the connection to the base URL in the background, so the TLS
+     * handshake is done before the first real request.
+     */
+    public static void prewarm() {
+        var request = HttpRequest.newBuilder(BASE_URL)
+                .timeout(READ_TIMEOUT)
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .build();
+        CLIENT.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, ex) -> {
+                    if(ex != null) {
+                        LOG.log(Level.WARNING, "Cannot pre-warm connection: " + ex.getMessage());
+                    } else {
+                        LOG.log(Level.INFO, String.format("Pre-warmed connection to %s (%s).", BASE_URL, response.version()));
+                    }
+                });
+    }
+}
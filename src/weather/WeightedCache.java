@@ -0,0 +1,643 @@
+package weather;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.ToLongFunction;
+
+/**
+ * Represents a cache bounded by the estimated number of bytes its values
+ * retain rather than by a number of entries. It follows the W-TinyLFU
+ * policy: new entries enter a small LRU window, and an entry leaving the
+ * window is only admitted to the main space if it has been requested more
+ * often than the entry it would evict. Request frequencies are kept in a
+ * compact count-min sketch that is aged periodically, so one sweep over
+ * many keys cannot flush entries that are requested again and again.
+ *
+ * @param <K> the type of the keys.
+ *
+ * @param <V> the type of the values.
+ */
+public final class WeightedCache<K, V> {
+
+    /**
+     * Represents the share of the maximum weight given to the window.
+     */
+    private static final double WINDOW_SHARE = 0.01;
+
+    /**
+     * Represents the share of the main space given to protected entries.
+     */
+    private static final double PROTECTED_SHARE = 0.8;
+
+    /**
+     * Represents the estimated number of bytes of an object header.
+     */
+    private static final long OBJECT_HEADER = 16L;
+
+    /**
+     * Represents the estimated number of bytes of an object reference.
+     */
+    private static final long REFERENCE = 4L;
+
+    /**
+     * Represents the part of the cache an entry is in.
+     */
+    private enum Queue {
+        /**
+         * Represents the admission window.
+         */
+        WINDOW,
+
+        /**
+         * Represents the main space, for entries requested once there.
+         */
+        PROBATION,
+
+        /**
+         * Represents the main space, for entries requested again there.
+         */
+        PROTECTED
+    }
+
+    /**
+     * Represents a cached value together with its weight and position.
+     *
+     * @param <V> the type of the value.
+     */
+    private static final class Node<V> {
+        /**
+         * Represents the cached value.
+         */
+        private V value;
+
+        /**
+         * Represents the estimated number of bytes of the value.
+         */
+        private long weight;
+
+        /**
+         * Represents the part of the cache the entry is in.
+         */
+        private Queue queue = Queue.WINDOW;
+
+        /**
+         * Constructs a Node.
+         *
+         * @param value the cached value.
+         *
+         * @param weight the estimated number of bytes of the value.
+         */
+        private Node(V value, long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Represents a count-min sketch of the request frequency of keys, with
+     * four bit counters. All counters are halved once a sample of requests
+     * has been counted, so old popularity fades.
+     */
+    private static final class FrequencySketch {
+        /**
+         * Represents the seeds of the four hash functions.
+         */
+        private static final long[] SEEDS = {
+                0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+        /**
+         * Represents the counters, sixteen in every long.
+         */
+        private final long[] table;
+
+        /**
+         * Represents the number of increments after which counters are halved.
+         */
+        private final int sampleSize;
+
+        /**
+         * Represents the number of increments since the last halving.
+         */
+        private int size;
+
+        /**
+         * Constructs a FrequencySketch for about the given number of keys.
+         *
+         * @param expectedKeys the expected number of keys.
+         */
+        private FrequencySketch(long expectedKeys) {
+            var length = Long.highestOneBit(Math.max(8L, Math.min(expectedKeys, 1L << 24)) - 1) << 1;
+            this.table = new long[(int) length];
+            this.sampleSize = (int) Math.min(Integer.MAX_VALUE, 10L * length);
+        }
+
+        /**
+         * Gets the index of the counter of the given hash for the given seed.
+         *
+         * @param hash the hash of a key.
+         *
+         * @param i the number of the hash function.
+         *
+         * @return the index of a four bit counter.
+         */
+        private int indexOf(int hash, int i) {
+            var h = (hash + SEEDS[i]) * SEEDS[i];
+            h += h >>> 32;
+            return (int) (h & ((this.table.length << 4) - 1));
+        }
+
+        /**
+         * Gets the estimated frequency of the key with the given hash.
+         *
+         * @param hash the hash of the key.
+         *
+         * @return the estimated frequency, at most 15.
+         */
+        private int frequency(int hash) {
+            var frequency = Integer.MAX_VALUE;
+            for(var i = 0; i < SEEDS.length; i++) {
+                var index = this.indexOf(hash, i);
+                var count = (int) ((this.table[index >>> 4] >>> ((index & 15) << 2)) & 0xfL);
+                frequency = Math.min(frequency, count);
+            }
+            return frequency;
+        }
+
+        /**
+         * Counts one request of the key with the given hash.
+         *
+         * @param hash the hash of the key.
+         */
+        private void increment(int hash) {
+            var added = false;
+            for(var i = 0; i < SEEDS.length; i++) {
+                var index = this.indexOf(hash, i);
+                var shift = (index & 15) << 2;
+                if(((this.table[index >>> 4] >>> shift) & 0xfL) != 0xfL) {
+                    this.table[index >>> 4] += 1L << shift;
+                    added = true;
+                } // else the counter is saturated doNothing();
+            }
+            if(added && ++this.size == this.sampleSize) {
+                for(var i = 0; i < this.table.length; i++) {
+                    this.table[i] = (this.table[i] >>> 1) & 0x7777777777777777L;
+                }
+                this.size /= 2;
+            } // else the sample is not complete doNothing();
+        }
+    }
+
+    /**
+     * Represents the entries of the cache by key.
+     */
+    private final Map<K, Node<V>> data = new HashMap<>();
+
+    /**
+     * Represents the keys of the window, least recently used first.
+     */
+    private final LinkedHashMap<K, Node<V>> window = new LinkedHashMap<>();
+
+    /**
+     * Represents the keys of the probation space, least recently used first.
+     */
+    private final LinkedHashMap<K, Node<V>> probation = new LinkedHashMap<>();
+
+    /**
+     * Represents the keys of the protected space, least recently used first.
+     */
+    private final LinkedHashMap<K, Node<V>> protectedSpace = new LinkedHashMap<>();
+
+    /**
+     * Represents the request frequencies of keys.
+     */
+    private final FrequencySketch sketch;
+
+    /**
+     * Estimates the number of bytes retained by a value.
+     */
+    private final ToLongFunction<? super V> weigher;
+
+    /**
+     * Represents the maximum total weight of the cache.
+     */
+    private final long maximumWeight;
+
+    /**
+     * Represents the maximum weight of the window.
+     */
+    private final long maximumWindowWeight;
+
+    /**
+     * Represents the maximum weight of the protected space.
+     */
+    private final long maximumProtectedWeight;
+
+    /**
+     * Represents the total weight of the cache.
+     */
+    private long weight;
+
+    /**
+     * Represents the weight of the window.
+     */
+    private long windowWeight;
+
+    /**
+     * Represents the weight of the protected space.
+     */
+    private long protectedWeight;
+
+    /**
+     * Represents the number of lookups that found a value.
+     */
+    private long hits;
+
+    /**
+     * Represents the number of lookups that found no value.
+     */
+    private long misses;
+
+    /**
+     * Represents the number of entries evicted to respect the maximum weight.
+     */
+    private long evictions;
+
+    /**
+     * Represents the total weight of the evicted entries.
+     */
+    private long evictedWeight;
+
+    /**
+     * Constructs an empty WeightedCache.
+     *
+     * @param maximumWeight the maximum total weight, in estimated bytes.
+     *
+     * @param averageWeight the expected average weight of a value, used to
+     * size the frequency sketch.
+     *
+     * @param weigher estimates the number of bytes retained by a value.
+     *
+     * @throws IllegalArgumentException if a weight is not positive.
+     */
+    public WeightedCache(long maximumWeight, long averageWeight, ToLongFunction<? super V> weigher) {
+        if(maximumWeight <= 0 || averageWeight <= 0) {
+            throw new IllegalArgumentException("Weights must be positive.");
+        } // else the weights are valid doNothing();
+        this.weigher = Objects.requireNonNull(weigher);
+        this.maximumWeight = maximumWeight;
+        this.maximumWindowWeight = Math.max(1L, (long) (maximumWeight * WINDOW_SHARE));
+        this.maximumProtectedWeight = (long) ((maximumWeight - this.maximumWindowWeight) * PROTECTED_SHARE);
+        this.sketch = new FrequencySketch(maximumWeight / averageWeight);
+    }
+
+    /**
+     * Estimates the number of bytes retained by the given string.
+     *
+     * @param value the given string, may be null.
+     *
+     * @return the estimated number of bytes.
+     */
+    public static long sizeOf(String value) {
+        if(value == null) {
+            return 0L;
+        } // else the string has a size doNothing();
+        return align(OBJECT_HEADER + REFERENCE + 8L) + align(OBJECT_HEADER + value.length());
+    }
+
+    /**
+     * Estimates the number of bytes retained by an object with the given
+     * number of reference fields, without the objects they refer to.
+     *
+     * @param references the given number of reference fields.
+     *
+     * @return the estimated number of bytes.
+     */
+    public static long sizeOfObject(int references) {
+        return align(OBJECT_HEADER + (long) references * REFERENCE);
+    }
+
+    /**
+     * Rounds the given size up to the eight byte alignment of objects.
+     *
+     * @param size the given size.
+     *
+     * @return the aligned size.
+     */
+    private static long align(long size) {
+        return (size + 7L) & ~7L;
+    }
+
+    /**
+     * Gets the value of the given key, counting the request.
+     *
+     * @param key the given key.
+     *
+     * @return the value, or an empty Optional if it is not cached.
+     */
+    public synchronized Optional<V> get(K key) {
+        Objects.requireNonNull(key);
+        this.sketch.increment(key.hashCode());
+        var node = this.data.get(key);
+        if(node == null) {
+            this.misses++;
+            return Optional.empty();
+        } // else the value is cached doNothing();
+        this.hits++;
+        this.onAccess(key, node);
+        return Optional.of(node.value);
+    }
+
+    /**
+     * Gets the value of the given key without counting the request or
+     * changing the order of eviction.
+     *
+     * @param key the given key.
+     *
+     * @return the value, or an empty Optional if it is not cached.
+     */
+    public synchronized Optional<V> peek(K key) {
+        Objects.requireNonNull(key);
+        var node = this.data.get(key);
+        return node == null ? Optional.empty() : Optional.of(node.value);
+    }
+
+    /**
+     * Caches the given value under the given key, replacing any previous
+     * value, and evicts entries until the maximum weight is respected. A
+     * new value heavier than the maximum weight is not cached.
+     *
+     * @param key the given key.
+     *
+     * @param value the given value.
+     */
+    public synchronized void put(K key, V value) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+        var weight = Math.max(1L, this.weigher.applyAsLong(value));
+        this.sketch.increment(key.hashCode());
+        var node = this.data.get(key);
+        if(node != null) {
+            this.weight += weight - node.weight;
+            if(node.queue == Queue.WINDOW) {
+                this.windowWeight += weight - node.weight;
+            } else if(node.queue == Queue.PROTECTED) {
+                this.protectedWeight += weight - node.weight;
+            } // else the probation space has no weight of its own doNothing();
+            node.value = value;
+            node.weight = weight;
+            this.onAccess(key, node);
+        } else if(weight > this.maximumWeight) {
+            return;
+        } else {
+            node = new Node<>(value, weight);
+            this.data.put(key, node);
+            this.window.put(key, node);
+            this.weight += weight;
+            this.windowWeight += weight;
+        }
+        this.evict();
+    }
+
+    /**
+     * Removes the value of the given key.
+     *
+     * @param key the given key.
+     */
+    public synchronized void invalidate(K key) {
+        Objects.requireNonNull(key);
+        var node = this.data.get(key);
+        if(node != null) {
+            this.remove(key, node);
+        } // else the key is not cached doNothing();
+    }
+
+    /**
+     * Removes all values. Statistics and frequencies are kept.
+     */
+    public synchronized void clear() {
+        this.data.clear();
+        this.window.clear();
+        this.probation.clear();
+        this.protectedSpace.clear();
+        this.weight = 0L;
+        this.windowWeight = 0L;
+        this.protectedWeight = 0L;
+    }
+
+    /**
+     * Moves the given entry after a request: to the most recent end of its
+     * space, or from probation to the protected space.
+     *
+     * @param key the key of the entry.
+     *
+     * @param node the entry.
+     */
+    private void onAccess(K key, Node<V> node) {
+        switch(node.queue) {
+            case WINDOW:
+                this.window.remove(key);
+                this.window.put(key, node);
+                break;
+            case PROBATION:
+                this.probation.remove(key);
+                node.queue = Queue.PROTECTED;
+                this.protectedSpace.put(key, node);
+                this.protectedWeight += node.weight;
+                while(this.protectedWeight > this.maximumProtectedWeight && this.protectedSpace.size() > 1) {
+                    var demoted = this.first(this.protectedSpace);
+                    this.protectedSpace.remove(demoted.getKey());
+                    this.protectedWeight -= demoted.getValue().weight;
+                    demoted.getValue().queue = Queue.PROBATION;
+                    this.probation.put(demoted.getKey(), demoted.getValue());
+                }
+                break;
+            default:
+                this.protectedSpace.remove(key);
+                this.protectedSpace.put(key, node);
+                break;
+        }
+    }
+
+    /**
+     * Moves the entries that overflow the window to probation, then evicts
+     * entries until the maximum weight is respected. Each entry leaving
+     * the window competes with the oldest entry in probation, and the one
+     * requested less often is evicted.
+     */
+    private void evict() {
+        var candidates = new ArrayDeque<K>();
+        while(this.windowWeight > this.maximumWindowWeight && !this.window.isEmpty()) {
+            var candidate = this.first(this.window);
+            this.window.remove(candidate.getKey());
+            this.windowWeight -= candidate.getValue().weight;
+            candidate.getValue().queue = Queue.PROBATION;
+            this.probation.put(candidate.getKey(), candidate.getValue());
+            candidates.add(candidate.getKey());
+        }
+
+        while(this.weight > this.maximumWeight) {
+            var candidate = candidates.isEmpty() ? null : this.probation.get(candidates.peekLast());
+            if(candidate == null) {
+                candidates.pollLast();
+                if(candidates.isEmpty()) {
+                    var space = !this.probation.isEmpty() ? this.probation
+                            : !this.protectedSpace.isEmpty() ? this.protectedSpace : this.window;
+                    var victim = this.first(space);
+                    this.evict(victim.getKey(), victim.getValue());
+                } // else the next candidate competes doNothing();
+                continue;
+            } // else the candidate is in probation doNothing();
+            var candidateKey = candidates.peekLast();
+            var victim = this.first(this.probation);
+            if(victim.getKey().equals(candidateKey)
+                    || this.sketch.frequency(candidateKey.hashCode())
+                    > this.sketch.frequency(victim.getKey().hashCode())) {
+                this.evict(victim.getKey(), victim.getValue());
+            } else {
+                candidates.pollLast();
+                this.evict(candidateKey, candidate);
+            }
+        }
+    }
+
+    /**
+     * Evicts the given entry and counts the eviction.
+     *
+     * @param key the key of the entry.
+     *
+     * @param node the entry.
+     */
+    private void evict(K key, Node<V> node) {
+        this.remove(key, node);
+        this.evictions++;
+        this.evictedWeight += node.weight;
+    }
+
+    /**
+     * Removes the given entry from the cache.
+     *
+     * @param key the key of the entry.
+     *
+     * @param node the entry.
+     */
+    private void remove(K key, Node<V> node) {
+        this.data.remove(key);
+        this.weight -= node.weight;
+        switch(node.queue) {
+            case WINDOW:
+                this.window.remove(key);
+                this.windowWeight -= node.weight;
+                break;
+            case PROBATION:
+                this.probation.remove(key);
+                break;
+            default:
+                this.protectedSpace.remove(key);
+                this.protectedWeight -= node.weight;
+                break;
+        }
+    }
+
+    /**
+     * Gets the least recently used entry of the given space.
+     *
+     * @param space the given space, not empty.
+     *
+     * @return the least recently used entry.
+     */
+    private Map.Entry<K, Node<V>> first(LinkedHashMap<K, Node<V>> space) {
+        return space.entrySet().iterator().next();
+    }
+
+    /**
+     * Gets the number of cached values.
+     *
+     * @return the number of cached values.
+     */
+    public synchronized int size() {
+        return this.data.size();
+    }
+
+    /**
+     * Gets the estimated number of bytes retained by the cached values.
+     *
+     * @return the total weight.
+     */
+    public synchronized long getWeightedSize() {
+        return this.weight;
+    }
+
+    /**
+     * Gets the maximum total weight of the cache.
+     *
+     * @return the maximum weight, in estimated bytes.
+     */
+    public long getMaximumWeight() {
+        return this.maximumWeight;
+    }
+
+    /**
+     * Gets the number of lookups that found a value.
+     *
+     * @return the number of hits.
+     */
+    public synchronized long getHitCount() {
+        return this.hits;
+    }
+
+    /**
+     * Gets the number of lookups that found no value.
+     *
+     * @return the number of misses.
+     */
+    public synchronized long getMissCount() {
+        return this.misses;
+    }
+
+    /**
+     * Gets the share of lookups that found a value.
+     *
+     * @return the hit ratio, between 0 and 1, or 0 before any lookup.
+     */
+    public synchronized double getHitRatio() {
+        var lookups = this.hits + this.misses;
+        return lookups == 0 ? 0.0 : (double) this.hits / lookups;
+    }
+
+    /**
+     * Gets the number of entries evicted to respect the maximum weight.
+     *
+     * @return the number of evictions.
+     */
+    public synchronized long getEvictionCount() {
+        return this.evictions;
+    }
+
+    /**
+     * Gets the total weight of the evicted entries.
+     *
+     * @return the evicted weight, in estimated bytes.
+     */
+    public synchronized long getEvictedWeight() {
+        return this.evictedWeight;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized String toString() {
+        final StringBuilder sb = new StringBuilder("WeightedCache{");
+        sb.append("size=").append(data.size());
+        sb.append(", weight=").append(weight);
+        sb.append(", maximumWeight=").append(maximumWeight);
+        sb.append(", hitRatio=").append(String.format("%.3f", getHitRatio()));
+        sb.append(", evictions=").append(evictions);
+        sb.append('}');
+        return sb.toString();
+    }
+}
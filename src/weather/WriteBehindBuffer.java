@@ -0,0 +1,625 @@
+package weather;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Represents a LocalWeatherModelDAO that defers the writes of another one.
+ * Saved stations and observations are queued in memory and written in
+ * batched transactions once enough of them are pending or after a short
+ * delay, so the callers never wait for the database. Repeated writes for
+ * the same station are coalesced: only the latest one is written. Reads
+ * never wait for a flush: they overlay the queued writes, and the writes
+ * being flushed, on what the other DAO returns. Everything pending is
+ * written when the buffer is closed; later writes are written directly.
+ */
+public final class WriteBehindBuffer
+implements LocalWeatherModelDAO {
+
+    /**
+     * Represents the name of the system property with the number of
+     * pending writes that triggers a flush.
+     */
+    public static final String MAX_PENDING_PROPERTY = "weather.writeBehind.maxPending";
+
+    /**
+     * Represents the name of the system property with the maximum time,
+     * in milliseconds, a write stays pending.
+     */
+    public static final String FLUSH_MILLIS_PROPERTY = "weather.writeBehind.flushMillis";
+
+    /**
+     * Represents the shared buffer in front of the local files.
+     */
+    private static WriteBehindBuffer instance;
+
+    /**
+     * Represents a Logger retrieved by the Manager class.
+     */
+    private static final Logger LOG = Manager.getLogger("WriteBehindBuffer");
+
+    /**
+     * Represents the DAO the writes are deferred to.
+     */
+    private final LocalWeatherModelDAO dao;
+
+    /**
+     * Represents the number of pending writes that triggers a flush.
+     */
+    private final int maxPending;
+
+    /**
+     * Represents the pending stations by station ID.
+     */
+    private final Map<String, Station> pendingStations = new LinkedHashMap<>();
+
+    /**
+     * Represents the pending observations by station ID.
+     */
+    private final Map<String, CurrentObservation> pendingObservations = new LinkedHashMap<>();
+
+    /**
+     * Represents the stations being flushed by station ID.
+     */
+    private final Map<String, Station> flushingStations = new LinkedHashMap<>();
+
+    /**
+     * Represents the observations being flushed by station ID.
+     */
+    private final Map<String, CurrentObservation> flushingObservations = new LinkedHashMap<>();
+
+    /**
+     * Serializes the flushes.
+     */
+    private final Object flushLock = new Object();
+
+    /**
+     * Represents the thread flushing the pending writes.
+     */
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * Tells whether a flush has been requested because enough writes are
+     * pending.
+     */
+    private boolean flushRequested;
+
+    /**
+     * Tells whether the buffer has been closed.
+     */
+    private boolean closed;
+
+    /**
+     * Represents the number of writes replaced by a later write for the
+     * same station before being flushed.
+     */
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Represents the number of flushes that wrote something.
+     */
+    private final AtomicLong flushes = new AtomicLong();
+
+    /**
+     * Represents the number of flushes that failed.
+     */
+    private final AtomicLong failedFlushes = new AtomicLong();
+
+    /**
+     * Represents the duration in nanoseconds of the last flush.
+     */
+    private volatile long lastFlushNanos;
+
+    /**
+     * Represents the longest duration in nanoseconds of a flush.
+     */
+    private volatile long maxFlushNanos;
+
+    /**
+     * Constructs a WriteBehindBuffer.
+     *
+     * @param dao the DAO the writes are deferred to.
+     *
+     * @param maxPending the number of pending writes that triggers a flush.
+     *
+     * @param flushMillis the maximum time, in milliseconds, a write stays
+     * pending.
+     *
+     * @throws IllegalArgumentException if a value is not positive.
+     */
+    public WriteBehindBuffer(LocalWeatherModelDAO dao, int maxPending, long flushMillis) {
+        if(maxPending <= 0 || flushMillis <= 0) {
+            throw new IllegalArgumentException("Invalid write-behind buffer.");
+        } // else the values are valid doNothing();
+        this.dao = Objects.requireNonNull(dao);
+        this.maxPending = maxPending;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher.scheduleWithFixedDelay(this::flushQuietly, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gets the shared buffer in front of the local files, creating it from
+     * the system properties if necessary. The shared buffer is flushed
+     * when the JVM exits.
+     *
+     * @return the shared buffer.
+     */
+    public static synchronized WriteBehindBuffer getInstance() {
+        if(instance == null) {
+            instance = new WriteBehindBuffer(new WeatherModelDAOSqlImpl(),
+                    Integer.getInteger(MAX_PENDING_PROPERTY, 256),
+                    Long.getLong(FLUSH_MILLIS_PROPERTY, 1000L));
+            Runtime.getRuntime().addShutdownHook(new Thread(instance::close, "write-behind-shutdown"));
+        } // else the buffer has been created doNothing();
+        return instance;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Pending stations of the state are added to the saved ones, and
+     * pending stations moved to another state are left out.
+     */
+    @Override
+    public Optional<List<Station>> getStations(String state) throws DAOException {
+        Objects.requireNonNull(state);
+        var overlay = this.getUnsavedStations();
+        var stations = new LinkedHashMap<String, Station>();
+        for(var station : this.dao.getStations(state).orElse(List.of())) {
+            stations.put(station.getStationId(), station);
+        }
+        for(var station : overlay) {
+            if(state.equals(station.getState())) {
+                stations.put(station.getStationId(), station);
+            } else {
+                stations.remove(station.getStationId());
+            }
+        }
+        return stations.isEmpty() ? Optional.empty() : Optional.of(new ArrayList<>(stations.values()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<CurrentObservation> getCurrentObservation(String stationId) throws DAOException {
+        Objects.requireNonNull(stationId);
+        var overlay = this.getUnsavedObservations(stationId);
+        if(!overlay.isEmpty()) {
+            return Optional.of(overlay.get(overlay.size() - 1));
+        } // else the observation is not pending doNothing();
+        return this.dao.getCurrentObservation(stationId);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The observation is written directly once the buffer is closed.
+     */
+    @Override
+    public void saveCurrentObservation(CurrentObservation observation) throws DAOException {
+        Objects.requireNonNull(observation);
+        synchronized(this) {
+            if(this.closed) {
+                this.dao.saveCurrentObservation(observation);
+                return;
+            } // else the write is deferred doNothing();
+            if(this.pendingObservations.put(observation.getStationId(), observation) != null) {
+                this.coalesced.incrementAndGet();
+            } // else the station had no pending observation doNothing();
+        }
+        this.onWrite();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Pending observations of the range are merged into the saved ones.
+     */
+    @Override
+    public List<CurrentObservation> getObservationHistory(String stationId, Instant from, Instant to)
+            throws DAOException {
+        Objects.requireNonNull(stationId);
+        Objects.requireNonNull(from);
+        Objects.requireNonNull(to);
+        var overlay = this.getUnsavedObservations(stationId);
+        var history = this.dao.getObservationHistory(stationId, from, to);
+        var inRange = new ArrayList<CurrentObservation>();
+        for(var observation : overlay) {
+            var observedAt = observation.getObservationInstant();
+            if(observedAt.isPresent() && observedAt.get().getEpochSecond() >= from.getEpochSecond()
+                    && observedAt.get().getEpochSecond() < to.getEpochSecond()) {
+                inRange.add(observation);
+            } // else the observation is out of the range doNothing();
+        }
+        return inRange.isEmpty() ? history : merge(history, inRange, false, Integer.MAX_VALUE);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Pending observations are merged into the saved ones.
+     */
+    @Override
+    public Map<String, List<CurrentObservation>> getLatestObservations(Collection<String> stationIds, int count)
+            throws DAOException {
+        Objects.requireNonNull(stationIds);
+        var overlay = new LinkedHashMap<String, List<CurrentObservation>>();
+        for(var stationId : stationIds) {
+            var unsaved = this.getUnsavedObservations(Objects.requireNonNull(stationId));
+            if(!unsaved.isEmpty()) {
+                overlay.put(stationId, unsaved);
+            } // else nothing is pending for the station doNothing();
+        }
+        var saved = this.dao.getLatestObservations(stationIds, count);
+        if(overlay.isEmpty()) {
+            return saved;
+        } // else pending observations have to be merged doNothing();
+        var latest = new LinkedHashMap<String, List<CurrentObservation>>();
+        for(var stationId : stationIds) {
+            var history = saved.getOrDefault(stationId, List.of());
+            var unsaved = overlay.get(stationId);
+            var observations = unsaved == null ? history : merge(history, unsaved, true, count);
+            if(!observations.isEmpty()) {
+                latest.put(stationId, observations);
+            } // else the station has no history doNothing();
+        }
+        return latest;
+    }
+
+    /**
+     * Merges the given pending observations into the given history, in
+     * the order of observation time. A pending observation already in the
+     * history, or without observation time, is left out.
+     *
+     * @param history the given history, in the given order.
+     *
+     * @param unsaved the given pending observations.
+     *
+     * @param newestFirst whether the history is ordered newest first.
+     *
+     * @param limit the maximum number of observations returned.
+     *
+     * @return the merged observations.
+     */
+    private static List<CurrentObservation> merge(List<CurrentObservation> history,
+                                                  List<CurrentObservation> unsaved,
+                                                  boolean newestFirst, int limit) {
+        var byTime = new TreeMap<Long, CurrentObservation>();
+        for(var observation : unsaved) {
+            observation.getObservationInstant().ifPresent(
+                    observedAt -> byTime.put(observedAt.getEpochSecond(), observation));
+        }
+        for(var observation : history) {
+            observation.getObservationInstant().ifPresent(
+                    observedAt -> byTime.put(observedAt.getEpochSecond(), observation));
+        }
+        var merged = new ArrayList<>(newestFirst ? byTime.descendingMap().values() : byTime.values());
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+
+    /**
+     * Gets the stations written but not saved yet: the stations being
+     * flushed, then the pending ones, which are more recent.
+     *
+     * @return the stations not saved yet.
+     */
+    private synchronized List<Station> getUnsavedStations() {
+        var stations = new ArrayList<Station>(this.flushingStations.values());
+        stations.addAll(this.pendingStations.values());
+        return stations;
+    }
+
+    /**
+     * Gets the observations of the given station written but not saved
+     * yet, the most recent last.
+     *
+     * @param stationId the given station ID.
+     *
+     * @return the observations not saved yet.
+     */
+    private synchronized List<CurrentObservation> getUnsavedObservations(String stationId) {
+        var observations = new ArrayList<CurrentObservation>(2);
+        var flushing = this.flushingObservations.get(stationId);
+        if(flushing != null) {
+            observations.add(flushing);
+        } // else the station is not being flushed doNothing();
+        var pending = this.pendingObservations.get(stationId);
+        if(pending != null) {
+            observations.add(pending);
+        } // else the station is not pending doNothing();
+        return observations;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The stations are written directly once the buffer is closed.
+     */
+    @Override
+    public void saveStations(List<Station> stations) throws DAOException {
+        Objects.requireNonNull(stations);
+        synchronized(this) {
+            if(this.closed) {
+                this.dao.saveStations(stations);
+                return;
+            } // else the writes are deferred doNothing();
+            for(var station : stations) {
+                if(this.pendingStations.put(station.getStationId(), station) != null) {
+                    this.coalesced.incrementAndGet();
+                } // else the station was not pending doNothing();
+            }
+        }
+        this.onWrite();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Pending stations are added to the saved ones.
+     */
+    @Override
+    public Optional<List<Station>> getAllStations() throws DAOException {
+        var overlay = this.getUnsavedStations();
+        var stations = new LinkedHashMap<String, Station>();
+        for(var station : this.dao.getAllStations().orElse(List.of())) {
+            stations.put(station.getStationId(), station);
+        }
+        for(var station : overlay) {
+            stations.put(station.getStationId(), station);
+        }
+        return stations.isEmpty() ? Optional.empty() : Optional.of(new ArrayList<>(stations.values()));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Pending writes are flushed first and the changes are applied
+     * directly, so they are not overwritten by an older pending write.
+     */
+    @Override
+    public void applyStationChanges(List<Station> stations, Collection<String> removedStationIds) throws DAOException {
+        Objects.requireNonNull(stations);
+        Objects.requireNonNull(removedStationIds);
+        synchronized(this.flushLock) {
+            this.flush();
+            this.dao.applyStationChanges(stations, removedStationIds);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Pending stations and observations are discarded.
+     */
+    @Override
+    public void clear() throws DAOException {
+        synchronized(this.flushLock) {
+            synchronized(this) {
+                this.pendingStations.clear();
+                this.pendingObservations.clear();
+            }
+            this.dao.clear();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The states of pending stations are added to the saved ones.
+     */
+    @Override
+    public Optional<List<String>> getAllStates() throws DAOException {
+        var overlay = this.getUnsavedStations();
+        var states = new LinkedHashSet<String>(this.dao.getAllStates().orElse(List.of()));
+        for(var station : overlay) {
+            states.add(station.getState());
+        }
+        return states.isEmpty() ? Optional.empty() : Optional.of(new ArrayList<>(states));
+    }
+
+    /**
+     * Requests a flush on the flushing thread once enough writes are pending.
+     */
+    private void onWrite() {
+        synchronized(this) {
+            if(this.flushRequested || this.getQueueDepth() < this.maxPending) {
+                return;
+            } // else a flush has to be requested doNothing();
+            this.flushRequested = true;
+        }
+        this.flusher.execute(this::flushQuietly);
+    }
+
+    /**
+     * Writes the pending writes, logging a failure instead of throwing it.
+     */
+    private void flushQuietly() {
+        try {
+            this.flush();
+        } catch (DAOException | RuntimeException ex) {
+            LOG.log(Level.WARNING, "Cannot flush pending writes: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Writes the pending stations and observations, each kind in one
+     * transaction. Writes that fail are queued again unless a later write
+     * for the same station is pending.
+     *
+     * @throws DAOException if the writes fail.
+     */
+    public void flush() throws DAOException {
+        synchronized(this.flushLock) {
+            List<Station> stations;
+            List<CurrentObservation> observations;
+            synchronized(this) {
+                this.flushRequested = false;
+                stations = new ArrayList<>(this.pendingStations.values());
+                observations = new ArrayList<>(this.pendingObservations.values());
+                this.flushingStations.putAll(this.pendingStations);
+                this.flushingObservations.putAll(this.pendingObservations);
+                this.pendingStations.clear();
+                this.pendingObservations.clear();
+            }
+            if(stations.isEmpty() && observations.isEmpty()) {
+                return;
+            } // else there is something to write doNothing();
+
+            var start = System.nanoTime();
+            try {
+                if(!stations.isEmpty()) {
+                    this.dao.saveStations(stations);
+                    stations.clear();
+                    synchronized(this) {
+                        this.flushingStations.clear();
+                    }
+                } // else no station is pending doNothing();
+                if(!observations.isEmpty()) {
+                    this.dao.saveCurrentObservations(observations);
+                    observations.clear();
+                    synchronized(this) {
+                        this.flushingObservations.clear();
+                    }
+                } // else no observation is pending doNothing();
+                this.flushes.incrementAndGet();
+            } catch (DAOException | RuntimeException ex) {
+                this.failedFlushes.incrementAndGet();
+                this.requeue(stations, observations);
+                throw ex;
+            } finally {
+                var elapsed = System.nanoTime() - start;
+                this.lastFlushNanos = elapsed;
+                this.maxFlushNanos = Math.max(this.maxFlushNanos, elapsed);
+            }
+        }
+    }
+
+    /**
+     * Queues again the given writes that could not be flushed, unless a
+     * later write for the same station is pending. Nothing is being
+     * flushed afterwards.
+     *
+     * @param stations the stations not written.
+     *
+     * @param observations the observations not written.
+     */
+    private synchronized void requeue(List<Station> stations, List<CurrentObservation> observations) {
+        this.flushingStations.clear();
+        this.flushingObservations.clear();
+        for(var station : stations) {
+            this.pendingStations.putIfAbsent(station.getStationId(), station);
+        }
+        for(var observation : observations) {
+            this.pendingObservations.putIfAbsent(observation.getStationId(), observation);
+        }
+    }
+
+    /**
+     * Stops deferring writes, stops the flushing thread and writes
+     * everything pending.
+     */
+    public void close() {
+        synchronized(this) {
+            if(this.closed) {
+                return;
+            } // else the buffer is open doNothing();
+            this.closed = true;
+        }
+        this.flusher.shutdown();
+        try {
+            this.flush();
+        } catch (DAOException | RuntimeException ex) {
+            LOG.log(Level.SEVERE, "Pending writes were lost: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Gets the number of writes waiting to be flushed.
+     *
+     * @return the queue depth.
+     */
+    public synchronized int getQueueDepth() {
+        return this.pendingStations.size() + this.pendingObservations.size();
+    }
+
+    /**
+     * Gets the number of writes replaced by a later write for the same
+     * station before being flushed.
+     *
+     * @return the number of coalesced writes.
+     */
+    public long getCoalescedCount() {
+        return this.coalesced.get();
+    }
+
+    /**
+     * Gets the number of flushes that wrote something.
+     *
+     * @return the number of flushes.
+     */
+    public long getFlushCount() {
+        return this.flushes.get();
+    }
+
+    /**
+     * Gets the number of flushes that failed.
+     *
+     * @return the number of failed flushes.
+     */
+    public long getFailedFlushCount() {
+        return this.failedFlushes.get();
+    }
+
+    /**
+     * Gets the duration of the last flush.
+     *
+     * @return the duration in milliseconds.
+     */
+    public long getLastFlushMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(this.lastFlushNanos);
+    }
+
+    /**
+     * Gets the longest duration of a flush.
+     *
+     * @return the duration in milliseconds.
+     */
+    public long getMaxFlushMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(this.maxFlushNanos);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("WriteBehindBuffer{");
+        sb.append("queueDepth=").append(getQueueDepth());
+        sb.append(", coalesced=").append(coalesced);
+        sb.append(", flushes=").append(flushes);
+        sb.append(", failedFlushes=").append(failedFlushes);
+        sb.append(", lastFlushMillis=").append(getLastFlushMillis());
+        sb.append(", maxFlushMillis=").append(getMaxFlushMillis());
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,65 @@
+package weather;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+
+import java.util.Objects;
+
+/**
+ * Holds one pre-configured Jackson reader per transfer object. Building an
+ * XmlMapper per request throws away Jackson's deserializer caches and
+ * repeats the introspection of the transfer objects; the readers here are
+ * built once, are immutable and may be shared by any number of threads.
+ */
+public final class XmlReaders {
+
+    /**
+     * Represents the mapper all readers are derived from.
+     */
+    private static final XmlMapper MAPPER = createMapper();
+
+    /**
+     * Represents the reader of each transfer object, built on first use.
+     */
+    private static final ClassValue<ObjectReader> READERS = new ClassValue<>() {
+        @Override
+        protected ObjectReader computeValue(Class<?> type) {
+            return MAPPER.readerFor(type);
+        }
+    };
+
+    static {
+        READERS.get(CurrentObservationTO.class);
+    }
+
+    /**
+     * XmlReaders only has static members.
+     */
+    private XmlReaders() {
+    }
+
+    /**
+     * Creates the mapper shared by all readers. Unknown elements are
+     * ignored, so new fields in the NOAA feeds do not break parsing.
+     *
+     * @return a configured mapper.
+     */
+    private static XmlMapper createMapper() {
+        var mapper = new XmlMapper();
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        return mapper;
+    }
+
+    /**
+     * Gets the reader of the given transfer object.
+     *
+     * @param type the class of the transfer object.
+     *
+     * @return a thread-safe reader.
+     */
+    public static ObjectReader forType(Class<?> type) {
+        Objects.requireNonNull(type);
+        return READERS.get(type);
+    }
+}
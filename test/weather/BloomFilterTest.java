@@ -0,0 +1,57 @@
+package weather;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that BloomFilter never rejects an added value and keeps close to
+ * its false positive rate.
+ */
+class BloomFilterTest {
+
+    /**
+     * Every added value might be contained.
+     */
+    @Test
+    void containsEveryAddedValue() {
+        var filter = new BloomFilter(3000, 0.01);
+        for(var i = 0; i < 3000; i++) {
+            filter.add(String.format("K%04d", i));
+        }
+
+        for(var i = 0; i < 3000; i++) {
+            assertTrue(filter.mightContain(String.format("K%04d", i)));
+        }
+    }
+
+    /**
+     * Values never added are rarely reported as contained.
+     */
+    @Test
+    void keepsCloseToTheFalsePositiveRate() {
+        var filter = new BloomFilter(3000, 0.01);
+        for(var i = 0; i < 3000; i++) {
+            filter.add(String.format("K%04d", i));
+        }
+
+        var falsePositives = 0;
+        for(var i = 0; i < 100_000; i++) {
+            if(filter.mightContain(String.format("X%06d", i))) {
+                falsePositives++;
+            } // else the value is rejected doNothing();
+        }
+        assertTrue(falsePositives < 2000, falsePositives + " false positives");
+    }
+
+    /**
+     * Invalid rates are rejected.
+     */
+    @Test
+    void rejectsInvalidRates() {
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(10, 0.0));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(10, 1.0));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(-1, 0.01));
+    }
+}
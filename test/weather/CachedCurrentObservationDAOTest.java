@@ -0,0 +1,196 @@
+package weather;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests how CachedCurrentObservationDAO serves expired observations with
+ * and without stale-while-revalidate, and how it uses the local store.
+ */
+class CachedCurrentObservationDAOTest {
+
+    /**
+     * Represents the current time of the tests.
+     */
+    private static final Instant NOW = Instant.parse("2026-10-18T12:00:00Z");
+
+    /**
+     * Represents the clock of the cache.
+     */
+    private final TestClock clock = new TestClock(NOW);
+
+    /**
+     * Represents the number of fetches of the wrapped DAO.
+     */
+    private final AtomicInteger fetches = new AtomicInteger();
+
+    /**
+     * Represents a wrapped DAO answering at once with an observation made
+     * now, whose temperature is the number of the fetch.
+     */
+    private final CurrentObservationDAO web = new CurrentObservationDAO() {
+        @Override
+        public Optional<CurrentObservation> get(String stationId) {
+            return Optional.of(new CurrentObservation.Builder("Austin", stationId)
+                    .observationTimeRfc822(DateTimeFormatter.RFC_1123_DATE_TIME.format(
+                            clock.instant().atZone(ZoneOffset.UTC)))
+                    .temperature(String.valueOf(fetches.incrementAndGet()))
+                    .pickupPeriod(Duration.ofHours(1))
+                    .build());
+        }
+
+        @Override
+        public CompletableFuture<Optional<CurrentObservation>> fetchAsync(String stationId) {
+            return CompletableFuture.completedFuture(this.get(stationId));
+        }
+    };
+
+    /**
+     * Creates the DAO under test, without a local store.
+     *
+     * @param staleWhileRevalidate whether expired observations are served
+     * while refreshed.
+     *
+     * @return the DAO.
+     */
+    private CachedCurrentObservationDAO dao(boolean staleWhileRevalidate) {
+        return new CachedCurrentObservationDAO(this.web, new ObservationCache(this.clock, 1024L * 1024),
+                staleWhileRevalidate);
+    }
+
+    /**
+     * Creates the DAO under test in front of the given local store.
+     *
+     * @param store the given local store.
+     *
+     * @return the DAO.
+     */
+    private CachedCurrentObservationDAO dao(LocalWeatherModelDAO store) {
+        return new CachedCurrentObservationDAO(this.web, new ObservationCache(this.clock, 1024L * 1024),
+                store, false);
+    }
+
+    /**
+     * A fresh observation is served from the cache.
+     */
+    @Test
+    void servesAFreshObservationFromTheCache() {
+        var dao = this.dao(false);
+
+        dao.getAsync("KAUS").join();
+        var second = dao.getAsync("KAUS").join().orElseThrow();
+
+        assertEquals(1, this.fetches.get());
+        assertEquals("1", second.getTemperature());
+    }
+
+    /**
+     * By default an expired observation is fetched again before it is
+     * served.
+     */
+    @Test
+    void refetchesAnExpiredObservationByDefault() {
+        var dao = this.dao(false);
+
+        dao.getAsync("KAUS").join();
+        this.clock.advance(Duration.ofMinutes(90));
+        var observation = dao.getAsync("KAUS").join().orElseThrow();
+
+        assertFalse(observation.isStale());
+        assertEquals("2", observation.getTemperature());
+    }
+
+    /**
+     * With stale-while-revalidate, an expired observation is served at
+     * once, marked as stale, and a newer one is fetched for the next
+     * lookup.
+     */
+    @Test
+    void servesAnExpiredObservationWhileRevalidating() {
+        var dao = this.dao(true);
+        try {
+            dao.getAsync("KAUS").join();
+            this.clock.advance(Duration.ofMinutes(90));
+            var stale = dao.getAsync("KAUS").join().orElseThrow();
+
+            assertTrue(stale.isStale());
+            assertEquals("1", stale.getTemperature());
+            assertEquals(2, this.fetches.get());
+
+            var fresh = dao.getAsync("KAUS").join().orElseThrow();
+            assertFalse(fresh.isStale());
+            assertEquals("2", fresh.getTemperature());
+        } finally {
+            dao.getRefresher().ifPresent(ObservationRefresher::stop);
+        }
+    }
+
+    /**
+     * The shared DAO does not serve stale observations unless the system
+     * property enables it.
+     */
+    @Test
+    void isOffByDefault() {
+        assertFalse(CachedCurrentObservationDAO.getInstance().getRefresher().isPresent());
+    }
+
+    /**
+     * An observation saved to the local store before a restart is served
+     * without fetching it.
+     */
+    @Test
+    void servesASavedObservationFromTheLocalStore() throws Exception {
+        var store = new InMemoryLocalDAO();
+        this.dao(store).getAsync("KAUS").join();
+
+        var restarted = this.dao(store);
+        var observation = restarted.getAsync("KAUS").join().orElseThrow();
+
+        assertEquals(1, this.fetches.get());
+        assertEquals("1", observation.getTemperature());
+        assertEquals("1", restarted.get("KAUS").orElseThrow().getTemperature());
+        assertEquals(1, this.fetches.get());
+    }
+
+    /**
+     * An expired observation is fetched again and the newer one replaces
+     * it in the local store.
+     */
+    @Test
+    void savesFetchedObservationsToTheLocalStore() throws Exception {
+        var store = new InMemoryLocalDAO();
+        var dao = this.dao(store);
+        dao.getAsync("KAUS").join();
+        this.clock.advance(Duration.ofMinutes(90));
+
+        var observation = dao.getAsync("KAUS").join().orElseThrow();
+
+        assertEquals("2", observation.getTemperature());
+        assertEquals("2", store.getCurrentObservation("KAUS").orElseThrow().getTemperature());
+    }
+
+    /**
+     * A local store that cannot save does not fail the lookup.
+     */
+    @Test
+    void servesTheFetchedObservationWhenTheLocalStoreFails() {
+        var store = new InMemoryLocalDAO();
+        store.setFailing(true);
+        var dao = this.dao(store);
+
+        assertEquals("1", dao.getAsync("KAUS").join().orElseThrow().getTemperature());
+        assertEquals("1", dao.getAsync("KAUS").join().orElseThrow().getTemperature());
+        assertEquals(1, this.fetches.get());
+    }
+}
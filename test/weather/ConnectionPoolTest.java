@@ -0,0 +1,195 @@
+package weather;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the configuration, the reuse and the reset of the connections of
+ * ConnectionPool on a temporary SQLite file.
+ */
+class ConnectionPoolTest {
+
+    /**
+     * Represents the temporary directory of the database.
+     */
+    private Path directory;
+
+    /**
+     * Represents the connection string of the temporary database.
+     */
+    private String url;
+
+    /**
+     * Creates the temporary directory of the database.
+     */
+    @BeforeEach
+    void createDirectory() throws Exception {
+        this.directory = Files.createTempDirectory("weather-pool");
+        this.url = "jdbc:sqlite:" + this.directory.resolve("weather.sqlite");
+    }
+
+    /**
+     * Deletes the temporary directory of the database.
+     */
+    @AfterEach
+    void deleteDirectory() throws Exception {
+        try(var files = Files.list(this.directory)) {
+            for(var file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(this.directory);
+    }
+
+    /**
+     * Reads the value of the given pragma.
+     *
+     * @param connection the connection to read it from.
+     *
+     * @param pragma the given pragma.
+     *
+     * @return the value of the pragma.
+     *
+     * @throws SQLException if the pragma cannot be read.
+     */
+    private static String pragma(Connection connection, String pragma) throws SQLException {
+        try(var statement = connection.createStatement();
+            var resultSet = statement.executeQuery("PRAGMA " + pragma)) {
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    }
+
+    /**
+     * Every connection is opened in WAL mode with the configured pragmas.
+     */
+    @Test
+    void configuresNewConnections() throws Exception {
+        var pool = new ConnectionPool(this.url, 2, "normal", 4096, 750L);
+        try(var pooled = pool.borrow()) {
+            var connection = pooled.getConnection();
+
+            assertEquals("wal", pragma(connection, "journal_mode"));
+            assertEquals("1", pragma(connection, "synchronous"));
+            assertEquals("-4096", pragma(connection, "cache_size"));
+            assertEquals("750", pragma(connection, "busy_timeout"));
+        } finally {
+            pool.close();
+        }
+    }
+
+    /**
+     * A connection given back is borrowed again with its prepared
+     * statements, instead of opening a new one.
+     */
+    @Test
+    void reusesConnectionsAndStatements() throws Exception {
+        var pool = new ConnectionPool(this.url, 2, "NORMAL", 4096, 750L);
+        try {
+            Connection connection;
+            PreparedStatement statement;
+            try(var pooled = pool.borrow()) {
+                connection = pooled.getConnection();
+                statement = pooled.prepare("SELECT ?");
+                assertSame(statement, pooled.prepare("SELECT ?"));
+            }
+            try(var pooled = pool.borrow()) {
+                assertSame(connection, pooled.getConnection());
+                assertSame(statement, pooled.prepare("SELECT ?"));
+                try(var other = pool.borrow()) {
+                    assertNotSame(connection, other.getConnection());
+                }
+            }
+        } finally {
+            pool.close();
+        }
+    }
+
+    /**
+     * A transaction left open is rolled back when the connection is
+     * given back.
+     */
+    @Test
+    void rollsBackAnOpenTransaction() throws Exception {
+        var pool = new ConnectionPool(this.url, 1, "NORMAL", 4096, 750L);
+        try {
+            try(var pooled = pool.borrow();
+                var statement = pooled.getConnection().createStatement()) {
+                statement.executeUpdate("CREATE TABLE STATIONS(STATION_ID TEXT)");
+            }
+            try(var pooled = pool.borrow()) {
+                pooled.getConnection().setAutoCommit(false);
+                try(var statement = pooled.getConnection().createStatement()) {
+                    statement.executeUpdate("INSERT INTO STATIONS VALUES('KAUS')");
+                }
+            }
+            try(var pooled = pool.borrow();
+                var statement = pooled.getConnection().createStatement();
+                var resultSet = statement.executeQuery("SELECT COUNT(*) FROM STATIONS")) {
+                assertTrue(pooled.getConnection().getAutoCommit());
+                resultSet.next();
+                assertEquals(0, resultSet.getInt(1));
+            }
+        } finally {
+            pool.close();
+        }
+    }
+
+    /**
+     * A borrower waits at most the timeout once every connection is
+     * borrowed.
+     */
+    @Test
+    void failsWhenNoConnectionIsGivenBackInTime() throws Exception {
+        var pool = new ConnectionPool(this.url, 1, "NORMAL", 4096, 50L);
+        try(var pooled = pool.borrow()) {
+            var start = System.nanoTime();
+
+            assertThrows(SQLException.class, pool::borrow);
+            assertTrue(System.nanoTime() - start >= 40_000_000L);
+        } finally {
+            pool.close();
+        }
+    }
+
+    /**
+     * A closed pool lends no connection and closes the ones given back.
+     */
+    @Test
+    void closesConnectionsGivenBackAfterClose() throws Exception {
+        var pool = new ConnectionPool(this.url, 2, "NORMAL", 4096, 50L);
+        var pooled = pool.borrow();
+        var connection = pooled.getConnection();
+
+        pool.close();
+        assertFalse(connection.isClosed());
+        pooled.close();
+
+        assertTrue(connection.isClosed());
+        assertThrows(SQLException.class, pool::borrow);
+    }
+
+    /**
+     * Invalid settings are rejected.
+     */
+    @Test
+    void rejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new ConnectionPool(this.url, 0, "NORMAL", 4096, 50L));
+        assertThrows(IllegalArgumentException.class, () -> new ConnectionPool(this.url, 1, "FAST", 4096, 50L));
+        assertThrows(IllegalArgumentException.class, () -> new ConnectionPool(this.url, 1, "NORMAL", 0, 50L));
+    }
+}
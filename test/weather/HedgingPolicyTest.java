@@ -0,0 +1,181 @@
+package weather;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests when HedgingPolicy sends a hedge and how the attempts are settled.
+ */
+class HedgingPolicyTest {
+
+    /**
+     * Represents the delay before a hedge, in milliseconds, while too few
+     * latencies are recorded.
+     */
+    private static final long DELAY = 20L;
+
+    /**
+     * Represents the attempts started by a request.
+     */
+    private final List<CompletableFuture<String>> attempts = new ArrayList<>();
+
+    /**
+     * Starts a new attempt that only completes when the test completes it.
+     *
+     * @return the attempt.
+     */
+    private synchronized CompletableFuture<String> attempt() {
+        var attempt = new CompletableFuture<String>();
+        this.attempts.add(attempt);
+        return attempt;
+    }
+
+    /**
+     * Gets the attempt with the given index.
+     *
+     * @param index the given index.
+     *
+     * @return the attempt.
+     */
+    private synchronized CompletableFuture<String> attempt(int index) {
+        return this.attempts.get(index);
+    }
+
+    /**
+     * Waits until the given number of attempts has been started.
+     *
+     * @param count the given number of attempts.
+     *
+     * @throws InterruptedException if the test is interrupted.
+     */
+    private void awaitAttempts(int count) throws InterruptedException {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while(true) {
+            synchronized(this) {
+                if(this.attempts.size() >= count) {
+                    return;
+                } // else the hedge has not been sent yet doNothing();
+            }
+            assertTrue(System.nanoTime() < deadline, "No hedge was sent.");
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * A disabled policy runs the request once and returns its future.
+     */
+    @Test
+    void passesThroughWhenDisabled() throws Exception {
+        var policy = new HedgingPolicy(false, 95, 100, 0);
+
+        var result = policy.execute(this::attempt);
+        Thread.sleep(DELAY * 3);
+
+        assertSame(this.attempt(0), result);
+        assertEquals(1, this.attempts.size());
+        assertEquals(0, policy.getHedgesFired());
+    }
+
+    /**
+     * A request answering before the delay is not hedged.
+     */
+    @Test
+    void doesNotHedgeAFastRequest() throws Exception {
+        var policy = new HedgingPolicy(true, 95, 100, DELAY);
+
+        var result = policy.execute(() -> CompletableFuture.completedFuture("observation"));
+        Thread.sleep(DELAY * 3);
+
+        assertEquals("observation", result.get(1, TimeUnit.SECONDS));
+        assertEquals(0, policy.getHedgesFired());
+    }
+
+    /**
+     * A slow request is hedged after the delay; the first answer wins and
+     * the other attempt is cancelled.
+     */
+    @Test
+    void hedgesASlowRequest() throws Exception {
+        var policy = new HedgingPolicy(true, 95, 100, DELAY);
+
+        var result = policy.execute(this::attempt);
+        this.awaitAttempts(2);
+        this.attempt(1).complete("hedge");
+
+        assertEquals("hedge", result.get(1, TimeUnit.SECONDS));
+        assertTrue(this.attempt(0).isCancelled());
+        assertEquals(1, policy.getHedgesFired());
+        assertEquals(1, policy.getHedgesWon());
+    }
+
+    /**
+     * The request fails only once every attempt has failed.
+     */
+    @Test
+    void failsWhenEveryAttemptFails() throws Exception {
+        var policy = new HedgingPolicy(true, 95, 100, DELAY);
+
+        var result = policy.execute(this::attempt);
+        this.awaitAttempts(2);
+        this.attempt(0).completeExceptionally(new IllegalStateException("first"));
+        assertFalse(result.isDone());
+        this.attempt(1).completeExceptionally(new IllegalStateException("second"));
+
+        var ex = assertThrows(ExecutionException.class, () -> result.get(1, TimeUnit.SECONDS));
+        assertEquals("second", ex.getCause().getMessage());
+    }
+
+    /**
+     * Cancelling the request cancels every attempt still running.
+     */
+    @Test
+    void cancelsEveryAttempt() throws Exception {
+        var policy = new HedgingPolicy(true, 95, 100, DELAY);
+
+        var result = policy.execute(this::attempt);
+        this.awaitAttempts(2);
+        result.cancel(true);
+
+        assertTrue(this.attempt(0).isCancelled());
+        assertTrue(this.attempt(1).isCancelled());
+    }
+
+    /**
+     * Without budget, only the saved up hedges are sent.
+     */
+    @Test
+    void stopsHedgingWhenTheBudgetIsSpent() throws Exception {
+        var policy = new HedgingPolicy(true, 95, 0, DELAY);
+        var results = new ArrayList<CompletableFuture<String>>();
+
+        for(var i = 0; i < 12; i++) {
+            results.add(policy.execute(this::attempt));
+        }
+        Thread.sleep(DELAY * 10);
+
+        assertEquals(10, policy.getHedgesFired());
+        assertEquals(22, this.attempts.size());
+        results.forEach(result -> result.cancel(true));
+    }
+
+    /**
+     * Out of range settings are rejected.
+     */
+    @Test
+    void rejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new HedgingPolicy(true, 0, 5, 1000));
+        assertThrows(IllegalArgumentException.class, () -> new HedgingPolicy(true, 95, 101, 1000));
+        assertThrows(IllegalArgumentException.class, () -> new HedgingPolicy(true, 95, 5, -1));
+    }
+}
@@ -0,0 +1,253 @@
+package weather;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Represents local files held in memory, whose writes can be made to fail
+ * or to wait, for the tests of the classes in front of the local files.
+ */
+final class InMemoryLocalDAO implements LocalWeatherModelDAO {
+
+    /**
+     * Represents the saved stations by station ID.
+     */
+    private final Map<String, Station> stations = new LinkedHashMap<>();
+
+    /**
+     * Represents the saved current observations by station ID.
+     */
+    private final Map<String, CurrentObservation> observations = new LinkedHashMap<>();
+
+    /**
+     * Represents the saved observations of each station by epoch second.
+     */
+    private final Map<String, TreeMap<Long, CurrentObservation>> history = new LinkedHashMap<>();
+
+    /**
+     * Tells whether writes fail.
+     */
+    private volatile boolean failing;
+
+    /**
+     * Represents a latch writes wait for before saving, or null.
+     */
+    private volatile CountDownLatch writeGate;
+
+    /**
+     * Represents the number of writes.
+     */
+    private int writes;
+
+    /**
+     * Represents the stations of the last call to applyStationChanges.
+     */
+    private List<Station> appliedStations;
+
+    /**
+     * Represents the removed station IDs of the last call to
+     * applyStationChanges.
+     */
+    private List<String> appliedRemovals;
+
+    /**
+     * Makes writes fail or succeed.
+     *
+     * @param failing whether writes fail.
+     */
+    void setFailing(boolean failing) {
+        this.failing = failing;
+    }
+
+    /**
+     * Makes writes wait for the given latch before saving.
+     *
+     * @param writeGate the given latch, or null.
+     */
+    void setWriteGate(CountDownLatch writeGate) {
+        this.writeGate = writeGate;
+    }
+
+    /**
+     * Gets the number of writes that succeeded.
+     *
+     * @return the number of writes.
+     */
+    synchronized int getWrites() {
+        return this.writes;
+    }
+
+    /**
+     * Gets the stations of the last call to applyStationChanges.
+     *
+     * @return the stations, or null if it was not called.
+     */
+    synchronized List<Station> getAppliedStations() {
+        return this.appliedStations;
+    }
+
+    /**
+     * Gets the removed station IDs of the last call to applyStationChanges.
+     *
+     * @return the station IDs, or null if it was not called.
+     */
+    synchronized List<String> getAppliedRemovals() {
+        return this.appliedRemovals;
+    }
+
+    /**
+     * Waits for the write gate, then fails if writes fail.
+     *
+     * @throws DAOException if writes fail.
+     */
+    private void write() throws DAOException {
+        var gate = this.writeGate;
+        if(gate != null) {
+            try {
+                gate.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new DAOException("Interrupted.");
+            }
+        } // else writes do not wait doNothing();
+        if(this.failing) {
+            throw new DAOException("The local files are not available.");
+        } // else the write succeeds doNothing();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized Optional<List<Station>> getStations(String state) {
+        var list = new ArrayList<Station>();
+        for(var station : this.stations.values()) {
+            if(state.equals(station.getState())) {
+                list.add(station);
+            } // else the station is in another state doNothing();
+        }
+        return list.isEmpty() ? Optional.empty() : Optional.of(list);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized Optional<CurrentObservation> getCurrentObservation(String stationId) {
+        return Optional.ofNullable(this.observations.get(stationId));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void saveStations(List<Station> stations) throws DAOException {
+        this.write();
+        synchronized(this) {
+            for(var station : stations) {
+                this.stations.put(station.getStationId(), station);
+            }
+            this.writes++;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void saveCurrentObservation(CurrentObservation observation) throws DAOException {
+        this.write();
+        synchronized(this) {
+            this.observations.put(observation.getStationId(), observation);
+            observation.getObservationInstant().ifPresent(observedAt -> this.history
+                    .computeIfAbsent(observation.getStationId(), id -> new TreeMap<>())
+                    .put(observedAt.getEpochSecond(), observation));
+            this.writes++;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized List<CurrentObservation> getObservationHistory(String stationId, Instant from, Instant to) {
+        var observations = this.history.getOrDefault(stationId, new TreeMap<>());
+        return new ArrayList<>(observations.subMap(from.getEpochSecond(), to.getEpochSecond()).values());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized Map<String, List<CurrentObservation>> getLatestObservations(Collection<String> stationIds,
+                                                                                   int count) {
+        var latest = new LinkedHashMap<String, List<CurrentObservation>>();
+        for(var stationId : stationIds) {
+            var observations = this.history.get(stationId);
+            if(observations != null) {
+                var list = new ArrayList<>(observations.descendingMap().values());
+                latest.put(stationId, new ArrayList<>(list.subList(0, Math.min(count, list.size()))));
+            } // else the station has no history doNothing();
+        }
+        return latest;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized Optional<List<Station>> getAllStations() {
+        return this.stations.isEmpty() ? Optional.empty() : Optional.of(new ArrayList<>(this.stations.values()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void applyStationChanges(List<Station> stations, Collection<String> removedStationIds)
+            throws DAOException {
+        this.write();
+        synchronized(this) {
+            for(var station : stations) {
+                this.stations.put(station.getStationId(), station);
+            }
+            for(var stationId : removedStationIds) {
+                this.stations.remove(stationId);
+            }
+            this.appliedStations = new ArrayList<>(stations);
+            this.appliedRemovals = new ArrayList<>(removedStationIds);
+            this.writes++;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void clear() {
+        this.stations.clear();
+        this.observations.clear();
+        this.history.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized Optional<List<String>> getAllStates() {
+        var states = new LinkedHashSet<String>();
+        for(var station : this.stations.values()) {
+            states.add(Objects.requireNonNull(station.getState()));
+        }
+        return states.isEmpty() ? Optional.empty() : Optional.of(new ArrayList<>(states));
+    }
+}
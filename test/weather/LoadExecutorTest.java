@@ -0,0 +1,99 @@
+package weather;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the tasks and the counters of LoadExecutor. The executor is shared
+ * by the whole JVM, so it is never shut down here.
+ */
+class LoadExecutorTest {
+
+    /**
+     * A supplied task completes the future with its result.
+     */
+    @Test
+    void suppliesTheResult() throws Exception {
+        var result = LoadExecutor.supply(() -> Thread.currentThread().getName());
+
+        assertTrue(result.get(5, TimeUnit.SECONDS).startsWith("load-executor-"));
+    }
+
+    /**
+     * A checked exception of a supplied task fails the future.
+     */
+    @Test
+    void failsTheFutureWithTheException() {
+        var result = LoadExecutor.supply(() -> {
+            throw new IOException("offline");
+        });
+
+        var ex = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertTrue(ex.getCause() instanceof IOException);
+    }
+
+    /**
+     * Cancelling a supplied future interrupts the running task, which
+     * then leaves the active count.
+     */
+    @Test
+    void interruptsACancelledTask() throws Exception {
+        var started = new CountDownLatch(1);
+        var interrupted = new CountDownLatch(1);
+        var result = LoadExecutor.supply(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException ex) {
+                interrupted.countDown();
+            }
+            return null;
+        });
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertTrue(LoadExecutor.getActiveCount() >= 1);
+        result.cancel(true);
+
+        assertThrows(CancellationException.class, result::join);
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Every finished task is counted as completed and leaves the queue.
+     */
+    @Test
+    void countsCompletedTasks() throws Exception {
+        var before = LoadExecutor.getCompletedCount();
+
+        for(var i = 0; i < 10; i++) {
+            LoadExecutor.submit(() -> 1).get(5, TimeUnit.SECONDS);
+        }
+
+        assertTrue(LoadExecutor.getCompletedCount() - before >= 10);
+        assertEquals(0, LoadExecutor.getQueueDepth());
+    }
+
+    /**
+     * A task cancelled before it runs leaves the queue count.
+     */
+    @Test
+    void releasesTheQueueCountOfACancelledTask() throws Exception {
+        var future = LoadExecutor.submit(() -> 1);
+        future.cancel(false);
+
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while(LoadExecutor.getQueueDepth() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(0, LoadExecutor.getQueueDepth());
+    }
+}
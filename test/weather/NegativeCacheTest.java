@@ -0,0 +1,85 @@
+package weather;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests how long NegativeCache rejects stations that failed.
+ */
+class NegativeCacheTest {
+
+    /**
+     * Represents the clock of the cache.
+     */
+    private final TestClock clock = new TestClock(Instant.parse("2026-10-18T12:00:00Z"));
+
+    /**
+     * Represents the cache under test: missing stations are remembered
+     * ten minutes, other failures thirty seconds.
+     */
+    private final NegativeCache failures
+            = new NegativeCache(Duration.ofMinutes(10), Duration.ofSeconds(30), this.clock);
+
+    /**
+     * A station that was not found is rejected for the not found time.
+     */
+    @Test
+    void rejectsAMissingStationForTheNotFoundTime() {
+        this.failures.recordFailure("KXYZ", new UncheckedIOException(new HttpStatusException(404, "url")));
+
+        this.clock.advance(Duration.ofMinutes(9));
+        assertTrue(this.failures.rejects("KXYZ"));
+        this.clock.advance(Duration.ofMinutes(1));
+        assertFalse(this.failures.rejects("KXYZ"));
+        assertEquals(0, this.failures.size());
+    }
+
+    /**
+     * Any other failure is rejected for the shorter failure time.
+     */
+    @Test
+    void rejectsAFailedStationForTheFailureTime() {
+        this.failures.recordFailure("KAUS", new HttpStatusException(503, "url"));
+        this.failures.recordFailure("KDFW", new IOException("reset"));
+
+        assertTrue(this.failures.rejects("KAUS"));
+        assertTrue(this.failures.rejects("KDFW"));
+        this.clock.advance(Duration.ofSeconds(30));
+        assertFalse(this.failures.rejects("KAUS"));
+        assertFalse(this.failures.rejects("KDFW"));
+        assertEquals(2, this.failures.getRejectionCount());
+    }
+
+    /**
+     * An invalidated station is accepted again at once.
+     */
+    @Test
+    void acceptsAnInvalidatedStation() {
+        this.failures.recordFailure("KAUS", new IOException("reset"));
+
+        this.failures.invalidate("KAUS");
+
+        assertFalse(this.failures.rejects("KAUS"));
+    }
+
+    /**
+     * A zero time disables remembering that kind of failure.
+     */
+    @Test
+    void forgetsFailuresWithoutATime() {
+        var disabled = new NegativeCache(Duration.ofMinutes(10), Duration.ZERO, this.clock);
+
+        disabled.recordFailure("KAUS", new IOException("reset"));
+
+        assertFalse(disabled.rejects("KAUS"));
+        assertEquals(0, disabled.size());
+    }
+}
@@ -0,0 +1,133 @@
+package weather;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests when ObservationCache expires an observation and what it serves
+ * afterwards.
+ */
+class ObservationCacheTest {
+
+    /**
+     * Represents the current time of the tests.
+     */
+    private static final Instant NOW = Instant.parse("2026-10-18T12:00:00Z");
+
+    /**
+     * Represents the clock of the cache.
+     */
+    private final TestClock clock = new TestClock(NOW);
+
+    /**
+     * Represents the cache under test.
+     */
+    private final ObservationCache cache = new ObservationCache(this.clock, 1024L * 1024);
+
+    /**
+     * Creates an observation of KAUS made at the given instant.
+     *
+     * @param observedAt the given instant.
+     *
+     * @param pickupPeriod the pickup period suggested by the feed.
+     *
+     * @return the observation.
+     */
+    private static CurrentObservation observation(Instant observedAt, Duration pickupPeriod) {
+        return new CurrentObservation.Builder("Austin", "KAUS")
+                .observationTimeRfc822(DateTimeFormatter.RFC_1123_DATE_TIME.format(observedAt.atZone(ZoneOffset.UTC)))
+                .temperature("75.0 F")
+                .pickupPeriod(pickupPeriod)
+                .build();
+    }
+
+    /**
+     * An observation expires when the next one is expected.
+     */
+    @Test
+    void expiresWhenTheNextObservationIsExpected() {
+        this.cache.put(observation(NOW.minus(Duration.ofMinutes(10)), Duration.ofMinutes(60)));
+
+        assertEquals(NOW.plus(Duration.ofMinutes(50)), this.cache.getExpiry("KAUS").orElseThrow());
+        this.clock.advance(Duration.ofMinutes(49));
+        assertTrue(this.cache.get("KAUS").isPresent());
+        this.clock.advance(Duration.ofMinutes(1));
+        assertFalse(this.cache.get("KAUS").isPresent());
+        assertFalse(this.cache.isFresh("KAUS"));
+    }
+
+    /**
+     * An observation whose successor is overdue is still kept for the
+     * minimum time to live.
+     */
+    @Test
+    void keepsALateObservationForTheMinimumTime() {
+        this.cache.put(observation(NOW.minus(Duration.ofHours(3)), Duration.ofMinutes(60)));
+
+        assertEquals(NOW.plus(Duration.ofMinutes(5)), this.cache.getExpiry("KAUS").orElseThrow());
+    }
+
+    /**
+     * Without a suggested pickup period, an observation is kept an hour.
+     */
+    @Test
+    void assumesAnHourlyPickupPeriod() {
+        this.cache.put(observation(NOW, Duration.ZERO));
+
+        assertEquals(NOW.plus(Duration.ofHours(1)), this.cache.getExpiry("KAUS").orElseThrow());
+    }
+
+    /**
+     * An expired observation is still served as stale, with its age, and
+     * its lookup counts as a miss.
+     */
+    @Test
+    void servesAnExpiredObservationAsStale() {
+        this.cache.put(observation(NOW, Duration.ofMinutes(60)));
+        this.clock.advance(Duration.ofMinutes(90));
+
+        assertFalse(this.cache.get("KAUS").isPresent());
+        var stale = this.cache.getStale("KAUS").orElseThrow();
+
+        assertTrue(stale.isStale());
+        assertEquals(Duration.ofMinutes(90), stale.getStaleAge().orElseThrow());
+        assertEquals(0, this.cache.getHitCount());
+        assertEquals(1, this.cache.getMissCount());
+        assertEquals(1, this.cache.getExpirationCount());
+    }
+
+    /**
+     * A fresh observation is a hit and is not marked as stale.
+     */
+    @Test
+    void servesAFreshObservation() {
+        this.cache.put(observation(NOW, Duration.ofMinutes(60)));
+
+        var cached = this.cache.get("KAUS").orElseThrow();
+
+        assertFalse(cached.isStale());
+        assertEquals(1, this.cache.getHitCount());
+        assertEquals(0, this.cache.getMissCount());
+    }
+
+    /**
+     * An invalidated station is neither fresh nor stale.
+     */
+    @Test
+    void forgetsAnInvalidatedStation() {
+        this.cache.put(observation(NOW, Duration.ofMinutes(60)));
+        this.cache.invalidate("KAUS");
+
+        assertFalse(this.cache.get("KAUS").isPresent());
+        assertFalse(this.cache.getStale("KAUS").isPresent());
+        assertEquals(0, this.cache.size());
+    }
+}
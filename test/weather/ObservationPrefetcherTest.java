@@ -0,0 +1,167 @@
+package weather;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests how many observations ObservationPrefetcher fetches at once and
+ * how a new state cancels the prefetch of the previous one.
+ */
+class ObservationPrefetcherTest {
+
+    /**
+     * Represents the latest fetch started for each station ID.
+     */
+    private final Map<String, CompletableFuture<Optional<CurrentObservation>>> fetches = new HashMap<>();
+
+    /**
+     * Represents the IDs of the stations fetched, in order.
+     */
+    private final List<String> fetched = new ArrayList<>();
+
+    /**
+     * Represents a wrapped DAO whose fetches only complete when the test
+     * completes them.
+     */
+    private final CurrentObservationDAO web = new CurrentObservationDAO() {
+        @Override
+        public Optional<CurrentObservation> get(String stationId) {
+            throw new UnsupportedOperationException("Only fetched asynchronously.");
+        }
+
+        @Override
+        public CompletableFuture<Optional<CurrentObservation>> fetchAsync(String stationId) {
+            synchronized(ObservationPrefetcherTest.this) {
+                var fetch = new CompletableFuture<Optional<CurrentObservation>>();
+                fetches.put(stationId, fetch);
+                fetched.add(stationId);
+                return fetch;
+            }
+        }
+    };
+
+    /**
+     * Represents the DAO the prefetcher warms.
+     */
+    private final CachedCurrentObservationDAO dao = new CachedCurrentObservationDAO(
+            this.web, new ObservationCache(Clock.systemUTC(), 1024L * 1024), false);
+
+    /**
+     * Creates stations of one state with the given IDs.
+     *
+     * @param ids the given IDs.
+     *
+     * @return the stations.
+     */
+    private static List<Station> stations(String... ids) {
+        var stations = new ArrayList<Station>();
+        for(var id : ids) {
+            stations.add(new Station(id, "TX", id));
+        }
+        return stations;
+    }
+
+    /**
+     * Gets the IDs of the stations fetched so far.
+     *
+     * @return the IDs, in order.
+     */
+    private synchronized List<String> fetched() {
+        return new ArrayList<>(this.fetched);
+    }
+
+    /**
+     * Completes the fetch of the given station with an observation.
+     *
+     * @param stationId the given station ID.
+     */
+    private void complete(String stationId) {
+        CompletableFuture<Optional<CurrentObservation>> fetch;
+        synchronized(this) {
+            fetch = this.fetches.get(stationId);
+        }
+        fetch.complete(Optional.of(new CurrentObservation.Builder(stationId, stationId).build()));
+    }
+
+    /**
+     * No more than the concurrency are fetched at once, and the next
+     * station starts when one finishes.
+     */
+    @Test
+    void boundsTheFetchesInFlight() {
+        var prefetcher = new ObservationPrefetcher(this.dao, 10, 2);
+
+        prefetcher.prefetch(stations("KAUS", "KDFW", "KIAH", "KSAT"));
+        assertEquals(List.of("KAUS", "KDFW"), this.fetched());
+
+        this.complete("KAUS");
+        assertEquals(List.of("KAUS", "KDFW", "KIAH"), this.fetched());
+        assertEquals(3, prefetcher.getPrefetchCount());
+    }
+
+    /**
+     * Only the first stations up to the limit are fetched.
+     */
+    @Test
+    void stopsAtTheLimit() {
+        var prefetcher = new ObservationPrefetcher(this.dao, 2, 1);
+
+        prefetcher.prefetch(stations("KAUS", "KDFW", "KIAH"));
+        this.complete("KAUS");
+        this.complete("KDFW");
+
+        assertEquals(List.of("KAUS", "KDFW"), this.fetched());
+    }
+
+    /**
+     * Prefetching another state cancels the fetches still running and
+     * forgets the stations not started.
+     */
+    @Test
+    void cancelsThePreviousState() {
+        var prefetcher = new ObservationPrefetcher(this.dao, 10, 2);
+        prefetcher.prefetch(stations("KAUS", "KDFW", "KIAH", "KSAT"));
+
+        prefetcher.prefetch(stations("KCMH"));
+
+        synchronized(this) {
+            assertTrue(this.fetches.get("KAUS").isCancelled());
+            assertTrue(this.fetches.get("KDFW").isCancelled());
+        }
+        assertEquals(List.of("KAUS", "KDFW", "KCMH"), this.fetched());
+        assertEquals(2, prefetcher.getCancelledCount());
+    }
+
+    /**
+     * A station with a fresh observation is not fetched again.
+     */
+    @Test
+    void skipsFreshStations() {
+        var prefetcher = new ObservationPrefetcher(this.dao, 10, 2);
+        prefetcher.prefetch(stations("KAUS"));
+        this.complete("KAUS");
+
+        prefetcher.prefetch(stations("KAUS", "KDFW"));
+
+        assertEquals(List.of("KAUS", "KDFW"), this.fetched());
+    }
+
+    /**
+     * The concurrency must be positive.
+     */
+    @Test
+    void rejectsInvalidConcurrency() {
+        assertThrows(IllegalArgumentException.class, () -> new ObservationPrefetcher(this.dao, 10, 0));
+    }
+}
@@ -0,0 +1,157 @@
+package weather;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests which stations ObservationRefresher tracks and when it refreshes
+ * them.
+ */
+class ObservationRefresherTest {
+
+    /**
+     * Represents the current time of the tests.
+     */
+    private static final Instant NOW = Instant.parse("2026-10-18T12:00:00Z");
+
+    /**
+     * Represents the clock of the cache and the refresher.
+     */
+    private final TestClock clock = new TestClock(NOW);
+
+    /**
+     * Represents the cache holding the expiries.
+     */
+    private final ObservationCache cache = new ObservationCache(this.clock, 1024L * 1024);
+
+    /**
+     * Represents the stations refreshed so far.
+     */
+    private final List<String> refreshed = new ArrayList<>();
+
+    /**
+     * Creates a refresher tracking the given number of hot stations,
+     * refreshing them two minutes before expiry. Its periodic checks are
+     * an hour apart, so the tests run the checks themselves.
+     *
+     * @param count the given number of hot stations.
+     *
+     * @return the refresher.
+     */
+    private ObservationRefresher refresher(int count) {
+        return new ObservationRefresher(this.cache, this.refreshed::add, count,
+                Duration.ofMinutes(2), Duration.ofHours(1), this.clock);
+    }
+
+    /**
+     * Caches an observation of the given station expiring in the given time.
+     *
+     * @param stationId the given station ID.
+     *
+     * @param expiresIn the given time.
+     */
+    private void cache(String stationId, Duration expiresIn) {
+        var observedAt = NOW.plus(expiresIn).minus(Duration.ofHours(1));
+        this.cache.put(new CurrentObservation.Builder("Somewhere", stationId)
+                .observationTimeRfc822(DateTimeFormatter.RFC_1123_DATE_TIME.format(observedAt.atZone(ZoneOffset.UTC)))
+                .pickupPeriod(Duration.ofHours(1))
+                .build());
+    }
+
+    /**
+     * Only hot stations expiring within the lead time are refreshed.
+     */
+    @Test
+    void refreshesHotStationsAboutToExpire() {
+        var refresher = this.refresher(10);
+        this.cache("KAUS", Duration.ofMinutes(30));
+        this.cache("KDFW", Duration.ofMinutes(50));
+        this.cache("KIAH", Duration.ofMinutes(30));
+        try {
+            refresher.recordView("KAUS");
+            refresher.recordView("KDFW");
+            refresher.recordView("KSAT");
+
+            refresher.check();
+            assertTrue(this.refreshed.isEmpty());
+            this.clock.advance(Duration.ofMinutes(29));
+            refresher.check();
+
+            assertEquals(List.of("KAUS"), this.refreshed);
+        } finally {
+            refresher.stop();
+        }
+    }
+
+    /**
+     * The hot stations are the most recently viewed ones and the most
+     * frequently viewed ones.
+     */
+    @Test
+    void keepsRecentAndFrequentStationsHot() {
+        var refresher = this.refresher(2);
+        try {
+            for(var i = 0; i < 5; i++) {
+                refresher.recordView("KAUS");
+            }
+            refresher.recordView("KDFW");
+            refresher.recordView("KIAH");
+            refresher.recordView("KSAT");
+
+            var hot = refresher.getHotStations();
+
+            assertTrue(hot.contains("KSAT"));
+            assertTrue(hot.contains("KIAH"));
+            assertTrue(hot.contains("KAUS"));
+            assertTrue(hot.size() <= 4);
+        } finally {
+            refresher.stop();
+        }
+    }
+
+    /**
+     * A burst of stations viewed once does not push out a popular one.
+     */
+    @Test
+    void keepsAPopularStationThroughABurst() {
+        var refresher = this.refresher(1);
+        try {
+            for(var i = 0; i < 5; i++) {
+                refresher.recordView("KAUS");
+            }
+            for(var i = 0; i < 20; i++) {
+                refresher.recordView("K" + i);
+            }
+
+            assertTrue(refresher.getHotStations().contains("KAUS"));
+        } finally {
+            refresher.stop();
+        }
+    }
+
+    /**
+     * A refresher for no station tracks nothing.
+     */
+    @Test
+    void tracksNothingWhenDisabled() {
+        var refresher = this.refresher(0);
+        this.cache("KAUS", Duration.ofMinutes(30));
+        this.clock.advance(Duration.ofMinutes(29));
+
+        refresher.recordView("KAUS");
+        refresher.check();
+
+        assertTrue(refresher.getHotStations().isEmpty());
+        assertFalse(this.refreshed.contains("KAUS"));
+    }
+}
@@ -0,0 +1,187 @@
+package weather;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests how ResponseStore stores, shares and sweeps response bodies.
+ */
+class ResponseStoreTest {
+
+    /**
+     * Represents the directory of the store.
+     */
+    private Path directory;
+
+    /**
+     * Represents the store under test.
+     */
+    private ResponseStore store;
+
+    /**
+     * Creates an empty store in a temporary directory.
+     *
+     * @throws IOException if the directory cannot be created.
+     */
+    @BeforeEach
+    void createStore() throws IOException {
+        this.directory = Files.createTempDirectory("response-store");
+        this.store = new ResponseStore(this.directory);
+    }
+
+    /**
+     * Deletes the directory of the store.
+     *
+     * @throws IOException if the directory cannot be deleted.
+     */
+    @AfterEach
+    void deleteStore() throws IOException {
+        try(var files = Files.walk(this.directory)) {
+            for(var file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Stores the given body of the given URL, reading only part of it
+     * before committing, as a parser that stops early does.
+     *
+     * @param url the given URL.
+     *
+     * @param body the given body.
+     *
+     * @param etag the ETag of the response.
+     *
+     * @throws IOException if the body cannot be read.
+     */
+    private void store(String url, String body, String etag) throws IOException {
+        try(var capture = this.store.capture(url, etag, "Sat, 18 Oct 2026 12:00:00 GMT")) {
+            var in = capture.wrap(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+            in.read(new byte[2]);
+            capture.commit();
+        }
+    }
+
+    /**
+     * Reads the stored body of the given URL.
+     *
+     * @param url the given URL.
+     *
+     * @return the body.
+     *
+     * @throws IOException if the body cannot be read.
+     */
+    private String body(String url) throws IOException {
+        try(var in = this.store.get(url).orElseThrow().openBody()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Counts the stored bodies.
+     *
+     * @return the number of bodies.
+     *
+     * @throws IOException if the bodies cannot be listed.
+     */
+    private long bodies() throws IOException {
+        try(var files = Files.walk(this.directory.resolve("objects"))) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    /**
+     * A committed response is stored whole with its validators, even if
+     * the reader stopped early.
+     */
+    @Test
+    void storesTheWholeBodyAndValidators() throws IOException {
+        this.store("https://example.com/KAUS.xml", "<observation/>", "\"v1\"");
+
+        var stored = this.store.get("https://example.com/KAUS.xml").orElseThrow();
+        assertEquals("\"v1\"", stored.getEtag().orElseThrow());
+        assertEquals("Sat, 18 Oct 2026 12:00:00 GMT", stored.getLastModified().orElseThrow());
+        assertEquals("<observation/>", this.body("https://example.com/KAUS.xml"));
+    }
+
+    /**
+     * A capture closed without a commit stores nothing.
+     */
+    @Test
+    void storesNothingWithoutACommit() throws IOException {
+        try(var capture = this.store.capture("https://example.com/KAUS.xml", null, null)) {
+            capture.wrap(new ByteArrayInputStream(new byte[] {1, 2, 3})).read();
+        }
+
+        assertFalse(this.store.get("https://example.com/KAUS.xml").isPresent());
+        assertEquals(0, this.bodies());
+    }
+
+    /**
+     * Identical bodies of different URLs are stored once.
+     */
+    @Test
+    void storesIdenticalBodiesOnce() throws IOException {
+        this.store("https://example.com/a.xml", "same", null);
+        this.store("https://example.com/b.xml", "same", null);
+
+        assertEquals(1, this.bodies());
+        assertEquals("same", this.body("https://example.com/a.xml"));
+        assertEquals("same", this.body("https://example.com/b.xml"));
+    }
+
+    /**
+     * Replacing the body of a URL keeps a body still shared by another
+     * URL, and a sweep only deletes bodies no URL refers to.
+     */
+    @Test
+    void sweepsOnlyUnreferencedBodies() throws IOException {
+        this.store("https://example.com/a.xml", "shared", null);
+        this.store("https://example.com/b.xml", "shared", null);
+        this.store("https://example.com/c.xml", "old", null);
+
+        this.store("https://example.com/a.xml", "new", null);
+        this.store("https://example.com/c.xml", "newer", null);
+        assertEquals("shared", this.body("https://example.com/b.xml"));
+        assertEquals(4, this.bodies());
+
+        this.store.sweep();
+
+        assertEquals(3, this.bodies());
+        assertEquals("new", this.body("https://example.com/a.xml"));
+        assertEquals("shared", this.body("https://example.com/b.xml"));
+        assertEquals("newer", this.body("https://example.com/c.xml"));
+    }
+
+    /**
+     * A store without a directory passes bodies through and keeps nothing.
+     */
+    @Test
+    void passesThroughWhenDisabled() throws IOException {
+        var disabled = new ResponseStore(null);
+
+        try(var capture = disabled.capture("https://example.com/KAUS.xml", null, null)) {
+            var in = capture.wrap(new ByteArrayInputStream("body".getBytes(StandardCharsets.UTF_8)));
+            assertEquals("body", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            capture.commit();
+        }
+
+        assertFalse(disabled.isEnabled());
+        assertFalse(disabled.get("https://example.com/KAUS.xml").isPresent());
+        assertTrue(this.store.isEnabled());
+    }
+}
@@ -0,0 +1,156 @@
+package weather;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests the migrations of SchemaMigrations on a temporary SQLite file.
+ */
+class SchemaMigrationsTest {
+
+    /**
+     * Represents the temporary database file.
+     */
+    private Path file;
+
+    /**
+     * Represents the connection to the temporary database.
+     */
+    private Connection connection;
+
+    /**
+     * Opens a connection to an empty temporary database.
+     */
+    @BeforeEach
+    void open() throws Exception {
+        this.file = Files.createTempFile("weather-schema", ".sqlite");
+        this.connection = DriverManager.getConnection("jdbc:sqlite:" + this.file);
+    }
+
+    /**
+     * Closes the connection and deletes the temporary database.
+     */
+    @AfterEach
+    void close() throws Exception {
+        this.connection.close();
+        Files.deleteIfExists(this.file);
+    }
+
+    /**
+     * Runs the given statements.
+     *
+     * @param sqls the given statements.
+     *
+     * @throws SQLException if a statement fails.
+     */
+    private void execute(String... sqls) throws SQLException {
+        try(var statement = this.connection.createStatement()) {
+            for(var sql : sqls) {
+                statement.executeUpdate(sql);
+            }
+        }
+    }
+
+    /**
+     * Gets the rows of STATIONS as "ID STATION_ID STATION_NAME", ordered
+     * by ID.
+     *
+     * @return the rows.
+     *
+     * @throws SQLException if the rows cannot be read.
+     */
+    private List<String> stations() throws SQLException {
+        var rows = new ArrayList<String>();
+        try(var statement = this.connection.createStatement();
+            var resultSet = statement.executeQuery("SELECT ID, STATION_ID, STATION_NAME FROM STATIONS ORDER BY ID")) {
+            while(resultSet.next()) {
+                rows.add(resultSet.getInt("ID") + " " + resultSet.getString("STATION_ID") + " "
+                        + resultSet.getString("STATION_NAME"));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Gets the number of recorded versions.
+     *
+     * @return the number of versions.
+     *
+     * @throws SQLException if the versions cannot be read.
+     */
+    private int versions() throws SQLException {
+        try(var statement = this.connection.createStatement();
+            var resultSet = statement.executeQuery("SELECT COUNT(*) FROM SCHEMA_VERSION")) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    /**
+     * An empty database is brought to the latest version, and migrating
+     * it again changes nothing.
+     */
+    @Test
+    void migratesAnEmptyDatabaseOnce() throws Exception {
+        assertEquals(SchemaMigrations.getLatestVersion(), SchemaMigrations.migrate(this.connection));
+        assertEquals(SchemaMigrations.getLatestVersion(), this.versions());
+
+        assertEquals(SchemaMigrations.getLatestVersion(), SchemaMigrations.migrate(this.connection));
+        assertEquals(SchemaMigrations.getLatestVersion(), this.versions());
+    }
+
+    /**
+     * Local files written before the migrations, with duplicate stations,
+     * keep the latest row of each station, and the station IDs are then
+     * unique.
+     */
+    @Test
+    void removesDuplicateStationsOfExistingFiles() throws Exception {
+        this.execute("CREATE TABLE STATIONS(ID INTEGER PRIMARY KEY AUTOINCREMENT, "
+                        + "STATION_ID TEXT NOT NULL, STATE TEXT, STATION_NAME TEXT)",
+                "INSERT INTO STATIONS(STATION_ID, STATE, STATION_NAME) VALUES('KAUS', 'TX', 'Austin')",
+                "INSERT INTO STATIONS(STATION_ID, STATE, STATION_NAME) VALUES('KDFW', 'TX', 'Dallas')",
+                "INSERT INTO STATIONS(STATION_ID, STATE, STATION_NAME) VALUES('KAUS', 'TX', 'Austin-Bergstrom')",
+                "INSERT INTO STATIONS(STATION_ID, STATE, STATION_NAME) VALUES('KAUS', 'TX', 'Austin Airport')");
+
+        assertEquals(SchemaMigrations.getLatestVersion(), SchemaMigrations.migrate(this.connection));
+
+        assertEquals(List.of("2 KDFW Dallas", "4 KAUS Austin Airport"), this.stations());
+        assertThrows(SQLException.class, () -> this.execute(
+                "INSERT INTO STATIONS(STATION_ID, STATE, STATION_NAME) VALUES('KAUS', 'TX', 'Austin')"));
+    }
+
+    /**
+     * Only the migrations newer than the recorded version are applied, so
+     * the data of the applied ones is kept.
+     */
+    @Test
+    void resumesFromTheRecordedVersion() throws Exception {
+        this.execute("CREATE TABLE SCHEMA_VERSION(VERSION INTEGER PRIMARY KEY, "
+                        + "DESCRIPTION TEXT, APPLIED_AT INTEGER NOT NULL)",
+                "INSERT INTO SCHEMA_VERSION(VERSION, DESCRIPTION, APPLIED_AT) VALUES(1, 'stations', 0)",
+                "CREATE TABLE STATIONS(ID INTEGER PRIMARY KEY AUTOINCREMENT, "
+                        + "STATION_ID TEXT NOT NULL, STATE TEXT, STATION_NAME TEXT)",
+                "INSERT INTO STATIONS(STATION_ID, STATE, STATION_NAME) VALUES('KAUS', 'TX', 'Austin')",
+                "INSERT INTO STATIONS(STATION_ID, STATE, STATION_NAME) VALUES('KAUS', 'TX', 'Austin-Bergstrom')");
+
+        assertEquals(SchemaMigrations.getLatestVersion(), SchemaMigrations.migrate(this.connection));
+
+        assertEquals(List.of("2 KAUS Austin-Bergstrom"), this.stations());
+        assertEquals(SchemaMigrations.getLatestVersion(), this.versions());
+        this.execute("INSERT INTO OBSERVATION_HISTORY(STATION_ID, OBSERVED_AT, OBSERVATION_TIME_RFC822) "
+                + "VALUES('KAUS', 0, 'Thu, 01 Jan 1970 00:00:00 +0000')");
+    }
+}
@@ -0,0 +1,132 @@
+package weather;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the coalescing and the cancellation of SingleFlight.
+ */
+class SingleFlightTest {
+
+    /**
+     * Concurrent callers for the same key share one request and all
+     * receive its result.
+     */
+    @Test
+    void sharesOneRequestPerKey() {
+        var flights = new SingleFlight<String, String>();
+        var request = new CompletableFuture<String>();
+        var loads = new AtomicInteger();
+
+        var first = flights.execute("KAUS", key -> {
+            loads.incrementAndGet();
+            return request;
+        });
+        var second = flights.execute("KAUS", key -> {
+            loads.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+        request.complete("observation");
+
+        assertEquals(1, loads.get());
+        assertEquals("observation", first.join());
+        assertEquals("observation", second.join());
+        assertEquals(1, flights.getIssuedCount());
+        assertEquals(1, flights.getCoalescedCount());
+        assertEquals(0, flights.getInFlightCount());
+    }
+
+    /**
+     * A key whose request has completed starts a new request.
+     */
+    @Test
+    void startsANewRequestOnceTheLastCompleted() {
+        var flights = new SingleFlight<String, String>();
+
+        flights.execute("KAUS", key -> CompletableFuture.completedFuture("old")).join();
+        var result = flights.execute("KAUS", key -> CompletableFuture.completedFuture("new"));
+
+        assertEquals("new", result.join());
+        assertEquals(2, flights.getIssuedCount());
+        assertEquals(0, flights.getCoalescedCount());
+    }
+
+    /**
+     * Requests for different keys are not coalesced.
+     */
+    @Test
+    void keepsKeysApart() {
+        var flights = new SingleFlight<String, String>();
+
+        var austin = flights.execute("KAUS", key -> new CompletableFuture<>());
+        var dallas = flights.execute("KDFW", key -> new CompletableFuture<>());
+
+        assertNotSame(austin, dallas);
+        assertEquals(2, flights.getIssuedCount());
+        assertEquals(2, flights.getInFlightCount());
+    }
+
+    /**
+     * A caller cancelling its future does not cancel the request while
+     * another caller still waits for it.
+     */
+    @Test
+    void keepsTheRequestWhileACallerWaits() {
+        var flights = new SingleFlight<String, String>();
+        var request = new CompletableFuture<String>();
+
+        var first = flights.execute("KAUS", key -> request);
+        var second = flights.execute("KAUS", key -> new CompletableFuture<>());
+        first.cancel(true);
+
+        assertFalse(request.isCancelled());
+        request.complete("observation");
+        assertEquals("observation", second.join());
+    }
+
+    /**
+     * The request is cancelled and forgotten once the last caller
+     * cancels, so the next caller starts a new one.
+     */
+    @Test
+    void cancelsTheRequestWhenTheLastCallerCancels() {
+        var flights = new SingleFlight<String, String>();
+        var request = new CompletableFuture<String>();
+
+        var first = flights.execute("KAUS", key -> request);
+        var second = flights.execute("KAUS", key -> new CompletableFuture<>());
+        first.cancel(true);
+        second.cancel(true);
+
+        assertTrue(request.isCancelled());
+        assertEquals(0, flights.getInFlightCount());
+
+        var next = flights.execute("KAUS", key -> CompletableFuture.completedFuture("new"));
+        assertEquals("new", next.join());
+        assertEquals(2, flights.getIssuedCount());
+    }
+
+    /**
+     * A failed request fails every caller and is not kept in flight.
+     */
+    @Test
+    void sharesFailures() {
+        var flights = new SingleFlight<String, String>();
+        var request = new CompletableFuture<String>();
+
+        var first = flights.execute("KAUS", key -> request);
+        var second = flights.execute("KAUS", key -> new CompletableFuture<>());
+        request.completeExceptionally(new IllegalStateException("down"));
+
+        assertTrue(first.isCompletedExceptionally());
+        assertTrue(second.isCompletedExceptionally());
+        assertEquals(0, flights.getInFlightCount());
+    }
+}
@@ -0,0 +1,182 @@
+package weather;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compares the parsers of the station index on a saved copy of index.xml:
+ * binding the whole document into a WxStationIndexTO with Jackson and
+ * filtering the stations of one state, as the station list was read
+ * before, against the streaming StationIndexParser, for one state and for
+ * all states. Each case is warmed up, then timed; the median time and the
+ * bytes allocated per parse are printed.
+ *
+ * Usage: java -cp &lt;classes and dependencies&gt; weather.StationIndexParserBenchmark
+ * [index.xml] [state] [iterations]. The index can be saved from
+ * https://w1.weather.gov/xml/current_obs/index.xml. The cases run can be
+ * narrowed with -Dbench.cases=jackson,stax-state,stax-all.
+ */
+public final class StationIndexParserBenchmark {
+
+    /**
+     * Represents the number of untimed parses before a case is timed.
+     */
+    private static final int WARM_UP = 20;
+
+    /**
+     * Represents a parse of the index returning the number of stations read.
+     */
+    private interface Case {
+        /**
+         * Parses the given index.
+         *
+         * @param index the given index document.
+         *
+         * @return the number of stations read.
+         *
+         * @throws Exception if the index cannot be parsed.
+         */
+        int parse(byte[] index) throws Exception;
+    }
+
+    /**
+     * StationIndexParserBenchmark only has static members.
+     */
+    private StationIndexParserBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the index file, the state and the number of timed
+     * iterations.
+     *
+     * @throws Exception if the index cannot be read or parsed.
+     */
+    public static void main(String[] args) throws Exception {
+        var file = Paths.get(args.length > 0 ? args[0] : "index.xml");
+        var state = args.length > 1 ? args[1] : "TX";
+        var iterations = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        var cases = Arrays.asList(System.getProperty("bench.cases", "jackson,stax-state,stax-all").split(","));
+        var index = Files.readAllBytes(file);
+        System.out.printf(Locale.ROOT, "%s: %d bytes, state %s, %d iterations%n",
+                file, index.length, state, iterations);
+
+        if(cases.contains("jackson")) {
+            run("jackson", index, iterations, bytes -> jackson(bytes, state));
+        } // else the case is skipped doNothing();
+        if(cases.contains("stax-state")) {
+            run("stax-state", index, iterations, bytes -> stax(bytes, state));
+        } // else the case is skipped doNothing();
+        if(cases.contains("stax-all")) {
+            run("stax-all", index, iterations, bytes -> stax(bytes, null));
+        } // else the case is skipped doNothing();
+    }
+
+    /**
+     * Binds the whole index with Jackson and keeps the stations of the
+     * given state.
+     *
+     * @param index the given index document.
+     *
+     * @param state the given state.
+     *
+     * @return the number of stations of the state.
+     *
+     * @throws IOException if the index cannot be parsed.
+     */
+    private static int jackson(byte[] index, String state) throws IOException {
+        WxStationIndexTO stations = XmlReaders.forType(WxStationIndexTO.class).readValue(index);
+        var list = new ArrayList<Station>();
+        for(var station : stations.station) {
+            if(state.equals(station.state)) {
+                list.add(new Station(station.stationId, station.state, station.stationName));
+            } // else the station is not in the given state doNothing();
+        }
+        return list.size();
+    }
+
+    /**
+     * Streams the index with StationIndexParser.
+     *
+     * @param index the given index document.
+     *
+     * @param state the given state, or null for all states.
+     *
+     * @return the number of stations read.
+     *
+     * @throws XMLStreamException if the index cannot be parsed.
+     */
+    private static int stax(byte[] index, String state) throws XMLStreamException {
+        var list = new ArrayList<Station>();
+        StationIndexParser.parse(new ByteArrayInputStream(index), state, list::add);
+        return list.size();
+    }
+
+    /**
+     * Warms up, times and prints the given case.
+     *
+     * @param name the name of the case.
+     *
+     * @param index the given index document.
+     *
+     * @param iterations the number of timed parses.
+     *
+     * @param parse the given case.
+     *
+     * @throws Exception if the index cannot be parsed.
+     */
+    private static void run(String name, byte[] index, int iterations, Case parse) throws Exception {
+        var stations = 0;
+        for(var i = 0; i < WARM_UP; i++) {
+            stations = parse.parse(index);
+        }
+        var nanos = new ArrayList<Long>(iterations);
+        var allocated = 0L;
+        for(var i = 0; i < iterations; i++) {
+            var bytesBefore = allocatedBytes();
+            var start = System.nanoTime();
+            parse.parse(index);
+            nanos.add(System.nanoTime() - start);
+            allocated += allocatedBytes() - bytesBefore;
+        }
+        System.out.printf(Locale.ROOT, "%-10s %6d stations  median %8.2f ms  %8.2f MiB allocated per parse%n",
+                name, stations, median(nanos) / 1e6, allocated / (double) iterations / (1024 * 1024));
+    }
+
+    /**
+     * Gets the number of bytes allocated by the current thread, if the
+     * JVM measures it.
+     *
+     * @return the number of bytes allocated, or 0.
+     */
+    private static long allocatedBytes() {
+        var threads = ManagementFactory.getThreadMXBean();
+        if(threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getCurrentThreadAllocatedBytes();
+        } // else allocations are not measured doNothing();
+        return 0L;
+    }
+
+    /**
+     * Gets the median of the given durations.
+     *
+     * @param nanos the given durations.
+     *
+     * @return the median.
+     */
+    private static double median(List<Long> nanos) {
+        var sorted = new ArrayList<>(nanos);
+        sorted.sort(null);
+        var middle = sorted.size() / 2;
+        return sorted.size() % 2 == 1 ? sorted.get(middle) : (sorted.get(middle - 1) + sorted.get(middle)) / 2.0;
+    }
+}
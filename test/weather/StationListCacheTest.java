@@ -0,0 +1,105 @@
+package weather;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that StationListCache only keeps station lists read since the
+ * last invalidation of their state.
+ */
+class StationListCacheTest {
+
+    /**
+     * Represents the cache under test.
+     */
+    private final StationListCache cache = new StationListCache(1024L * 1024);
+
+    /**
+     * Represents stations of Texas.
+     */
+    private final List<Station> texas = List.of(
+            new Station("KAUS", "TX", "Austin"),
+            new Station("KDFW", "TX", "Dallas"));
+
+    /**
+     * A list read at the current generation is kept as an immutable copy.
+     */
+    @Test
+    void keepsAListReadAtTheCurrentGeneration() {
+        var stations = new ArrayList<>(this.texas);
+
+        var copy = this.cache.put("TX", stations, this.cache.getGeneration("TX"));
+        stations.clear();
+
+        assertEquals(this.texas, this.cache.get("TX").orElseThrow());
+        assertEquals(this.texas, copy);
+        assertThrows(UnsupportedOperationException.class, () -> copy.add(new Station("KIAH", "TX", "Houston")));
+    }
+
+    /**
+     * A list read before its state was invalidated is returned but not
+     * kept.
+     */
+    @Test
+    void dropsAListReadBeforeAnInvalidation() {
+        var generation = this.cache.getGeneration("TX");
+        this.cache.invalidate("TX");
+
+        var copy = this.cache.put("TX", this.texas, generation);
+
+        assertEquals(this.texas, copy);
+        assertFalse(this.cache.get("TX").isPresent());
+    }
+
+    /**
+     * A list read before every state was dropped is not kept.
+     */
+    @Test
+    void dropsAListReadBeforeAClear() {
+        var generation = this.cache.getGeneration("TX");
+        this.cache.clear();
+
+        this.cache.put("TX", this.texas, generation);
+
+        assertFalse(this.cache.get("TX").isPresent());
+    }
+
+    /**
+     * Invalidating a state drops its list and leaves the other states.
+     */
+    @Test
+    void invalidatesOneState() {
+        var ohio = List.of(new Station("KCMH", "OH", "Columbus"));
+        this.cache.put("TX", this.texas, this.cache.getGeneration("TX"));
+        this.cache.put("OH", ohio, this.cache.getGeneration("OH"));
+        var ohioGeneration = this.cache.getGeneration("OH");
+
+        this.cache.invalidate("TX");
+
+        assertFalse(this.cache.get("TX").isPresent());
+        assertEquals(ohio, this.cache.get("OH").orElseThrow());
+        assertEquals(ohioGeneration, this.cache.getGeneration("OH"));
+    }
+
+    /**
+     * A writer that invalidates a state it saved can keep the list it
+     * saved by passing the generation it expects after its own
+     * invalidation, as WeatherModel does for downloaded stations.
+     */
+    @Test
+    void keepsAListSavedByTheReader() {
+        var generation = this.cache.getGeneration("TX");
+        this.cache.invalidate("TX");
+
+        this.cache.put("TX", this.texas, generation + 1);
+
+        assertTrue(this.cache.get("TX").isPresent());
+    }
+}
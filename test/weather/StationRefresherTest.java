@@ -0,0 +1,135 @@
+package weather;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the delta StationRefresher writes to the local files.
+ */
+class StationRefresherTest {
+
+    /**
+     * Represents the local files.
+     */
+    private final InMemoryLocalDAO local = new InMemoryLocalDAO();
+
+    /**
+     * Represents the refresher of the local files.
+     */
+    private final StationRefresher refresher = new StationRefresher(this.local);
+
+    /**
+     * Refreshes the local files against the given stations of each state.
+     *
+     * @param index the stations of each state in the index.
+     *
+     * @return the changes applied.
+     *
+     * @throws DAOException if the local files cannot be accessed.
+     */
+    private StationRefresher.Result refresh(Map<String, List<Station>> index) throws DAOException {
+        return this.refresher.refresh(state -> index.getOrDefault(state, List.of()), System.nanoTime());
+    }
+
+    /**
+     * Unchanged stations are counted and nothing is written.
+     */
+    @Test
+    void writesNothingWhenNothingChanged() throws Exception {
+        var austin = new Station("KAUS", "TX", "Austin");
+        var denver = new Station("KDEN", "CO", "Denver");
+        this.local.saveStations(List.of(austin, denver));
+        var writes = this.local.getWrites();
+
+        var result = this.refresh(Map.of("TX", List.of(austin), "CO", List.of(denver)));
+
+        assertEquals(0, result.getInserted());
+        assertEquals(0, result.getChanged());
+        assertEquals(0, result.getRemoved());
+        assertEquals(2, result.getUnchanged());
+        assertTrue(result.getAffectedStates().isEmpty());
+        assertEquals(writes, this.local.getWrites());
+    }
+
+    /**
+     * Inserted, changed and removed stations are counted and written in
+     * one call; unchanged stations are not written.
+     */
+    @Test
+    void writesOnlyTheDelta() throws Exception {
+        var austin = new Station("KAUS", "TX", "Austin");
+        var dallas = new Station("KDFW", "TX", "Dallas");
+        var houston = new Station("KIAH", "TX", "Houston");
+        var denver = new Station("KDEN", "CO", "Denver");
+        this.local.saveStations(List.of(austin, dallas, houston, denver));
+        var renamed = new Station("KDFW", "TX", "Dallas/Fort Worth");
+        var elPaso = new Station("KELP", "TX", "El Paso");
+        var writes = this.local.getWrites();
+
+        var result = this.refresh(Map.of("TX", List.of(austin, renamed, elPaso), "CO", List.of(denver)));
+
+        assertEquals(1, result.getInserted());
+        assertEquals(1, result.getChanged());
+        assertEquals(1, result.getRemoved());
+        assertEquals(2, result.getUnchanged());
+        assertEquals(Set.of("TX"), result.getAffectedStates());
+        assertEquals(writes + 1, this.local.getWrites());
+        assertEquals(Set.of(renamed, elPaso), Set.copyOf(this.local.getAppliedStations()));
+        assertEquals(List.of("KIAH"), this.local.getAppliedRemovals());
+        assertEquals(Set.of(austin, renamed, elPaso, denver), Set.copyOf(this.local.getAllStations().get()));
+    }
+
+    /**
+     * A station moving to another state affects both states.
+     */
+    @Test
+    void affectsBothStatesOfAMovedStation() throws Exception {
+        var station = new Station("KTXK", "TX", "Texarkana");
+        var unchanged = new Station("KLIT", "AR", "Little Rock");
+        this.local.saveStations(List.of(station, unchanged));
+        var moved = new Station("KTXK", "AR", "Texarkana");
+
+        var result = this.refresh(Map.of("TX", List.of(), "AR", List.of(unchanged, moved)));
+
+        assertEquals(1, result.getChanged());
+        assertEquals(0, result.getRemoved());
+        assertEquals(Set.of("TX", "AR"), result.getAffectedStates());
+    }
+
+    /**
+     * Every station of a state missing from the index is removed.
+     */
+    @Test
+    void removesTheStationsOfAnEmptyState() throws Exception {
+        this.local.saveStations(List.of(new Station("KAUS", "TX", "Austin"),
+                new Station("KDEN", "CO", "Denver")));
+
+        var result = this.refresh(Map.of("CO", List.of(new Station("KDEN", "CO", "Denver"))));
+
+        assertEquals(1, result.getRemoved());
+        assertEquals(Set.of("TX"), result.getAffectedStates());
+        assertEquals(List.of("CO"), this.local.getAllStates().get());
+    }
+
+    /**
+     * A failed write fails the refresh and leaves the local files as they
+     * were.
+     */
+    @Test
+    void leavesTheLocalFilesWhenTheWriteFails() throws Exception {
+        var austin = new Station("KAUS", "TX", "Austin");
+        this.local.saveStations(List.of(austin));
+        this.local.setFailing(true);
+
+        assertThrows(DAOException.class,
+                () -> this.refresh(Map.of("TX", List.of(new Station("KAUS", "TX", "Austin-Bergstrom")))));
+        assertEquals(List.of(austin), this.local.getAllStations().get());
+    }
+}
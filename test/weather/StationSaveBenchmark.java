@@ -0,0 +1,271 @@
+package weather;
+
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compares the ways of saving the station list into SQLite: the old path,
+ * one autocommitted INSERT per station, against the current one, upserts
+ * in a single transaction, executed row by row and in batches of several
+ * sizes. Every case runs on a fresh temporary database with the pragmas
+ * of ConnectionPool and the schema of SchemaMigrations, and the table is
+ * emptied outside the timed section. The median time of each case is
+ * printed.
+ *
+ * Usage: java -cp &lt;classes and sqlite-jdbc&gt; weather.StationSaveBenchmark
+ * [stations] [iterations] [batch sizes...]. The defaults are 3000
+ * stations, 10 iterations and batches of 50, 500 and all stations; the
+ * pragmas follow the weather.sql.* properties read by ConnectionPool.
+ */
+public final class StationSaveBenchmark {
+
+    /**
+     * Represents the number of untimed saves before a case is timed.
+     */
+    private static final int WARM_UP = 3;
+
+    /**
+     * Represents the statement of the old path.
+     */
+    private static final String INSERT_STATION
+            = "INSERT INTO STATIONS(STATION_ID, STATE, STATION_NAME) VALUES(?, ?, ?)";
+
+    /**
+     * Represents the statement of WeatherModelDAOSqlImpl.saveStations.
+     */
+    private static final String UPSERT_STATION
+            = INSERT_STATION
+            + " ON CONFLICT(STATION_ID) DO UPDATE SET STATE = excluded.STATE, STATION_NAME = excluded.STATION_NAME";
+
+    /**
+     * Represents the statements creating the stations table as migrations
+     * 1 and 2 leave it.
+     */
+    private static final String[] SCHEMA = {
+            "CREATE TABLE STATIONS("
+                    + "ID INTEGER PRIMARY KEY AUTOINCREMENT, "
+                    + "STATION_ID TEXT NOT NULL, "
+                    + "STATE TEXT, "
+                    + "STATION_NAME TEXT)",
+            "CREATE UNIQUE INDEX STATIONS_STATION_ID ON STATIONS(STATION_ID)",
+            "CREATE INDEX STATIONS_STATE ON STATIONS(STATE)"};
+
+    /**
+     * Represents a way of saving the stations.
+     */
+    private interface Case {
+        /**
+         * Saves the given stations.
+         *
+         * @param connection the given connection.
+         *
+         * @param stations the given stations.
+         *
+         * @throws SQLException if the stations cannot be saved.
+         */
+        void save(Connection connection, List<Station> stations) throws SQLException;
+    }
+
+    /**
+     * StationSaveBenchmark only has static members.
+     */
+    private StationSaveBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the number of stations, the number of timed iterations
+     * and the batch sizes.
+     *
+     * @throws Exception if the database cannot be used.
+     */
+    public static void main(String[] args) throws Exception {
+        var count = args.length > 0 ? Integer.parseInt(args[0]) : 3000;
+        var iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        var batchSizes = new ArrayList<Integer>();
+        for(var i = 2; i < args.length; i++) {
+            batchSizes.add(Integer.parseInt(args[i]));
+        }
+        if(batchSizes.isEmpty()) {
+            batchSizes.addAll(List.of(50, 500, count));
+        } // else the batch sizes are given doNothing();
+        var stations = stations(count);
+        System.out.printf(Locale.ROOT, "%d stations, %d iterations, synchronous=%s%n",
+                count, iterations, System.getProperty(ConnectionPool.SYNCHRONOUS_PROPERTY, "NORMAL"));
+
+        run("per-row autocommit", stations, iterations, StationSaveBenchmark::perRow);
+        run("per-row transaction", stations, iterations, StationSaveBenchmark::perRowTransaction);
+        for(var batchSize : batchSizes) {
+            run("batch " + batchSize, stations, iterations,
+                    (connection, list) -> batched(connection, list, batchSize));
+        }
+    }
+
+    /**
+     * Creates the given number of stations spread over 50 states.
+     *
+     * @param count the given number of stations.
+     *
+     * @return the stations.
+     */
+    private static List<Station> stations(int count) {
+        var stations = new ArrayList<Station>(count);
+        for(var i = 0; i < count; i++) {
+            var state = String.format(Locale.ROOT, "%c%c", 'A' + i % 50 / 26, 'A' + i % 50 % 26);
+            stations.add(new Station(String.format(Locale.ROOT, "K%05d", i), state, "Station " + i));
+        }
+        return stations;
+    }
+
+    /**
+     * Saves the stations as the old path did: one autocommitted INSERT per
+     * station.
+     *
+     * @param connection the given connection.
+     *
+     * @param stations the given stations.
+     *
+     * @throws SQLException if the stations cannot be saved.
+     */
+    private static void perRow(Connection connection, List<Station> stations) throws SQLException {
+        try(var statement = connection.prepareStatement(INSERT_STATION)) {
+            for(var station : stations) {
+                statement.setString(1, station.getStationId());
+                statement.setString(2, station.getState());
+                statement.setString(3, station.getStationName());
+                statement.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Saves the stations with one upsert per station in a single
+     * transaction.
+     *
+     * @param connection the given connection.
+     *
+     * @param stations the given stations.
+     *
+     * @throws SQLException if the stations cannot be saved.
+     */
+    private static void perRowTransaction(Connection connection, List<Station> stations) throws SQLException {
+        connection.setAutoCommit(false);
+        try(var statement = connection.prepareStatement(UPSERT_STATION)) {
+            for(var station : stations) {
+                statement.setString(1, station.getStationId());
+                statement.setString(2, station.getState());
+                statement.setString(3, station.getStationName());
+                statement.executeUpdate();
+            }
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Saves the stations as WeatherModelDAOSqlImpl.saveStations does:
+     * batched upserts in a single transaction.
+     *
+     * @param connection the given connection.
+     *
+     * @param stations the given stations.
+     *
+     * @param batchSize the number of stations per batch.
+     *
+     * @throws SQLException if the stations cannot be saved.
+     */
+    private static void batched(Connection connection, List<Station> stations, int batchSize) throws SQLException {
+        connection.setAutoCommit(false);
+        try(var statement = connection.prepareStatement(UPSERT_STATION)) {
+            var pending = 0;
+            for(var station : stations) {
+                statement.setString(1, station.getStationId());
+                statement.setString(2, station.getState());
+                statement.setString(3, station.getStationName());
+                statement.addBatch();
+                if(++pending == batchSize) {
+                    statement.executeBatch();
+                    pending = 0;
+                } // else the batch is not full doNothing();
+            }
+            if(pending > 0) {
+                statement.executeBatch();
+            } // else every batch has been executed doNothing();
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Warms up, times and prints the given case on a fresh database.
+     *
+     * @param name the name of the case.
+     *
+     * @param stations the given stations.
+     *
+     * @param iterations the number of timed saves.
+     *
+     * @param save the given case.
+     *
+     * @throws Exception if the database cannot be used.
+     */
+    private static void run(String name, List<Station> stations, int iterations, Case save) throws Exception {
+        var directory = Files.createTempDirectory("weather-bench");
+        var file = directory.resolve("weather.sqlite");
+        try(var connection = DriverManager.getConnection("jdbc:sqlite:" + file)) {
+            try(var statement = connection.createStatement()) {
+                statement.execute("PRAGMA journal_mode=WAL");
+                statement.execute("PRAGMA synchronous="
+                        + System.getProperty(ConnectionPool.SYNCHRONOUS_PROPERTY, "NORMAL"));
+                statement.execute("PRAGMA cache_size=-"
+                        + Integer.getInteger(ConnectionPool.CACHE_SIZE_PROPERTY, 8192));
+                for(var sql : SCHEMA) {
+                    statement.execute(sql);
+                }
+            }
+            for(var i = 0; i < WARM_UP; i++) {
+                clear(connection);
+                save.save(connection, stations);
+            }
+            var nanos = new ArrayList<Long>(iterations);
+            for(var i = 0; i < iterations; i++) {
+                clear(connection);
+                var start = System.nanoTime();
+                save.save(connection, stations);
+                nanos.add(System.nanoTime() - start);
+            }
+            nanos.sort(null);
+            var median = nanos.get(nanos.size() / 2) / 1e6;
+            System.out.printf(Locale.ROOT, "%-20s median %10.2f ms  %8.1f stations/ms%n",
+                    name, median, stations.size() / median);
+        } finally {
+            try(var files = Files.list(directory)) {
+                for(var path : (Iterable<java.nio.file.Path>) files::iterator) {
+                    Files.deleteIfExists(path);
+                }
+            }
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    /**
+     * Empties the stations table.
+     *
+     * @param connection the given connection.
+     *
+     * @throws SQLException if the table cannot be emptied.
+     */
+    private static void clear(Connection connection) throws SQLException {
+        try(var statement = connection.createStatement()) {
+            statement.execute("DELETE FROM STATIONS");
+        }
+    }
+}
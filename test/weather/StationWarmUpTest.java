@@ -0,0 +1,66 @@
+package weather;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the pass of StationWarmUp over the states of the index. The
+ * warm-up itself is never started or cancelled here, since its state is
+ * shared by the whole JVM.
+ */
+class StationWarmUpTest {
+
+    /**
+     * Represents the stations of each state in the index.
+     */
+    private static final Map<String, List<Station>> INDEX = Map.of(
+            "TX", List.of(new Station("KIAH", "TX", "Houston"), new Station("KAUS", "TX", "Austin"),
+                    new Station("KDFW", "TX", "Dallas")),
+            "CO", List.of(new Station("KDEN", "CO", "Denver")),
+            "AR", List.of(new Station("KLIT", "AR", "Little Rock")));
+
+    /**
+     * Every state is saved once, with its stations sorted by name.
+     */
+    @Test
+    void savesTheSortedStationsOfEveryState() {
+        var saved = new LinkedHashMap<String, List<Station>>();
+
+        var visited = StationWarmUp.saveMissingStates(List.of("AR", "CO", "TX"), INDEX::get, (state, stations) -> {
+            saved.put(state, stations);
+            return true;
+        });
+
+        assertTrue(visited);
+        assertEquals(List.of("AR", "CO", "TX"), List.copyOf(saved.keySet()));
+        assertEquals(List.of("Austin", "Dallas", "Houston"),
+                saved.get("TX").stream().map(Station::getStationName).toList());
+    }
+
+    /**
+     * Only the states saved by the warm-up are counted; the states already
+     * saved are skipped.
+     */
+    @Test
+    void countsOnlyTheStatesItSaved() {
+        var local = Set.of("TX");
+        var asked = new ArrayList<String>();
+        var before = StationWarmUp.getSavedStates();
+
+        StationWarmUp.saveMissingStates(List.of("AR", "CO", "TX"), INDEX::get, (state, stations) -> {
+            asked.add(state);
+            return !local.contains(state);
+        });
+
+        assertEquals(List.of("AR", "CO", "TX"), asked);
+        assertEquals(2, StationWarmUp.getSavedStates() - before);
+    }
+}
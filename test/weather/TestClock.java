@@ -0,0 +1,60 @@
+package weather;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * Represents a clock that only moves when a test advances it.
+ */
+final class TestClock extends Clock {
+
+    /**
+     * Represents the current instant of the clock.
+     */
+    private volatile Instant now;
+
+    /**
+     * Constructs a TestClock set to the given instant.
+     *
+     * @param now the given instant.
+     */
+    TestClock(Instant now) {
+        this.now = now;
+    }
+
+    /**
+     * Moves the clock forward by the given duration.
+     *
+     * @param duration the given duration.
+     */
+    void advance(Duration duration) {
+        this.now = this.now.plus(duration);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Instant instant() {
+        return this.now;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ZoneId getZone() {
+        return ZoneOffset.UTC;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Clock withZone(ZoneId zone) {
+        throw new UnsupportedOperationException("TestClock is always in UTC.");
+    }
+}
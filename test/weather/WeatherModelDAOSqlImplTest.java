@@ -0,0 +1,181 @@
+package weather;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the observation history of WeatherModelDAOSqlImpl on a temporary
+ * SQLite file brought to the latest schema.
+ */
+class WeatherModelDAOSqlImplTest {
+
+    /**
+     * Represents the instant the observations are made around.
+     */
+    private static final Instant NOW = Instant.parse("2026-10-18T12:00:00Z");
+
+    /**
+     * Represents the temporary directory of the database.
+     */
+    private Path directory;
+
+    /**
+     * Represents the pool of connections to the temporary database.
+     */
+    private ConnectionPool pool;
+
+    /**
+     * Represents the DAO under test.
+     */
+    private WeatherModelDAOSqlImpl dao;
+
+    /**
+     * Creates the temporary database with the latest schema.
+     */
+    @BeforeEach
+    void open() throws Exception {
+        this.directory = Files.createTempDirectory("weather-dao");
+        this.pool = new ConnectionPool("jdbc:sqlite:" + this.directory.resolve("weather.sqlite"),
+                2, "NORMAL", 4096, 1000L);
+        try(var pooled = this.pool.borrow()) {
+            SchemaMigrations.migrate(pooled.getConnection());
+        }
+        this.dao = new WeatherModelDAOSqlImpl(this.pool);
+    }
+
+    /**
+     * Closes the pool and deletes the temporary database.
+     */
+    @AfterEach
+    void close() throws Exception {
+        this.pool.close();
+        try(var files = Files.list(this.directory)) {
+            for(var file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(this.directory);
+    }
+
+    /**
+     * Creates an observation of the given station made at the given
+     * instant.
+     *
+     * @param stationId the given station ID.
+     *
+     * @param observedAt the given instant.
+     *
+     * @param temperature the temperature observed.
+     *
+     * @return the observation.
+     */
+    private static CurrentObservation observation(String stationId, Instant observedAt, String temperature) {
+        return new CurrentObservation.Builder("Austin", stationId)
+                .observationTimeRfc822(DateTimeFormatter.RFC_1123_DATE_TIME.format(observedAt.atZone(ZoneOffset.UTC)))
+                .temperature(temperature)
+                .build();
+    }
+
+    /**
+     * Gets the observation instants of the given observations.
+     *
+     * @param observations the given observations.
+     *
+     * @return the instants, in the same order.
+     */
+    private static List<Instant> instants(List<CurrentObservation> observations) {
+        return observations.stream().map(observation -> observation.getObservationInstant().orElseThrow()).toList();
+    }
+
+    /**
+     * An observation fetched again with the same time is kept once, as it
+     * was first saved, while the current observation is replaced.
+     */
+    @Test
+    void keepsEachObservationTimeOnce() throws Exception {
+        this.dao.saveCurrentObservation(observation("KAUS", NOW, "75.0 F"));
+        this.dao.saveCurrentObservation(observation("KAUS", NOW, "76.0 F"));
+
+        var history = this.dao.getObservationHistory("KAUS", NOW, NOW.plusSeconds(1));
+
+        assertEquals(1, history.size());
+        assertEquals("75.0 F", history.get(0).getTemperature());
+        assertEquals("76.0 F", this.dao.getCurrentObservation("KAUS").orElseThrow().getTemperature());
+    }
+
+    /**
+     * A range includes its start and excludes its end, in the order of
+     * observation time, and only holds the given station.
+     */
+    @Test
+    void readsAHalfOpenRange() throws Exception {
+        this.dao.saveCurrentObservations(List.of(
+                observation("KAUS", NOW.plusSeconds(3600), "77.0 F"),
+                observation("KAUS", NOW.minusSeconds(3600), "73.0 F"),
+                observation("KAUS", NOW, "75.0 F"),
+                observation("KDFW", NOW, "80.0 F")));
+
+        var history = this.dao.getObservationHistory("KAUS", NOW.minusSeconds(3600), NOW.plusSeconds(3600));
+
+        assertEquals(List.of(NOW.minusSeconds(3600), NOW), instants(history));
+        assertTrue(history.stream().allMatch(observation -> "KAUS".equals(observation.getStationId())));
+    }
+
+    /**
+     * The latest observations of each station are read newest first and
+     * bounded by the count; stations without history are left out.
+     */
+    @Test
+    void readsTheLatestObservations() throws Exception {
+        for(var hour = 0; hour < 5; hour++) {
+            this.dao.saveCurrentObservation(observation("KAUS", NOW.plusSeconds(hour * 3600L), "75.0 F"));
+        }
+        this.dao.saveCurrentObservation(observation("KDFW", NOW, "80.0 F"));
+
+        var latest = this.dao.getLatestObservations(List.of("KAUS", "KDFW", "KIAH"), 2);
+
+        assertEquals(List.of("KAUS", "KDFW"), List.copyOf(latest.keySet()));
+        assertEquals(List.of(NOW.plusSeconds(4 * 3600L), NOW.plusSeconds(3 * 3600L)), instants(latest.get("KAUS")));
+        assertEquals(List.of(NOW), instants(latest.get("KDFW")));
+        assertThrows(IllegalArgumentException.class, () -> this.dao.getLatestObservations(List.of("KAUS"), 0));
+    }
+
+    /**
+     * An observation without a valid time is saved as the current one
+     * but not kept in the history.
+     */
+    @Test
+    void leavesObservationsWithoutTimeOutOfTheHistory() throws Exception {
+        this.dao.saveCurrentObservation(new CurrentObservation.Builder("Austin", "KAUS")
+                .observationTimeRfc822("unknown")
+                .temperature("75.0 F")
+                .build());
+
+        assertTrue(this.dao.getCurrentObservation("KAUS").isPresent());
+        assertTrue(this.dao.getLatestObservations(List.of("KAUS"), 10).isEmpty());
+    }
+
+    /**
+     * Clearing the local files drops the history too.
+     */
+    @Test
+    void clearsTheHistory() throws Exception {
+        this.dao.saveCurrentObservation(observation("KAUS", NOW, "75.0 F"));
+
+        this.dao.clear();
+
+        assertTrue(this.dao.getObservationHistory("KAUS", NOW.minusSeconds(1), NOW.plusSeconds(1)).isEmpty());
+    }
+}
@@ -0,0 +1,154 @@
+package weather;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the weight bound, the admission policy and the statistics of
+ * WeightedCache.
+ */
+class WeightedCacheTest {
+
+    /**
+     * Creates a cache of values weighing their length.
+     *
+     * @param maximumWeight the maximum total weight.
+     *
+     * @return the cache.
+     */
+    private static WeightedCache<String, String> cache(long maximumWeight) {
+        return new WeightedCache<>(maximumWeight, 1L, String::length);
+    }
+
+    /**
+     * The total weight never exceeds the maximum weight.
+     */
+    @Test
+    void staysWithinTheMaximumWeight() {
+        var cache = cache(100L);
+
+        for(var i = 0; i < 1000; i++) {
+            cache.put("K" + i, "0123456789");
+            assertTrue(cache.getWeightedSize() <= 100L);
+        }
+
+        assertEquals(10, cache.size());
+        assertEquals(990, cache.getEvictionCount());
+        assertEquals(9900, cache.getEvictedWeight());
+    }
+
+    /**
+     * A new value heavier than the maximum weight is not cached and does
+     * not evict anything.
+     */
+    @Test
+    void skipsAValueHeavierThanTheMaximum() {
+        var cache = cache(10L);
+        cache.put("KAUS", "light");
+
+        cache.put("KDFW", "far too heavy to be cached");
+
+        assertFalse(cache.peek("KDFW").isPresent());
+        assertTrue(cache.peek("KAUS").isPresent());
+        assertEquals(0, cache.getEvictionCount());
+    }
+
+    /**
+     * Replacing a value accounts for the weight of the new value.
+     */
+    @Test
+    void reweighsAReplacedValue() {
+        var cache = cache(100L);
+        cache.put("KAUS", "12345");
+
+        cache.put("KAUS", "1234567890");
+
+        assertEquals("1234567890", cache.peek("KAUS").orElseThrow());
+        assertEquals(10L, cache.getWeightedSize());
+    }
+
+    /**
+     * Keys requested again and again survive a sweep over many keys
+     * requested once, even though the sweep alone would fill the cache
+     * many times over.
+     */
+    @Test
+    void keepsFrequentKeysThroughAScan() {
+        var cache = cache(100L);
+        for(var i = 0; i < 50; i++) {
+            cache.put("hot" + i, "x");
+        }
+        for(var round = 0; round < 10; round++) {
+            for(var i = 0; i < 50; i++) {
+                cache.get("hot" + i);
+            }
+        }
+
+        for(var i = 0; i < 10_000; i++) {
+            cache.put("cold" + i, "x");
+            if(i % 500 == 0) {
+                for(var j = 0; j < 50; j++) {
+                    cache.get("hot" + j);
+                }
+            } // else the hot keys are not requested now doNothing();
+        }
+
+        var kept = 0;
+        for(var i = 0; i < 50; i++) {
+            if(cache.peek("hot" + i).isPresent()) {
+                kept++;
+            } // else the key was evicted doNothing();
+        }
+        assertEquals(50, kept);
+    }
+
+    /**
+     * Lookups are counted as hits and misses; peeking is not counted.
+     */
+    @Test
+    void countsHitsAndMisses() {
+        var cache = cache(100L);
+        cache.put("KAUS", "Austin");
+
+        cache.get("KAUS");
+        cache.get("KAUS");
+        cache.get("KDFW");
+        cache.peek("KAUS");
+        cache.peek("KDFW");
+
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(2.0 / 3.0, cache.getHitRatio());
+    }
+
+    /**
+     * Invalidating and clearing release the weight of the values.
+     */
+    @Test
+    void releasesTheWeightOfRemovedValues() {
+        var cache = cache(100L);
+        cache.put("KAUS", "Austin");
+        cache.put("KDFW", "Dallas");
+
+        cache.invalidate("KAUS");
+        assertEquals(6L, cache.getWeightedSize());
+        assertFalse(cache.peek("KAUS").isPresent());
+
+        cache.clear();
+        assertEquals(0L, cache.getWeightedSize());
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Weights must be positive.
+     */
+    @Test
+    void rejectsInvalidWeights() {
+        assertThrows(IllegalArgumentException.class, () -> new WeightedCache<String, String>(0L, 1L, String::length));
+        assertThrows(IllegalArgumentException.class, () -> new WeightedCache<String, String>(1L, 0L, String::length));
+    }
+}
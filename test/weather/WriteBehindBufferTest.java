@@ -0,0 +1,274 @@
+package weather;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the deferred writes of WriteBehindBuffer and the reads overlaying
+ * them. The flush delay is long enough that only the tests flush, unless
+ * enough writes are pending.
+ */
+class WriteBehindBufferTest {
+
+    /**
+     * Represents the instant the observations are made around.
+     */
+    private static final Instant NOW = Instant.parse("2026-10-18T12:00:00Z");
+
+    /**
+     * Represents the local files behind the buffer.
+     */
+    private final InMemoryLocalDAO local = new InMemoryLocalDAO();
+
+    /**
+     * Represents the buffer under test.
+     */
+    private final WriteBehindBuffer buffer = new WriteBehindBuffer(this.local, 100, 60_000L);
+
+    /**
+     * Closes the buffer, releasing its flushing thread.
+     */
+    @AfterEach
+    void close() {
+        this.local.setFailing(false);
+        this.local.setWriteGate(null);
+        this.buffer.close();
+    }
+
+    /**
+     * Creates an observation of the given station made at the given
+     * instant.
+     *
+     * @param stationId the given station ID.
+     *
+     * @param observedAt the given instant.
+     *
+     * @return the observation.
+     */
+    private static CurrentObservation observation(String stationId, Instant observedAt) {
+        return new CurrentObservation.Builder("Austin", stationId)
+                .observationTimeRfc822(DateTimeFormatter.RFC_1123_DATE_TIME.format(observedAt.atZone(ZoneOffset.UTC)))
+                .temperature("75.0 F")
+                .build();
+    }
+
+    /**
+     * Starts a flush on another thread and waits until the pending writes
+     * are being flushed.
+     *
+     * @return the flush.
+     *
+     * @throws InterruptedException if the test is interrupted.
+     */
+    private CompletableFuture<Void> flushAsync() throws InterruptedException {
+        var flush = CompletableFuture.runAsync(() -> {
+            try {
+                this.buffer.flush();
+            } catch (DAOException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while(this.buffer.getQueueDepth() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(0, this.buffer.getQueueDepth());
+        return flush;
+    }
+
+    /**
+     * Repeated writes for a station are coalesced and only the latest one
+     * is written.
+     */
+    @Test
+    void coalescesWritesPerStation() throws Exception {
+        var latest = observation("KAUS", NOW);
+        this.buffer.saveCurrentObservation(observation("KAUS", NOW.minusSeconds(3600)));
+        this.buffer.saveCurrentObservation(latest);
+        this.buffer.saveStations(List.of(new Station("KAUS", "TX", "Austin"),
+                new Station("KAUS", "TX", "Austin-Bergstrom")));
+
+        assertEquals(2, this.buffer.getCoalescedCount());
+        assertEquals(2, this.buffer.getQueueDepth());
+        assertEquals(0, this.local.getWrites());
+
+        this.buffer.flush();
+
+        assertEquals(0, this.buffer.getQueueDepth());
+        assertEquals(1, this.buffer.getFlushCount());
+        assertEquals(2, this.local.getWrites());
+        assertSame(latest, this.local.getCurrentObservation("KAUS").orElseThrow());
+        assertEquals("Austin-Bergstrom", this.local.getAllStations().orElseThrow().get(0).getStationName());
+    }
+
+    /**
+     * Pending stations are overlaid on the saved ones by state, and a
+     * station moved to another state leaves its former state.
+     */
+    @Test
+    void overlaysPendingStations() throws Exception {
+        this.local.saveStations(List.of(new Station("KAUS", "TX", "Austin"),
+                new Station("KTXK", "TX", "Texarkana")));
+        this.buffer.saveStations(List.of(new Station("KDFW", "TX", "Dallas"),
+                new Station("KTXK", "AR", "Texarkana")));
+
+        assertEquals(List.of("KAUS", "KDFW"), this.buffer.getStations("TX").orElseThrow().stream()
+                .map(Station::getStationId).sorted().toList());
+        assertEquals("KTXK", this.buffer.getStations("AR").orElseThrow().get(0).getStationId());
+        assertEquals(List.of("AR", "TX"), this.buffer.getAllStates().orElseThrow().stream().sorted().toList());
+        assertEquals(3, this.buffer.getAllStations().orElseThrow().size());
+    }
+
+    /**
+     * The current observation is the latest one written, even when it is
+     * not saved yet.
+     */
+    @Test
+    void readsTheLatestUnsavedObservation() throws Exception {
+        this.local.saveCurrentObservation(observation("KAUS", NOW.minusSeconds(3600)));
+        var latest = observation("KAUS", NOW);
+
+        this.buffer.saveCurrentObservation(latest);
+
+        assertSame(latest, this.buffer.getCurrentObservation("KAUS").orElseThrow());
+        assertFalse(this.buffer.getCurrentObservation("KDFW").isPresent());
+    }
+
+    /**
+     * Writes of a failed flush are queued again and stay visible, unless a
+     * later write for the same station replaced them.
+     */
+    @Test
+    void requeuesAfterAFailedFlush() throws Exception {
+        var failed = observation("KAUS", NOW.minusSeconds(3600));
+        var other = observation("KDFW", NOW.minusSeconds(3600));
+        this.buffer.saveCurrentObservation(failed);
+        this.buffer.saveCurrentObservation(other);
+        this.local.setFailing(true);
+
+        assertThrows(DAOException.class, this.buffer::flush);
+
+        assertEquals(1, this.buffer.getFailedFlushCount());
+        assertEquals(0, this.buffer.getFlushCount());
+        assertEquals(2, this.buffer.getQueueDepth());
+        assertSame(failed, this.buffer.getCurrentObservation("KAUS").orElseThrow());
+
+        var latest = observation("KAUS", NOW);
+        this.buffer.saveCurrentObservation(latest);
+        this.local.setFailing(false);
+        this.buffer.flush();
+
+        assertEquals(0, this.buffer.getQueueDepth());
+        assertSame(latest, this.local.getCurrentObservation("KAUS").orElseThrow());
+        assertSame(other, this.local.getCurrentObservation("KDFW").orElseThrow());
+    }
+
+    /**
+     * Writes being flushed stay visible until they are saved.
+     */
+    @Test
+    void readsWritesBeingFlushed() throws Exception {
+        var gate = new CountDownLatch(1);
+        var observation = observation("KAUS", NOW);
+        this.buffer.saveCurrentObservation(observation);
+        this.buffer.saveStations(List.of(new Station("KAUS", "TX", "Austin")));
+        this.local.setWriteGate(gate);
+
+        var flush = this.flushAsync();
+
+        assertSame(observation, this.buffer.getCurrentObservation("KAUS").orElseThrow());
+        assertEquals("KAUS", this.buffer.getStations("TX").orElseThrow().get(0).getStationId());
+
+        gate.countDown();
+        flush.get(5, TimeUnit.SECONDS);
+        assertSame(observation, this.local.getCurrentObservation("KAUS").orElseThrow());
+    }
+
+    /**
+     * Pending observations are merged into the saved history by epoch
+     * second, in the order of each read.
+     */
+    @Test
+    void mergesPendingObservationsIntoTheHistory() throws Exception {
+        var oldest = observation("KAUS", NOW.minusSeconds(7200));
+        this.local.saveCurrentObservation(oldest);
+        this.local.saveCurrentObservation(observation("KAUS", NOW.minusSeconds(3600)));
+        var rewritten = observation("KAUS", NOW.minusSeconds(3600));
+        var latest = observation("KAUS", NOW);
+        var gate = new CountDownLatch(1);
+        this.buffer.saveCurrentObservation(rewritten);
+        this.local.setWriteGate(gate);
+        var flush = this.flushAsync();
+        this.buffer.saveCurrentObservation(latest);
+
+        var history = this.buffer.getObservationHistory("KAUS", NOW.minusSeconds(7200), NOW.plusSeconds(1));
+        assertEquals(3, history.size());
+        assertSame(oldest, history.get(0));
+        assertSame(latest, history.get(2));
+        assertEquals(2, this.buffer.getObservationHistory("KAUS", NOW.minusSeconds(7200), NOW).size());
+
+        var newest = this.buffer.getLatestObservations(List.of("KAUS", "KDFW"), 2);
+        assertEquals(List.of("KAUS"), List.copyOf(newest.keySet()));
+        assertEquals(2, newest.get("KAUS").size());
+        assertSame(latest, newest.get("KAUS").get(0));
+        assertEquals(NOW.minusSeconds(3600), newest.get("KAUS").get(1).getObservationInstant().orElseThrow());
+
+        gate.countDown();
+        flush.get(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Enough pending writes trigger a flush without waiting for the
+     * delay.
+     */
+    @Test
+    void flushesWhenEnoughWritesArePending() throws Exception {
+        var buffer = new WriteBehindBuffer(this.local, 2, 60_000L);
+        try {
+            buffer.saveCurrentObservation(observation("KAUS", NOW));
+            assertEquals(1, buffer.getQueueDepth());
+            buffer.saveCurrentObservation(observation("KDFW", NOW));
+
+            var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while(buffer.getFlushCount() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+
+            assertEquals(1, buffer.getFlushCount());
+            assertEquals(0, buffer.getQueueDepth());
+            assertTrue(this.local.getCurrentObservation("KDFW").isPresent());
+        } finally {
+            buffer.close();
+        }
+    }
+
+    /**
+     * Closing writes everything pending, and later writes are written
+     * directly.
+     */
+    @Test
+    void writesDirectlyOnceClosed() throws Exception {
+        this.buffer.saveCurrentObservation(observation("KAUS", NOW));
+
+        this.buffer.close();
+
+        assertTrue(this.local.getCurrentObservation("KAUS").isPresent());
+        this.buffer.saveCurrentObservation(observation("KDFW", NOW));
+        assertEquals(0, this.buffer.getQueueDepth());
+        assertTrue(this.local.getCurrentObservation("KDFW").isPresent());
+    }
+}